@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.benchmarks;
+
+import com.arthurivanets.sharedpreferenceshandler.SharedPreferencesManager;
+import com.arthurivanets.sharedpreferenceshandler.SharedPreferencesManagerProvider;
+import com.arthurivanets.sharedpreferenceshandler.ktx.SharedPreferencesExtensionsKt;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import kotlin.Pair;
+
+/**
+ *  Measures the type-dispatched bulk puts of the ktx module.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KtxBenchmark {
+
+
+    private SharedPreferencesManager mManager;
+    private Pair<String, Object>[] mPairs;
+
+
+
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        mManager = SharedPreferencesManagerProvider.getInstance(new InMemoryContext()).get("ktx");
+        mPairs = new Pair[] {
+            new Pair<String, Object>("boolean", true),
+            new Pair<String, Object>("float", 1f),
+            new Pair<String, Object>("int", 1),
+            new Pair<String, Object>("long", 1L),
+            new Pair<String, Object>("string", "value"),
+            new Pair<String, Object>("string_set", Collections.singleton("value")),
+            new Pair<String, Object>("boolean_2", false),
+            new Pair<String, Object>("int_2", 2),
+            new Pair<String, Object>("long_2", 2L),
+            new Pair<String, Object>("string_2", "value")
+        };
+    }
+
+
+
+
+    @Benchmark
+    public SharedPreferencesManager putAll() {
+        return SharedPreferencesExtensionsKt.putAll(mManager, mPairs);
+    }
+
+
+
+
+}
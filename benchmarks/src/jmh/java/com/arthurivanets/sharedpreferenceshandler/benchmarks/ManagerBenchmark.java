@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.benchmarks;
+
+import com.arthurivanets.sharedpreferenceshandler.PreferencesSnapshot;
+import com.arthurivanets.sharedpreferenceshandler.SharedPreferencesManager;
+import com.arthurivanets.sharedpreferenceshandler.SharedPreferencesManagerConfig;
+import com.arthurivanets.sharedpreferenceshandler.SharedPreferencesManagerProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Measures the typed puts and gets of the {@link SharedPreferencesManager}.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ManagerBenchmark {
+
+
+    private static final String KEY_INT = "int";
+    private static final String KEY_LONG = "long";
+    private static final String KEY_STRING = "string";
+    private static final String KEY_STRING_SET = "string_set";
+
+    private static final Collection<String> ALL_KEYS = Arrays.asList(KEY_INT, KEY_LONG, KEY_STRING, KEY_STRING_SET);
+
+
+    @Param({"false", "true"})
+    public boolean cachingEnabled;
+
+    private SharedPreferencesManager mManager;
+    private int mCounter;
+
+
+
+
+    @Setup
+    public void setUp() {
+        final SharedPreferencesManagerConfig config = new SharedPreferencesManagerConfig.Builder()
+            .setCachingEnabled(cachingEnabled)
+            .build();
+
+        mManager = SharedPreferencesManagerProvider.getInstance(new InMemoryContext()).get(("manager_" + cachingEnabled), config);
+        mManager.put(KEY_INT, 1)
+            .put(KEY_LONG, 1L)
+            .put(KEY_STRING, "value")
+            .put(KEY_STRING_SET, Collections.singleton("value"))
+            .commit();
+    }
+
+
+
+
+    @Benchmark
+    public SharedPreferencesManager putInt() {
+        return mManager.put(KEY_INT, mCounter++);
+    }
+
+
+
+
+    @Benchmark
+    public SharedPreferencesManager putString() {
+        return mManager.put(KEY_STRING, "value");
+    }
+
+
+
+
+    @Benchmark
+    public SharedPreferencesManager putIntAndApply() {
+        return mManager.putAndApply(KEY_INT, mCounter++);
+    }
+
+
+
+
+    @Benchmark
+    public int getInt() {
+        return mManager.getInt(KEY_INT, 0);
+    }
+
+
+
+
+    @Benchmark
+    public long getLong() {
+        return mManager.getLong(KEY_LONG, 0L);
+    }
+
+
+
+
+    @Benchmark
+    public String getString() {
+        return mManager.getString(KEY_STRING, null);
+    }
+
+
+
+
+    @Benchmark
+    public Set<String> getStringSet() {
+        return mManager.getStringSet(KEY_STRING_SET, null);
+    }
+
+
+
+
+    @Benchmark
+    public int getAllIndividually() {
+        return (mManager.getInt(KEY_INT, 0)
+            + (int) mManager.getLong(KEY_LONG, 0L)
+            + mManager.getString(KEY_STRING, "").length()
+            + mManager.getStringSet(KEY_STRING_SET, Collections.<String>emptySet()).size());
+    }
+
+
+
+
+    @Benchmark
+    public int getAllAtOnce() {
+        final PreferencesSnapshot snapshot = mManager.getAll(ALL_KEYS);
+
+        return (snapshot.getInt(KEY_INT, 0)
+            + (int) snapshot.getLong(KEY_LONG, 0L)
+            + snapshot.getString(KEY_STRING, "").length()
+            + snapshot.getStringSet(KEY_STRING_SET, Collections.<String>emptySet()).size());
+    }
+
+
+
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.benchmarks;
+
+import com.arthurivanets.sharedpreferenceshandler.SharedPreferencesManager;
+import com.arthurivanets.sharedpreferenceshandler.SharedPreferencesManagerProvider;
+import com.arthurivanets.sharedpreferenceshandler.benchmarks.models.GeneratedModel5;
+import com.arthurivanets.sharedpreferenceshandler.benchmarks.models.GeneratedModel50;
+import com.arthurivanets.sharedpreferenceshandler.benchmarks.models.GeneratedModel500;
+import com.arthurivanets.sharedpreferenceshandler.benchmarks.models.ReflectiveModel5;
+import com.arthurivanets.sharedpreferenceshandler.benchmarks.models.ReflectiveModel50;
+import com.arthurivanets.sharedpreferenceshandler.benchmarks.models.ReflectiveModel500;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Measures the mapping of the objects to (and the recovery of the objects from) the preferences,
+ *  both via the reflection-based mapping (the models with private fields) and via the compile-time
+ *  generated mappers (the models with package-private fields).
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ObjectMappingBenchmark {
+
+
+    @Param({"5", "50", "500"})
+    public int fieldCount;
+
+    @Param({"reflective", "generated"})
+    public String mapping;
+
+    private SharedPreferencesManager mManager;
+    private Object mObject;
+    private Class<?> mObjectClass;
+
+
+
+
+    @Setup
+    public void setUp() {
+        mManager = SharedPreferencesManagerProvider.getInstance(new InMemoryContext()).get("object_mapping");
+        mObject = createObject(fieldCount, "generated".equals(mapping));
+        mObjectClass = mObject.getClass();
+        mManager.putAndCommit(mObject);
+    }
+
+
+
+
+    private static Object createObject(int fieldCount, boolean isGenerated) {
+        switch(fieldCount) {
+            case 5: return (isGenerated ? new GeneratedModel5().fill(1) : new ReflectiveModel5().fill(1));
+            case 50: return (isGenerated ? new GeneratedModel50().fill(1) : new ReflectiveModel50().fill(1));
+            case 500: return (isGenerated ? new GeneratedModel500().fill(1) : new ReflectiveModel500().fill(1));
+            default: throw new IllegalArgumentException("Unsupported field count: " + fieldCount);
+        }
+    }
+
+
+
+
+    @Benchmark
+    public SharedPreferencesManager map() {
+        return mManager.put(mObject);
+    }
+
+
+
+
+    @Benchmark
+    public Object recover() {
+        return mManager.get(mObjectClass);
+    }
+
+
+
+
+}
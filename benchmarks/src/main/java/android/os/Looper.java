@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.os;
+
+/**
+ *  A JVM stand-in for the Android framework class, which exposes only the part of the API
+ *  used by the library, so that the library can be benchmarked on the JVM.
+ *  (There's no main looper thread on the JVM, so no thread is ever considered to be the main one)
+ */
+
+public final class Looper {
+
+
+    private static final Looper MAIN_LOOPER = new Looper();
+
+
+
+
+    private Looper() {
+        // the main looper is the only one
+    }
+
+
+
+
+    public static Looper getMainLooper() {
+        return MAIN_LOOPER;
+    }
+
+
+
+
+    public Thread getThread() {
+        return null;
+    }
+
+
+
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.text;
+
+/**
+ *  A JVM stand-in for the Android framework class, which exposes only the part of the API
+ *  used by the library, so that the library can be benchmarked on the JVM.
+ */
+
+public final class TextUtils {
+
+
+
+
+    public static boolean isEmpty(CharSequence text) {
+        return ((text == null) || (text.length() == 0));
+    }
+
+
+
+
+}
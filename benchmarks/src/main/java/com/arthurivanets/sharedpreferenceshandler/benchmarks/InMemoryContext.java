@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.benchmarks;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *  A {@link Context} which hands out the {@link InMemorySharedPreferences}
+ *  (and the directories within the system temporary directory).
+ */
+
+public final class InMemoryContext extends Context {
+
+
+    private final Map<String, SharedPreferences> mSharedPreferences = new HashMap<>();
+
+
+
+
+    @Override
+    public Context getApplicationContext() {
+        return this;
+    }
+
+
+
+
+    @Override
+    public synchronized SharedPreferences getSharedPreferences(String name, int mode) {
+        SharedPreferences sharedPreferences = mSharedPreferences.get(name);
+
+        if(sharedPreferences == null) {
+            sharedPreferences = new InMemorySharedPreferences();
+            mSharedPreferences.put(name, sharedPreferences);
+        }
+
+        return sharedPreferences;
+    }
+
+
+
+
+    @Override
+    public File getDir(String name, int mode) {
+        final File directory = new File(System.getProperty("java.io.tmpdir"), ("sharedpreferenceshandler-benchmarks/app_" + name));
+        directory.mkdirs();
+
+        return directory;
+    }
+
+
+
+
+    @Override
+    public File getFilesDir() {
+        final File directory = new File(System.getProperty("java.io.tmpdir"), "sharedpreferenceshandler-benchmarks/files");
+        directory.mkdirs();
+
+        return directory;
+    }
+
+
+
+
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.benchmarks;
+
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ *  An in-memory implementation of the {@link SharedPreferences}, which mimics the locking behavior of
+ *  the platform implementation (every read and every editor operation takes a lock), but performs no disk I/O.
+ */
+
+public final class InMemorySharedPreferences implements SharedPreferences {
+
+
+    private static final Object REMOVED = new Object();
+
+    private final Object mLock;
+    private final Map<String, Object> mValues;
+
+
+
+
+    public InMemorySharedPreferences() {
+        mLock = new Object();
+        mValues = new HashMap<>();
+    }
+
+
+
+
+    @Override
+    public Map<String, ?> getAll() {
+        synchronized(mLock) {
+            return new HashMap<>(mValues);
+        }
+    }
+
+
+
+
+    @Override
+    public String getString(String key, String defaultValue) {
+        synchronized(mLock) {
+            final String value = (String) mValues.get(key);
+            return ((value != null) ? value : defaultValue);
+        }
+    }
+
+
+
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<String> getStringSet(String key, Set<String> defaultValues) {
+        synchronized(mLock) {
+            final Set<String> values = (Set<String>) mValues.get(key);
+            return ((values != null) ? values : defaultValues);
+        }
+    }
+
+
+
+
+    @Override
+    public int getInt(String key, int defaultValue) {
+        synchronized(mLock) {
+            final Integer value = (Integer) mValues.get(key);
+            return ((value != null) ? value : defaultValue);
+        }
+    }
+
+
+
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+        synchronized(mLock) {
+            final Long value = (Long) mValues.get(key);
+            return ((value != null) ? value : defaultValue);
+        }
+    }
+
+
+
+
+    @Override
+    public float getFloat(String key, float defaultValue) {
+        synchronized(mLock) {
+            final Float value = (Float) mValues.get(key);
+            return ((value != null) ? value : defaultValue);
+        }
+    }
+
+
+
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        synchronized(mLock) {
+            final Boolean value = (Boolean) mValues.get(key);
+            return ((value != null) ? value : defaultValue);
+        }
+    }
+
+
+
+
+    @Override
+    public boolean contains(String key) {
+        synchronized(mLock) {
+            return mValues.containsKey(key);
+        }
+    }
+
+
+
+
+    @Override
+    public Editor edit() {
+        return new InMemoryEditor();
+    }
+
+
+
+
+    private final class InMemoryEditor implements Editor {
+
+
+        private final Map<String, Object> mChanges = new HashMap<>();
+        private boolean mShouldClear;
+
+
+
+
+        @Override
+        public synchronized Editor putString(String key, String value) {
+            mChanges.put(key, ((value != null) ? value : REMOVED));
+            return this;
+        }
+
+
+
+
+        @Override
+        public synchronized Editor putStringSet(String key, Set<String> values) {
+            mChanges.put(key, ((values != null) ? new HashSet<>(values) : REMOVED));
+            return this;
+        }
+
+
+
+
+        @Override
+        public synchronized Editor putInt(String key, int value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+
+
+
+        @Override
+        public synchronized Editor putLong(String key, long value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+
+
+
+        @Override
+        public synchronized Editor putFloat(String key, float value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+
+
+
+        @Override
+        public synchronized Editor putBoolean(String key, boolean value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+
+
+
+        @Override
+        public synchronized Editor remove(String key) {
+            mChanges.put(key, REMOVED);
+            return this;
+        }
+
+
+
+
+        @Override
+        public synchronized Editor clear() {
+            mShouldClear = true;
+            return this;
+        }
+
+
+
+
+        @Override
+        public boolean commit() {
+            commitToMemory();
+            return true;
+        }
+
+
+
+
+        @Override
+        public void apply() {
+            commitToMemory();
+        }
+
+
+
+
+        private void commitToMemory() {
+            synchronized(mLock) {
+                synchronized(this) {
+                    if(mShouldClear) {
+                        mValues.clear();
+                        mShouldClear = false;
+                    }
+
+                    for(Map.Entry<String, Object> change : mChanges.entrySet()) {
+                        if(change.getValue() == REMOVED) {
+                            mValues.remove(change.getKey());
+                        } else {
+                            mValues.put(change.getKey(), change.getValue());
+                        }
+                    }
+
+                    mChanges.clear();
+                }
+            }
+        }
+
+
+
+
+    }
+
+
+
+
+}
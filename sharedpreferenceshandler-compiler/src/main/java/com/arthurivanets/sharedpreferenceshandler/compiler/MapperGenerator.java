@@ -0,0 +1,306 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.compiler;
+
+import java.util.List;
+
+/**
+ *  Generates the source code of the {@code Mapper} implementations.
+ *
+ *  @author arthur3486
+ */
+
+final class MapperGenerator {
+
+
+    private static final String MAPPER = "com.arthurivanets.sharedpreferenceshandler.util.Mapper";
+    private static final String SHARED_PREFERENCES_MANAGER = "com.arthurivanets.sharedpreferenceshandler.SharedPreferencesManager";
+    private static final String TEXT_UTILS = "android.text.TextUtils";
+    private static final String PROPERTY_STREAMS = "com.arthurivanets.sharedpreferenceshandler.util.PropertyStreams";
+    private static final String LAZY_PROPERTY = "com.arthurivanets.sharedpreferenceshandler.util.LazyProperty";
+
+
+    private final StringBuilder mBuilder;
+
+
+
+
+    MapperGenerator() {
+        mBuilder = new StringBuilder();
+    }
+
+
+
+
+    /**
+     *  Generates a mapper that maps the whole object to a single key
+     *  (used for the StringifiableProperty (StreamableProperty) classes marked as Property).
+     *
+     * @param packageName the package of the generated mapper
+     * @param mapperName the simple name of the generated mapper
+     * @param objectTypeName the canonical name of the mapped class
+     * @param keyLiteral the key of the object represented in a form of a Java String literal
+     * @param isStreamable whether the mapped class is a StreamableProperty
+     * @return the generated source code
+     */
+    String generateStringifiableMapper(String packageName,
+                                       String mapperName,
+                                       String objectTypeName,
+                                       String keyLiteral,
+                                       boolean isStreamable) {
+        mBuilder.setLength(0);
+
+        appendHeader(packageName, mapperName, objectTypeName);
+        line("    private static final String KEY = " + keyLiteral + ";");
+        line("");
+        line("");
+        line("");
+        line("");
+        line("    @Override");
+        line("    public void map(" + SHARED_PREFERENCES_MANAGER + " sharedPreferencesManager, " + objectTypeName + " object) {");
+        line("        sharedPreferencesManager.put(KEY, " + stringify("object", isStreamable) + ");");
+        line("    }");
+        line("");
+        line("");
+        line("");
+        line("");
+        line("    @Override");
+        line("    public " + objectTypeName + " recover(" + SHARED_PREFERENCES_MANAGER + " sharedPreferencesManager) {");
+        line("        final " + objectTypeName + " object = new " + objectTypeName + "();");
+        line("        " + recover("object", "sharedPreferencesManager.getString(KEY, \"\")", isStreamable) + ";");
+        line("");
+        line("        return object;");
+        line("    }");
+        appendFooter();
+
+        return mBuilder.toString();
+    }
+
+
+
+
+    /**
+     *  Generates a mapper that maps each of the Property fields to its own key.
+     *
+     * @param packageName the package of the generated mapper
+     * @param mapperName the simple name of the generated mapper
+     * @param objectTypeName the canonical name of the mapped class
+     * @param fields the Property fields of the mapped class
+     * @param keyLiterals the keys of the fields represented in a form of Java String literals
+     * @return the generated source code
+     */
+    String generateFieldMapper(String packageName,
+                               String mapperName,
+                               String objectTypeName,
+                               List<PropertyField> fields,
+                               List<String> keyLiterals) {
+        mBuilder.setLength(0);
+
+        appendHeader(packageName, mapperName, objectTypeName);
+
+        for(int i = 0; i < fields.size(); i++) {
+            line("    private static final String KEY_" + i + " = " + keyLiterals.get(i) + ";");
+        }
+
+        line("");
+        line("");
+        line("");
+        line("");
+        line("    @Override");
+        line("    public void map(" + SHARED_PREFERENCES_MANAGER + " sharedPreferencesManager, " + objectTypeName + " object) {");
+
+        for(int i = 0; i < fields.size(); i++) {
+            appendFieldMapping(fields.get(i), ("KEY_" + i));
+        }
+
+        line("    }");
+        line("");
+        line("");
+        line("");
+        line("");
+        line("    @Override");
+        line("    public " + objectTypeName + " recover(" + SHARED_PREFERENCES_MANAGER + " sharedPreferencesManager) {");
+        line("        final " + objectTypeName + " object = new " + objectTypeName + "();");
+        line("");
+
+        for(int i = 0; i < fields.size(); i++) {
+            appendFieldRecovery(fields.get(i), ("KEY_" + i));
+        }
+
+        line("        return object;");
+        line("    }");
+        appendFooter();
+
+        return mBuilder.toString();
+    }
+
+
+
+
+    private void appendFieldMapping(PropertyField field, String key) {
+        final String fieldAccess = ("object." + field.getName());
+
+        if((field.getType() == PropertyField.TYPE_STRINGIFIABLE) || (field.getType() == PropertyField.TYPE_STREAMABLE)) {
+            line("        if(" + fieldAccess + " != null) {");
+            line("            sharedPreferencesManager.put(" + key + ", " + stringify(fieldAccess, (field.getType() == PropertyField.TYPE_STREAMABLE)) + ");");
+            line("        }");
+        } else if(field.getType() == PropertyField.TYPE_LAZY) {
+            final String stringifiedProperty = (field.getName() + "String");
+
+            // the values that were never accessed are put back as is, without being re-stringified
+            line("        final String " + stringifiedProperty + " = ((" + fieldAccess + " != null) ? " + fieldAccess + ".stringify() : null);");
+            line("");
+            line("        if(" + stringifiedProperty + " != null) {");
+            line("            sharedPreferencesManager.put(" + key + ", " + stringifiedProperty + ");");
+            line("        }");
+        } else if(field.isBoxed()) {
+            // the null values of the wrapper fields are denoted by the absence of the preference
+            line("        if(" + fieldAccess + " != null) {");
+            line("            sharedPreferencesManager.put(" + key + ", " + fieldAccess + ");");
+            line("        } else {");
+            line("            sharedPreferencesManager.remove(" + key + ");");
+            line("        }");
+        } else {
+            line("        sharedPreferencesManager.put(" + key + ", " + fieldAccess + ");");
+        }
+    }
+
+
+
+
+    private void appendFieldRecovery(PropertyField field, String key) {
+        final String fieldAccess = ("object." + field.getName());
+        final String defaultValue = field.getDefaultValueExpression();
+
+        switch(field.getType()) {
+
+            case PropertyField.TYPE_BOOLEAN:
+                line("        " + fieldAccess + " = sharedPreferencesManager.getBoolean(" + key + ", " + defaultValue + ");");
+                break;
+
+            case PropertyField.TYPE_INTEGER:
+                line("        " + fieldAccess + " = sharedPreferencesManager.getInt(" + key + ", " + defaultValue + ");");
+                break;
+
+            case PropertyField.TYPE_LONG:
+                line("        " + fieldAccess + " = sharedPreferencesManager.getLong(" + key + ", " + defaultValue + ");");
+                break;
+
+            case PropertyField.TYPE_FLOAT:
+                line("        " + fieldAccess + " = sharedPreferencesManager.getFloat(" + key + ", " + defaultValue + ");");
+                break;
+
+            case PropertyField.TYPE_STRING:
+                line("        " + fieldAccess + " = sharedPreferencesManager.getString(" + key + ", " + defaultValue + ");");
+                break;
+
+            case PropertyField.TYPE_STRINGIFIABLE:
+            case PropertyField.TYPE_STREAMABLE:
+                final boolean isStreamable = (field.getType() == PropertyField.TYPE_STREAMABLE);
+                final String stringifiedProperty = (field.getName() + "String");
+                final String defaultInstance = ((field.getDefaultInstanceTypeName() != null) ? ("new " + field.getDefaultInstanceTypeName() + "()") : "null");
+
+                line("        final String " + stringifiedProperty + " = sharedPreferencesManager.getString(" + key + ", \"\");");
+                line("");
+
+                if(field.hasDefaultInstance()) {
+                    line("        if(" + TEXT_UTILS + ".isEmpty(" + stringifiedProperty + ")) {");
+                    line("            " + fieldAccess + " = " + defaultInstance + ";");
+                    line("        } else {");
+                    line("            " + fieldAccess + " = new " + field.getTypeName() + "();");
+                    line("            " + recover(fieldAccess, stringifiedProperty, isStreamable) + ";");
+                    line("        }");
+                } else {
+                    line("        " + fieldAccess + " = new " + field.getTypeName() + "();");
+                    line("        " + recover(fieldAccess, stringifiedProperty, isStreamable) + ";");
+                }
+
+                break;
+
+            case PropertyField.TYPE_LAZY:
+                final String defaultInstanceClass = (field.hasDefaultInstance()
+                    ? (((field.getDefaultInstanceTypeName() != null) ? field.getDefaultInstanceTypeName() : "void") + ".class")
+                    : "null");
+
+                // the stringified form is read upon the first access to the property, not upon the recovery
+                line("        " + fieldAccess + " = " + LAZY_PROPERTY + ".fromPreferences(");
+                line("            sharedPreferencesManager,");
+                line("            " + key + ",");
+                line("            " + field.getTypeName() + ".class,");
+                line("            " + defaultInstanceClass);
+                line("        );");
+                break;
+
+        }
+
+        line("");
+    }
+
+
+
+
+    private static String stringify(String objectAccess, boolean isStreamable) {
+        return (isStreamable ? (PROPERTY_STREAMS + ".stringify(" + objectAccess + ")") : (objectAccess + ".stringify()"));
+    }
+
+
+
+
+    private static String recover(String objectAccess, String stringifiedObject, boolean isStreamable) {
+        return (isStreamable
+            ? (PROPERTY_STREAMS + ".recover(" + objectAccess + ", " + stringifiedObject + ")")
+            : (objectAccess + ".fromString(" + stringifiedObject + ")"));
+    }
+
+
+
+
+    private void appendHeader(String packageName, String mapperName, String objectTypeName) {
+        line("// Generated by the sharedpreferenceshandler-compiler. Do not modify!");
+
+        if(!packageName.isEmpty()) {
+            line("package " + packageName + ";");
+        }
+
+        line("");
+        line("public final class " + mapperName + " implements " + MAPPER + "<" + objectTypeName + "> {");
+        line("");
+        line("");
+    }
+
+
+
+
+    private void appendFooter() {
+        line("");
+        line("");
+        line("");
+        line("");
+        line("}");
+    }
+
+
+
+
+    private void line(String line) {
+        mBuilder.append(line).append('\n');
+    }
+
+
+
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.compiler;
+
+/**
+ *  A compile-time description of a single field marked as Property.
+ *
+ *  @author arthur3486
+ */
+
+final class PropertyField {
+
+
+    static final int TYPE_BOOLEAN = 1;
+    static final int TYPE_INTEGER = 2;
+    static final int TYPE_LONG = 3;
+    static final int TYPE_FLOAT = 4;
+    static final int TYPE_STRING = 5;
+    static final int TYPE_STRINGIFIABLE = 6;
+    static final int TYPE_LAZY = 7;
+    static final int TYPE_STREAMABLE = 8;
+
+
+    private final String mName;
+    private final String mKey;
+    private final int mType;
+    private final String mDefaultValueExpression;
+    private final String mTypeName;
+    private final boolean mHasDefaultInstance;
+    private final String mDefaultInstanceTypeName;
+    private final boolean mIsBoxed;
+
+
+
+
+    PropertyField(String name,
+                  String key,
+                  int type,
+                  String defaultValueExpression,
+                  String typeName,
+                  boolean hasDefaultInstance,
+                  String defaultInstanceTypeName,
+                  boolean isBoxed) {
+        mName = name;
+        mKey = key;
+        mType = type;
+        mDefaultValueExpression = defaultValueExpression;
+        mTypeName = typeName;
+        mHasDefaultInstance = hasDefaultInstance;
+        mDefaultInstanceTypeName = defaultInstanceTypeName;
+        mIsBoxed = isBoxed;
+    }
+
+
+
+
+    String getName() {
+        return mName;
+    }
+
+
+
+
+    String getKey() {
+        return mKey;
+    }
+
+
+
+
+    int getType() {
+        return mType;
+    }
+
+
+
+
+    /**
+     * @return the default value of the field represented in a form of a Java expression
+     */
+    String getDefaultValueExpression() {
+        return mDefaultValueExpression;
+    }
+
+
+
+
+    /**
+     * @return the canonical name of the type of the field (or of the value type for the LazyProperty fields)
+     */
+    String getTypeName() {
+        return mTypeName;
+    }
+
+
+
+
+    /**
+     * @return whether the field is annotated with the DefaultInstance annotation
+     */
+    boolean hasDefaultInstance() {
+        return mHasDefaultInstance;
+    }
+
+
+
+
+    /**
+     * @return the canonical name of the default instance class, or null if the default instance is null
+     */
+    String getDefaultInstanceTypeName() {
+        return mDefaultInstanceTypeName;
+    }
+
+
+
+
+    /**
+     * @return whether the field is of a wrapper type (e.g. Integer), the value of which may be null
+     */
+    boolean isBoxed() {
+        return mIsBoxed;
+    }
+
+
+
+
+}
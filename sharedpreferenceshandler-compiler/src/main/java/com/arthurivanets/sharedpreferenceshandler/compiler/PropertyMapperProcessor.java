@@ -0,0 +1,548 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ *  An annotation processor which generates a {@code Mapper} for each of the classes that make use of the
+ *  {@code Property} annotation, so that the objects of such classes can be mapped to (and recovered from) the
+ *  preferences without the use of reflection.
+ *
+ *  <p>The mapper is generated only if the generated code is able to access all the Property fields directly
+ *  (the fields must not be private or final) and instantiate the class via its no-arg constructor. For all the other
+ *  classes the reflection-based mapping is used.</p>
+ *
+ *  @author arthur3486
+ */
+
+public final class PropertyMapperProcessor extends AbstractProcessor {
+
+
+    private static final String ANNOTATIONS_PACKAGE = "com.arthurivanets.sharedpreferenceshandler.annotations";
+    private static final String PROPERTY = (ANNOTATIONS_PACKAGE + ".Property");
+    private static final String DEFAULT_BOOLEAN = (ANNOTATIONS_PACKAGE + ".DefaultBoolean");
+    private static final String DEFAULT_INT = (ANNOTATIONS_PACKAGE + ".DefaultInt");
+    private static final String DEFAULT_LONG = (ANNOTATIONS_PACKAGE + ".DefaultLong");
+    private static final String DEFAULT_FLOAT = (ANNOTATIONS_PACKAGE + ".DefaultFloat");
+    private static final String DEFAULT_STRING = (ANNOTATIONS_PACKAGE + ".DefaultString");
+    private static final String DEFAULT_INSTANCE = (ANNOTATIONS_PACKAGE + ".DefaultInstance");
+    private static final String STRINGIFIABLE_PROPERTY = "com.arthurivanets.sharedpreferenceshandler.util.StringifiableProperty";
+    private static final String STREAMABLE_PROPERTY = "com.arthurivanets.sharedpreferenceshandler.util.StreamableProperty";
+    private static final String LAZY_PROPERTY = "com.arthurivanets.sharedpreferenceshandler.util.LazyProperty";
+
+    private static final String GENERATED_CLASS_SUFFIX = "_PropertyMapper";
+
+
+    private Elements mElements;
+    private Types mTypes;
+    private Messager mMessager;
+
+
+
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnvironment) {
+        super.init(processingEnvironment);
+
+        mElements = processingEnvironment.getElementUtils();
+        mTypes = processingEnvironment.getTypeUtils();
+        mMessager = processingEnvironment.getMessager();
+    }
+
+
+
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(PROPERTY);
+    }
+
+
+
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+
+
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+        final TypeElement propertyAnnotation = mElements.getTypeElement(PROPERTY);
+
+        if(propertyAnnotation == null) {
+            return false;
+        }
+
+        final Set<TypeElement> mappedClasses = new LinkedHashSet<>();
+
+        for(Element element : roundEnvironment.getElementsAnnotatedWith(propertyAnnotation)) {
+            if(element.getKind() == ElementKind.FIELD) {
+                mappedClasses.add((TypeElement) element.getEnclosingElement());
+            } else if(element.getKind() == ElementKind.CLASS) {
+                mappedClasses.add((TypeElement) element);
+            }
+        }
+
+        for(TypeElement mappedClass : mappedClasses) {
+            try {
+                processClass(mappedClass);
+            } catch(IOException e) {
+                mMessager.printMessage(Diagnostic.Kind.ERROR, ("Could not generate the mapper: " + e.getMessage()), mappedClass);
+            }
+        }
+
+        return false;
+    }
+
+
+
+
+    private void processClass(TypeElement mappedClass) throws IOException {
+        final PackageElement packageElement = mElements.getPackageOf(mappedClass);
+        final String packageName = packageElement.getQualifiedName().toString();
+        final String binaryName = mElements.getBinaryName(mappedClass).toString();
+        final String objectTypeName = mappedClass.getQualifiedName().toString();
+        final String mapperName = (binaryName.substring(packageName.isEmpty() ? 0 : (packageName.length() + 1)).replace('$', '_') + GENERATED_CLASS_SUFFIX);
+
+        final String unsupportedReason = checkClassSupport(mappedClass, packageElement);
+
+        if(unsupportedReason != null) {
+            skip(mappedClass, unsupportedReason);
+            return;
+        }
+
+        final String source;
+
+        // the whole object is to be mapped to a single key
+        if((getAnnotation(mappedClass, PROPERTY) != null) && (isStringifiable(mappedClass.asType()) || isStreamable(mappedClass.asType()))) {
+            final String propertyName = getStringValue(mappedClass, PROPERTY, binaryName);
+
+            source = new MapperGenerator().generateStringifiableMapper(
+                packageName,
+                mapperName,
+                objectTypeName,
+                mElements.getConstantExpression(composePropertyName(binaryName, propertyName)),
+                isStreamable(mappedClass.asType())
+            );
+        } else {
+            final List<PropertyField> fields = new ArrayList<>();
+            final List<String> keyLiterals = new ArrayList<>();
+
+            for(VariableElement field : ElementFilter.fieldsIn(mappedClass.getEnclosedElements())) {
+                if(getAnnotation(field, PROPERTY) == null) {
+                    continue;
+                }
+
+                final String fieldUnsupportedReason = checkFieldSupport(field, packageElement);
+
+                if(fieldUnsupportedReason != null) {
+                    skip(mappedClass, (field.getSimpleName() + " - " + fieldUnsupportedReason));
+                    return;
+                }
+
+                final PropertyField propertyField = createPropertyField(field, binaryName);
+
+                fields.add(propertyField);
+                keyLiterals.add(mElements.getConstantExpression(propertyField.getKey()));
+            }
+
+            source = new MapperGenerator().generateFieldMapper(
+                packageName,
+                mapperName,
+                objectTypeName,
+                fields,
+                keyLiterals
+            );
+        }
+
+        final String mapperQualifiedName = (packageName.isEmpty() ? mapperName : (packageName + "." + mapperName));
+        final JavaFileObject sourceFile = processingEnv.getFiler().createSourceFile(mapperQualifiedName, mappedClass);
+        final Writer writer = sourceFile.openWriter();
+
+        try {
+            writer.write(source);
+        } finally {
+            writer.close();
+        }
+    }
+
+
+
+
+    private PropertyField createPropertyField(VariableElement field, String binaryName) {
+        final String fieldName = field.getSimpleName().toString();
+        final String key = composePropertyName(binaryName, getStringValue(field, PROPERTY, fieldName));
+        final TypeMirror fieldType = field.asType();
+        final int type = detectType(fieldType);
+        final boolean isBoxed = !fieldType.getKind().isPrimitive();
+
+        switch(type) {
+
+            case PropertyField.TYPE_BOOLEAN:
+                return new PropertyField(fieldName, key, type, String.valueOf(getValue(field, DEFAULT_BOOLEAN, false)), null, false, null, isBoxed);
+
+            case PropertyField.TYPE_INTEGER:
+                return new PropertyField(fieldName, key, type, mElements.getConstantExpression(getValue(field, DEFAULT_INT, 0)), null, false, null, isBoxed);
+
+            case PropertyField.TYPE_LONG:
+                return new PropertyField(fieldName, key, type, mElements.getConstantExpression(getValue(field, DEFAULT_LONG, 0L)), null, false, null, isBoxed);
+
+            case PropertyField.TYPE_FLOAT:
+                return new PropertyField(fieldName, key, type, mElements.getConstantExpression(getValue(field, DEFAULT_FLOAT, 0f)), null, false, null, isBoxed);
+
+            case PropertyField.TYPE_STRING:
+                return new PropertyField(fieldName, key, type, mElements.getConstantExpression(getValue(field, DEFAULT_STRING, "")), null, false, null, false);
+
+            default:
+                final TypeMirror defaultInstanceType = getDefaultInstanceType(field);
+                final boolean hasDefaultInstance = (getAnnotation(field, DEFAULT_INSTANCE) != null);
+                final TypeMirror valueType = ((type == PropertyField.TYPE_LAZY) ? getLazyValueType(fieldType) : fieldType);
+
+                return new PropertyField(
+                    fieldName,
+                    key,
+                    type,
+                    null,
+                    getCanonicalName(valueType),
+                    hasDefaultInstance,
+                    ((defaultInstanceType != null) ? getCanonicalName(defaultInstanceType) : null),
+                    false
+                );
+
+        }
+    }
+
+
+
+
+    private String checkClassSupport(TypeElement mappedClass, PackageElement packageElement) {
+        if(!mappedClass.getTypeParameters().isEmpty()) {
+            return "generic classes are not supported";
+        }
+
+        if(!isInstantiableFrom(mappedClass, packageElement)) {
+            return "the class must be a non-private, non-abstract, static (if nested) class with a non-private no-arg constructor";
+        }
+
+        return null;
+    }
+
+
+
+
+    private String checkFieldSupport(VariableElement field, PackageElement packageElement) {
+        final Set<Modifier> modifiers = field.getModifiers();
+
+        if(modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.STATIC)) {
+            return "the Property fields must not be private, final or static";
+        }
+
+        if(isMappedReflectively(field.asType())) {
+            return "the array, collection and nested Property fields are mapped via the reflection only";
+        }
+
+        final int type = detectType(field.asType());
+
+        if((type != PropertyField.TYPE_STRINGIFIABLE) && (type != PropertyField.TYPE_STREAMABLE) && (type != PropertyField.TYPE_LAZY)) {
+            return null;
+        }
+
+        final TypeMirror valueType = ((type == PropertyField.TYPE_LAZY) ? getLazyValueType(field.asType()) : field.asType());
+        final TypeElement valueElement = ((valueType != null) ? asTypeElement(valueType) : null);
+
+        // the StreamableProperty fields are already detected as such
+        final boolean isValueTypeSupported = ((type == PropertyField.TYPE_STREAMABLE) || ((valueType != null) && isStringifiable(valueType)));
+
+        if((valueElement == null) || !isValueTypeSupported || !isInstantiableFrom(valueElement, packageElement)) {
+            return ((type == PropertyField.TYPE_LAZY)
+                ? "the type argument of the LazyProperty must be an instantiable StringifiableProperty"
+                : "the type of the field must be an instantiable StringifiableProperty (or StreamableProperty)");
+        }
+
+        final TypeMirror defaultInstanceType = getDefaultInstanceType(field);
+        final TypeElement defaultInstanceElement = ((defaultInstanceType != null) ? asTypeElement(defaultInstanceType) : null);
+
+        if((defaultInstanceType != null)
+            && ((defaultInstanceElement == null)
+            || !isInstantiableFrom(defaultInstanceElement, packageElement)
+            || !mTypes.isAssignable(defaultInstanceType, mTypes.erasure(valueType)))) {
+            return "the DefaultInstance must be an instantiable subtype of the field type";
+        }
+
+        return null;
+    }
+
+
+
+
+    private boolean isInstantiableFrom(TypeElement typeElement, PackageElement packageElement) {
+        if((typeElement.getKind() != ElementKind.CLASS) || typeElement.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+
+        final boolean isSamePackage = mElements.getPackageOf(typeElement).equals(packageElement);
+
+        // the whole chain of the enclosing classes must be accessible
+        for(Element element = typeElement; (element instanceof TypeElement); element = element.getEnclosingElement()) {
+            final TypeElement type = (TypeElement) element;
+
+            if(!isAccessible(type.getModifiers(), isSamePackage)) {
+                return false;
+            }
+
+            if((type.getNestingKind() == NestingKind.MEMBER) && !type.getModifiers().contains(Modifier.STATIC)) {
+                return false;
+            }
+
+            if((type.getNestingKind() == NestingKind.LOCAL) || (type.getNestingKind() == NestingKind.ANONYMOUS)) {
+                return false;
+            }
+        }
+
+        final List<ExecutableElement> constructors = ElementFilter.constructorsIn(typeElement.getEnclosedElements());
+
+        for(ExecutableElement constructor : constructors) {
+            if(constructor.getParameters().isEmpty()) {
+                return isAccessible(constructor.getModifiers(), isSamePackage);
+            }
+        }
+
+        return false;
+    }
+
+
+
+
+    private boolean isAccessible(Set<Modifier> modifiers, boolean isSamePackage) {
+        return (isSamePackage ? !modifiers.contains(Modifier.PRIVATE) : modifiers.contains(Modifier.PUBLIC));
+    }
+
+
+
+
+    private int detectType(TypeMirror type) {
+        switch(type.getKind()) {
+            case BOOLEAN: return PropertyField.TYPE_BOOLEAN;
+            case INT: return PropertyField.TYPE_INTEGER;
+            case LONG: return PropertyField.TYPE_LONG;
+            case FLOAT: return PropertyField.TYPE_FLOAT;
+        }
+
+        final TypeElement typeElement = asTypeElement(type);
+        final String typeName = ((typeElement != null) ? typeElement.getQualifiedName().toString() : "");
+
+        switch(typeName) {
+            case "java.lang.Boolean": return PropertyField.TYPE_BOOLEAN;
+            case "java.lang.Integer": return PropertyField.TYPE_INTEGER;
+            case "java.lang.Long": return PropertyField.TYPE_LONG;
+            case "java.lang.Float": return PropertyField.TYPE_FLOAT;
+            case "java.lang.String": return PropertyField.TYPE_STRING;
+            case LAZY_PROPERTY: return PropertyField.TYPE_LAZY;
+            default: return (isStreamable(type) ? PropertyField.TYPE_STREAMABLE : PropertyField.TYPE_STRINGIFIABLE);
+        }
+    }
+
+
+
+
+    private boolean isMappedReflectively(TypeMirror type) {
+        if(type.getKind() == TypeKind.ARRAY) {
+            return true;
+        }
+
+        final TypeElement collection = mElements.getTypeElement("java.util.Collection");
+
+        if((collection != null) && mTypes.isAssignable(mTypes.erasure(type), mTypes.erasure(collection.asType()))) {
+            return true;
+        }
+
+        final TypeElement typeElement = asTypeElement(type);
+
+        if((typeElement == null) || isStringifiable(type) || isStreamable(type)) {
+            return false;
+        }
+
+        // the objects with the Property fields of their own are flattened into the enclosing ones
+        for(Element member : typeElement.getEnclosedElements()) {
+            if((member.getKind() == ElementKind.FIELD) && (getAnnotation(member, PROPERTY) != null)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+
+
+    private boolean isStringifiable(TypeMirror type) {
+        final TypeElement stringifiableProperty = mElements.getTypeElement(STRINGIFIABLE_PROPERTY);
+
+        return ((stringifiableProperty != null) && mTypes.isAssignable(mTypes.erasure(type), stringifiableProperty.asType()));
+    }
+
+
+
+
+    private boolean isStreamable(TypeMirror type) {
+        final TypeElement streamableProperty = mElements.getTypeElement(STREAMABLE_PROPERTY);
+
+        return ((streamableProperty != null) && mTypes.isAssignable(mTypes.erasure(type), streamableProperty.asType()));
+    }
+
+
+
+
+    private TypeMirror getLazyValueType(TypeMirror lazyPropertyType) {
+        if(lazyPropertyType.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        final List<? extends TypeMirror> typeArguments = ((DeclaredType) lazyPropertyType).getTypeArguments();
+
+        return ((typeArguments.size() == 1) ? typeArguments.get(0) : null);
+    }
+
+
+
+
+    private TypeMirror getDefaultInstanceType(VariableElement field) {
+        final Object value = getValue(field, DEFAULT_INSTANCE, null);
+
+        if(!(value instanceof TypeMirror) || (((TypeMirror) value).getKind() == TypeKind.VOID)) {
+            return null;
+        }
+
+        return (TypeMirror) value;
+    }
+
+
+
+
+    private TypeElement asTypeElement(TypeMirror type) {
+        return ((type.getKind() == TypeKind.DECLARED) ? (TypeElement) ((DeclaredType) type).asElement() : null);
+    }
+
+
+
+
+    private String getCanonicalName(TypeMirror type) {
+        return asTypeElement(type).getQualifiedName().toString();
+    }
+
+
+
+
+    private AnnotationMirror getAnnotation(Element element, String annotationName) {
+        for(AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            final TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+
+            if(annotationType.getQualifiedName().contentEquals(annotationName)) {
+                return annotation;
+            }
+        }
+
+        return null;
+    }
+
+
+
+
+    @SuppressWarnings("unchecked")
+    private <T> T getValue(Element element, String annotationName, T defaultValue) {
+        final AnnotationMirror annotation = getAnnotation(element, annotationName);
+
+        if(annotation == null) {
+            return defaultValue;
+        }
+
+        final Map<? extends ExecutableElement, ? extends AnnotationValue> values = mElements.getElementValuesWithDefaults(annotation);
+
+        for(Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+            if(entry.getKey().getSimpleName().contentEquals("value")) {
+                return (T) entry.getValue().getValue();
+            }
+        }
+
+        return defaultValue;
+    }
+
+
+
+
+    private String getStringValue(Element element, String annotationName, String fallbackValue) {
+        final String value = getValue(element, annotationName, "");
+        return (value.isEmpty() ? fallbackValue : value);
+    }
+
+
+
+
+    private static String composePropertyName(String className, String propertyName) {
+        return (className + "." + propertyName);
+    }
+
+
+
+
+    private void skip(TypeElement mappedClass, String reason) {
+        mMessager.printMessage(
+            Diagnostic.Kind.NOTE,
+            ("No mapper generated for " + mappedClass.getQualifiedName() + " (the reflection-based mapping will be used instead): " + reason),
+            mappedClass
+        );
+    }
+
+
+
+
+}
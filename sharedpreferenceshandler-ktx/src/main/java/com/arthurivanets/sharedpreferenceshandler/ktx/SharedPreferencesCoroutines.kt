@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.ktx
+
+import com.arthurivanets.sharedpreferenceshandler.OnPreferencesChangeListener
+import com.arthurivanets.sharedpreferenceshandler.PreferenceKeyFilter
+import com.arthurivanets.sharedpreferenceshandler.SharedPreferencesManager
+import com.arthurivanets.sharedpreferenceshandler.SharedPreferencesTransaction
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.buffer
+import kotlinx.coroutines.flow.callbackFlow
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.withContext
+import java.util.concurrent.Executor
+
+
+/**
+ *  Delivers the change notifications right on the notifying thread; the listeners
+ *  only hand the notifications over to the channels, so the writers are never blocked.
+ */
+private val DIRECT_EXECUTOR = Executor { it.run() }
+
+
+/**
+ *  Commits (Writes) the not yet committed (written) preferences to the appropriate preferences file
+ *  on the [Dispatchers.IO], suspending (rather than blocking) the caller until the write is complete.
+ */
+suspend fun SharedPreferencesManager.commitSuspending() {
+    withContext(Dispatchers.IO) {
+        this@commitSuspending.commit()
+    }
+}
+
+
+/**
+ *  Completes the current SharedPreferencesTransaction by writing all of its changes into the corresponding file
+ *  on the [Dispatchers.IO], suspending (rather than blocking) the caller until the write is complete.
+ *
+ *  @return true if the changes were successfully written, false otherwise
+ */
+suspend fun SharedPreferencesTransaction.commitSuspending() : Boolean {
+    return withContext(Dispatchers.IO) {
+        this@commitSuspending.commit()
+    }
+}
+
+
+/**
+ *  Recovers a preferences Object of the specified Class on the [Dispatchers.IO]
+ *  (the first access to the preferences file may involve the disk reads).
+ *
+ *  @param objectClass the class object of which to be recovered from the shared preferences
+ *  @return the recovered Object
+ */
+suspend fun <T : Any> SharedPreferencesManager.getSuspending(objectClass : Class<T>) : T? {
+    return withContext(Dispatchers.IO) {
+        this@getSuspending.get(objectClass)
+    }
+}
+
+
+/**
+ *  Recovers a preferences Object of the type T on the [Dispatchers.IO].
+ *  (see [getSuspending])
+ *
+ *  @return the recovered Object
+ */
+suspend inline fun <reified T : Any> SharedPreferencesManager.getSuspending() : T? {
+    return this.getSuspending(T::class.java)
+}
+
+
+/**
+ *  Observes the changes of the preferences the keys of which match the specified filter.
+ *  Each emission holds the keys changed by a commit (apply), or by all the commits (applies)
+ *  that happened within the batch window (the window starts upon the first change and is not extended by the subsequent ones,
+ *  so the emissions are throttled rather than debounced).
+ *
+ *  @param filter the filter of the keys to be observed
+ *  @param batchWindow the batch window (in milliseconds), or 0 to emit every commit (apply) separately
+ *  @return the Flow of the changed keys
+ */
+@ExperimentalCoroutinesApi
+fun SharedPreferencesManager.observeChanges(filter : PreferenceKeyFilter, batchWindow : Long = 0L) : Flow<Set<String>> {
+    return callbackFlow<Set<String>> {
+        val subscription = this@observeChanges.subscribe(filter, DIRECT_EXECUTOR, batchWindow, OnPreferencesChangeListener { keys ->
+            offer(keys)
+        })
+
+        awaitClose { subscription.unsubscribe() }
+    }.buffer(Channel.UNLIMITED)
+}
+
+
+/**
+ *  Observes the value associated with the specified key. The current value is emitted right away,
+ *  and then the value is re-read (on the [Dispatchers.IO]) and emitted upon each of its changes;
+ *  the changes that happen faster than they are consumed are conflated.
+ *
+ *  Example: <strong>manager.observe("counter") { getInt(it, 0) }</strong>
+ *
+ *  @param key the key of the preference to be observed
+ *  @param batchWindow the batch window (in milliseconds), or 0 to emit upon every commit (apply) (see [observeChanges])
+ *  @param read reads the value associated with the key
+ *  @return the Flow of the values
+ */
+@ExperimentalCoroutinesApi
+fun <T> SharedPreferencesManager.observe(key : String,
+                                         batchWindow : Long = 0L,
+                                         read : SharedPreferencesManager.(String) -> T) : Flow<T> {
+    return this.observeInvalidations(PreferenceKeyFilter.forKeys(key), batchWindow)
+        .map { this.read(key) }
+        .flowOn(Dispatchers.IO)
+}
+
+
+/**
+ *  Observes the preferences Object of the specified Class. The current Object is emitted right away,
+ *  and then the Object is recovered (on the [Dispatchers.IO]) and emitted upon each change of its properties;
+ *  the changes that happen faster than they are consumed are conflated.
+ *
+ *  @param objectClass the class object of which to be observed
+ *  @param batchWindow the batch window (in milliseconds), or 0 to emit upon every commit (apply) (see [observeChanges])
+ *  @return the Flow of the recovered Objects
+ */
+@ExperimentalCoroutinesApi
+fun <T : Any> SharedPreferencesManager.observe(objectClass : Class<T>, batchWindow : Long = 0L) : Flow<T?> {
+    return this.observeInvalidations(PreferenceKeyFilter.forClass(objectClass), batchWindow)
+        .map { this.get(objectClass) }
+        .flowOn(Dispatchers.IO)
+}
+
+
+/**
+ *  Observes the preferences Object of the type T.
+ *  (see [observe])
+ *
+ *  @param batchWindow the batch window (in milliseconds), or 0 to emit upon every commit (apply) (see [observeChanges])
+ *  @return the Flow of the recovered Objects
+ */
+@ExperimentalCoroutinesApi
+inline fun <reified T : Any> SharedPreferencesManager.observe(batchWindow : Long = 0L) : Flow<T?> {
+    return this.observe(T::class.java, batchWindow)
+}
+
+
+/**
+ *  Emits right away and then upon each change of the preferences matching the specified filter,
+ *  conflating the emissions that are not consumed yet (only the fact of a change matters to the value observers).
+ *  The subscription is made before the initial emission, so that no change could slip in unnoticed.
+ */
+@ExperimentalCoroutinesApi
+private fun SharedPreferencesManager.observeInvalidations(filter : PreferenceKeyFilter, batchWindow : Long) : Flow<Unit> {
+    return callbackFlow<Unit> {
+        val subscription = this@observeInvalidations.subscribe(filter, DIRECT_EXECUTOR, batchWindow, OnPreferencesChangeListener {
+            offer(Unit)
+        })
+
+        offer(Unit)
+
+        awaitClose { subscription.unsubscribe() }
+    }.buffer(Channel.CONFLATED)
+}
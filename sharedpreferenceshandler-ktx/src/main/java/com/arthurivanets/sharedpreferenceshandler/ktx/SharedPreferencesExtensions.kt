@@ -19,6 +19,7 @@ package com.arthurivanets.sharedpreferenceshandler.ktx
 import android.content.Context
 import com.arthurivanets.sharedpreferenceshandler.SharedPreferencesManager
 import com.arthurivanets.sharedpreferenceshandler.SharedPreferencesManagerProvider
+import com.arthurivanets.sharedpreferenceshandler.SharedPreferencesTransaction
 
 
 /**
@@ -29,19 +30,17 @@ import com.arthurivanets.sharedpreferenceshandler.SharedPreferencesManagerProvid
  *  @param pairs an array of key-value pairs to be put into the corresponding SharedPreferences instance.
  */
 fun SharedPreferencesManager.putAll(vararg pairs : Pair<String, Any>) : SharedPreferencesManager {
+    val values = HashMap<String, Any>(pairs.size)
+
     for(pair in pairs) {
         when(pair.second) {
-            is Boolean -> this.put(pair.first, (pair.second as Boolean))
-            is Float -> this.put(pair.first, (pair.second as Float))
-            is Int -> this.put(pair.first, (pair.second as Int))
-            is Long -> this.put(pair.first, (pair.second as Long))
-            is String -> this.put(pair.first, (pair.second as String))
-            is Set<*> -> this.put(pair.first, (pair.second as Set<String>))
+            is Boolean, is Float, is Int, is Long, is String, is Set<*> -> values[pair.first] = pair.second
             else -> this.put(pair.second)
         }
     }
 
-    return this
+    // putting all the plain values in a single pass
+    return this.putAll(values)
 }
 
 
@@ -69,6 +68,25 @@ fun SharedPreferencesManager.putAllAndApply(vararg pairs : Pair<String, Any>) {
 }
 
 
+/**
+ *  Performs the specified changes within an isolated SharedPreferencesTransaction, which is then
+ *  completed by writing all of its changes into the corresponding file at once.
+ *
+ *  @param commit whether the changes are to be written synchronously (commit) or asynchronously (apply)
+ *  @param action the changes to be performed within the transaction
+ */
+inline fun SharedPreferencesManager.edit(commit : Boolean = false, action : SharedPreferencesTransaction.() -> Unit) {
+    val transaction = this.edit()
+    transaction.action()
+
+    if(commit) {
+        transaction.commit()
+    } else {
+        transaction.apply()
+    }
+}
+
+
 /**
  *  Retrieves the existing or creates a brand-new instance of SharedPreferencesManager, that is to be
  *  used for interaction with the specified shared preferences file.
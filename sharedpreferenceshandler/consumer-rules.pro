@@ -0,0 +1,36 @@
+# The compile-time generated mappers are looked up by their names (see Mappers).
+-keep class * implements com.arthurivanets.sharedpreferenceshandler.util.Mapper {
+    <init>();
+}
+-keep class **_PropertyMapper {
+    <init>();
+}
+
+# The names of the mapped classes are a part of the preference keys, as well as of the names of their generated mappers.
+-keepnames @com.arthurivanets.sharedpreferenceshandler.annotations.Property class *
+-keepclasseswithmembernames class * {
+    @com.arthurivanets.sharedpreferenceshandler.annotations.Property <fields>;
+}
+
+# The reflection-based mapping (used when there's no generated mapper) relies on the Property fields and no-arg constructors.
+-keepclassmembers class * {
+    @com.arthurivanets.sharedpreferenceshandler.annotations.Property <fields>;
+}
+-keepclassmembers @com.arthurivanets.sharedpreferenceshandler.annotations.Property class * {
+    <init>();
+}
+
+# The nested Property objects (the ones declaring the Property fields of their own) are instantiated reflectively upon the recovery.
+-keepclasseswithmembers class * {
+    @com.arthurivanets.sharedpreferenceshandler.annotations.Property <fields>;
+    <init>();
+}
+
+# The values of the LazyProperty fields are instantiated reflectively, based on the type arguments of the fields.
+-keepattributes Signature
+-keepclassmembers class * implements com.arthurivanets.sharedpreferenceshandler.util.StringifiableProperty {
+    <init>();
+}
+-keepclassmembers class * implements com.arthurivanets.sharedpreferenceshandler.util.StreamableProperty {
+    <init>();
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+import androidx.annotation.NonNull;
+
+/**
+ *  A handle of an asynchronous commit (see {@link SharedPreferencesManager#commitAsync()}), which completes with
+ *  the result of the write: {@link Boolean#TRUE} if the changes were successfully written, {@link Boolean#FALSE} if the
+ *  write has failed, or with an {@link java.util.concurrent.ExecutionException} if the write has thrown.
+ *
+ * @author arthur3486
+ */
+
+public interface CommitFuture extends Future<Boolean> {
+
+    /**
+     *  Adds a listener to be notified (on the specified executor) upon the completion of the commit.
+     *  The listener added after the completion is notified right away.
+     *
+     * @param executor the executor to notify the listener on
+     * @param listener the listener to be notified
+     */
+    void addListener(@NonNull Executor executor, @NonNull OnCommitCompleteListener listener);
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.util.Preconditions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import androidx.annotation.NonNull;
+
+/**
+ *  A {@link FutureTask} based implementation of the {@link CommitFuture}, which notifies the listeners upon its completion.
+ *
+ * @author arthur3486
+ */
+
+final class CommitTask extends FutureTask<Boolean> implements CommitFuture {
+
+
+    private final Object mLock;
+
+    /**
+     *  The listeners awaiting the completion (null once the task is complete).
+     */
+    private List<ListenerEntry> mListeners;
+
+
+
+
+    CommitTask(@NonNull Callable<Boolean> commit) {
+        super(commit);
+
+        mLock = new Object();
+        mListeners = new ArrayList<>(1);
+    }
+
+
+
+
+    @Override
+    public final void addListener(@NonNull Executor executor, @NonNull OnCommitCompleteListener listener) {
+        Preconditions.nonNull(executor);
+        Preconditions.nonNull(listener);
+
+        final ListenerEntry entry = new ListenerEntry(executor, listener);
+
+        synchronized(mLock) {
+            if(mListeners != null) {
+                mListeners.add(entry);
+                return;
+            }
+        }
+
+        // already complete
+        notifyListener(entry);
+    }
+
+
+
+
+    @Override
+    protected final void done() {
+        final List<ListenerEntry> listeners;
+
+        synchronized(mLock) {
+            listeners = mListeners;
+            mListeners = null;
+        }
+
+        for(ListenerEntry entry : listeners) {
+            notifyListener(entry);
+        }
+    }
+
+
+
+
+    private void notifyListener(final ListenerEntry entry) {
+        boolean isSuccessful = false;
+        Throwable error = null;
+
+        try {
+            isSuccessful = get();
+        } catch(ExecutionException e) {
+            error = e.getCause();
+        } catch(CancellationException e) {
+            error = e;
+        } catch(InterruptedException e) {
+            // cannot happen, as the task is already complete
+            Thread.currentThread().interrupt();
+            error = e;
+        }
+
+        final boolean result = isSuccessful;
+        final Throwable cause = error;
+
+        entry.mExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                entry.mListener.onCommitComplete(result, cause);
+            }
+
+        });
+    }
+
+
+
+
+    private static final class ListenerEntry {
+
+        private final Executor mExecutor;
+        private final OnCommitCompleteListener mListener;
+
+        ListenerEntry(Executor executor, OnCommitCompleteListener listener) {
+            mExecutor = executor;
+            mListener = listener;
+        }
+
+    }
+
+
+
+
+}
@@ -0,0 +1,385 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.store.PreferenceStore;
+import com.arthurivanets.sharedpreferenceshandler.util.Preconditions;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ *  A {@link PreferenceStore} decorator, which records the latencies of the operations of the decorated store
+ *  into the {@link PreferenceMetrics} (the first read is recorded as the {@link PreferenceMetrics.Operation#LOAD}),
+ *  and hands them over to the {@link MainThreadIoDetector} (if any).
+ *  <br>
+ *  The number of the preferences is recorded upon the reads of all the preferences, and is adjusted by the commits (applies)
+ *  according to the presence of the changed keys in the store prior to the write.
+ *
+ * @author arthur3486
+ */
+
+final class InstrumentedPreferenceStore implements PreferenceStore, PreferenceStore.FileBacked {
+
+
+    private final PreferenceStore mStore;
+    private final String mFileName;
+    private final PreferenceMetrics mMetrics;
+    private final MainThreadIoDetector mMainThreadIoDetector;
+    private final AtomicBoolean mIsLoaded;
+
+
+
+
+    InstrumentedPreferenceStore(@NonNull PreferenceStore store,
+                                @NonNull String fileName,
+                                @Nullable PreferenceMetrics metrics,
+                                @Nullable MainThreadIoDetector mainThreadIoDetector) {
+        Preconditions.nonNull(store);
+        Preconditions.nonEmpty(fileName);
+
+        mStore = store;
+        mFileName = fileName;
+        mMetrics = metrics;
+        mMainThreadIoDetector = mainThreadIoDetector;
+        mIsLoaded = new AtomicBoolean(false);
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public Map<String, ?> getAll() {
+        final long startTime = System.nanoTime();
+        final Map<String, ?> values = mStore.getAll();
+        recordRead(startTime);
+
+        if(mMetrics != null) {
+            mMetrics.recordKeyCount(values.size());
+        }
+
+        return values;
+    }
+
+
+
+
+    @Override
+    public boolean contains(@NonNull String key) {
+        final long startTime = System.nanoTime();
+        final boolean contains = mStore.contains(key);
+        recordRead(startTime);
+
+        return contains;
+    }
+
+
+
+
+    @Override
+    public boolean getBoolean(@NonNull String key, boolean defaultValue) {
+        final long startTime = System.nanoTime();
+        final boolean value = mStore.getBoolean(key, defaultValue);
+        recordRead(startTime);
+
+        return value;
+    }
+
+
+
+
+    @Override
+    public float getFloat(@NonNull String key, float defaultValue) {
+        final long startTime = System.nanoTime();
+        final float value = mStore.getFloat(key, defaultValue);
+        recordRead(startTime);
+
+        return value;
+    }
+
+
+
+
+    @Override
+    public int getInt(@NonNull String key, int defaultValue) {
+        final long startTime = System.nanoTime();
+        final int value = mStore.getInt(key, defaultValue);
+        recordRead(startTime);
+
+        return value;
+    }
+
+
+
+
+    @Override
+    public long getLong(@NonNull String key, long defaultValue) {
+        final long startTime = System.nanoTime();
+        final long value = mStore.getLong(key, defaultValue);
+        recordRead(startTime);
+
+        return value;
+    }
+
+
+
+
+    @Nullable
+    @Override
+    public String getString(@NonNull String key, @Nullable String defaultValue) {
+        final long startTime = System.nanoTime();
+        final String value = mStore.getString(key, defaultValue);
+        recordRead(startTime);
+
+        return value;
+    }
+
+
+
+
+    @Nullable
+    @Override
+    public Set<String> getStringSet(@NonNull String key, @Nullable Set<String> defaultValues) {
+        final long startTime = System.nanoTime();
+        final Set<String> values = mStore.getStringSet(key, defaultValues);
+        recordRead(startTime);
+
+        return values;
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public Editor edit() {
+        return new InstrumentedEditor(mStore.edit());
+    }
+
+
+
+
+    @Nullable
+    @Override
+    public File getFile() {
+        return ((mStore instanceof FileBacked) ? ((FileBacked) mStore).getFile() : null);
+    }
+
+
+
+
+    private void recordRead(long startTime) {
+        // the first read is the one that waits for the loading of the file
+        final boolean isLoad = (!mIsLoaded.get() && mIsLoaded.compareAndSet(false, true));
+
+        record((isLoad ? PreferenceMetrics.Operation.LOAD : PreferenceMetrics.Operation.READ), startTime);
+    }
+
+
+
+
+    private void record(PreferenceMetrics.Operation operation, long startTime) {
+        final long duration = (System.nanoTime() - startTime);
+
+        if(mMetrics != null) {
+            mMetrics.record(operation, duration);
+        }
+
+        if(mMainThreadIoDetector != null) {
+            mMainThreadIoDetector.onOperation(mFileName, operation, duration);
+        }
+    }
+
+
+
+
+    private final class InstrumentedEditor implements Editor {
+
+        private final Editor mEditor;
+
+        /**
+         * The keys put (true) or removed (false) since the last commit (apply), tracked only if the metrics are recorded.
+         */
+        private final Map<String, Boolean> mKeyChanges;
+
+        InstrumentedEditor(Editor editor) {
+            mEditor = editor;
+            mKeyChanges = new HashMap<>();
+        }
+
+        @NonNull
+        @Override
+        public Editor putBoolean(@NonNull String key, boolean value) {
+            final long startTime = System.nanoTime();
+            mEditor.putBoolean(key, value);
+            record(PreferenceMetrics.Operation.WRITE, startTime);
+            trackKeyChange(key, true);
+
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Editor putFloat(@NonNull String key, float value) {
+            final long startTime = System.nanoTime();
+            mEditor.putFloat(key, value);
+            record(PreferenceMetrics.Operation.WRITE, startTime);
+            trackKeyChange(key, true);
+
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Editor putInt(@NonNull String key, int value) {
+            final long startTime = System.nanoTime();
+            mEditor.putInt(key, value);
+            record(PreferenceMetrics.Operation.WRITE, startTime);
+            trackKeyChange(key, true);
+
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Editor putLong(@NonNull String key, long value) {
+            final long startTime = System.nanoTime();
+            mEditor.putLong(key, value);
+            record(PreferenceMetrics.Operation.WRITE, startTime);
+            trackKeyChange(key, true);
+
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Editor putString(@NonNull String key, @Nullable String value) {
+            final long startTime = System.nanoTime();
+            mEditor.putString(key, value);
+            record(PreferenceMetrics.Operation.WRITE, startTime);
+            trackKeyChange(key, (value != null));
+
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Editor putStringSet(@NonNull String key, @NonNull Set<String> values) {
+            final long startTime = System.nanoTime();
+            mEditor.putStringSet(key, values);
+            record(PreferenceMetrics.Operation.WRITE, startTime);
+            trackKeyChange(key, true);
+
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Editor remove(@NonNull String key) {
+            final long startTime = System.nanoTime();
+            mEditor.remove(key);
+            record(PreferenceMetrics.Operation.WRITE, startTime);
+            trackKeyChange(key, false);
+
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            final int keyCountChange = takeKeyCountChange();
+            final long startTime = System.nanoTime();
+            final boolean isCommitted = mEditor.commit();
+            record(PreferenceMetrics.Operation.COMMIT, startTime);
+
+            if(isCommitted && (mMetrics != null)) {
+                mMetrics.recordKeyCountChange(keyCountChange);
+            }
+
+            return isCommitted;
+        }
+
+        @Override
+        public void apply() {
+            final int keyCountChange = takeKeyCountChange();
+            final long startTime = System.nanoTime();
+            mEditor.apply();
+            record(PreferenceMetrics.Operation.APPLY, startTime);
+
+            if(mMetrics != null) {
+                mMetrics.recordKeyCountChange(keyCountChange);
+            }
+        }
+
+        private void trackKeyChange(String key, boolean isPut) {
+            if(mMetrics == null) {
+                return;
+            }
+
+            synchronized(mKeyChanges) {
+                mKeyChanges.put(key, isPut);
+            }
+        }
+
+        /**
+         * Takes the tracked key changes, computing the resulting change of the number of the preferences
+         * (which is to be done prior to the write, while the store still holds the old keys).
+         */
+        private int takeKeyCountChange() {
+            final Map<String, Boolean> keyChanges;
+
+            synchronized(mKeyChanges) {
+                if(mKeyChanges.isEmpty()) {
+                    return 0;
+                }
+
+                keyChanges = new HashMap<>(mKeyChanges);
+                mKeyChanges.clear();
+            }
+
+            // the lookups are pointless while the number of the preferences is not yet known
+            if(mMetrics.getKeyCount() < 0) {
+                return 0;
+            }
+
+            int keyCountChange = 0;
+
+            for(Map.Entry<String, Boolean> keyChange : keyChanges.entrySet()) {
+                final boolean isPresent = mStore.contains(keyChange.getKey());
+
+                if(keyChange.getValue() && !isPresent) {
+                    keyCountChange++;
+                } else if(!keyChange.getValue() && isPresent) {
+                    keyCountChange--;
+                }
+            }
+
+            return keyCountChange;
+        }
+
+    }
+
+
+
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.util.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import androidx.annotation.NonNull;
+
+/**
+ *  A lock-free histogram of the durations (in nanoseconds), which groups the recorded durations into the power-of-two buckets:
+ *  the bucket {@code i} holds the durations within the {@code [2^(i - 1), 2^i)} range (the bucket 0 holds the zero durations).
+ *  <br>
+ *  The recording is allocation-free and can be safely done from any thread, while the reads reflect the recordings
+ *  made so far (without being an atomic snapshot of the whole histogram).
+ *
+ * @author arthur3486
+ */
+
+public final class LatencyHistogram {
+
+
+    /**
+     * The number of the buckets of the histogram.
+     */
+    public static final int BUCKET_COUNT = 64;
+
+
+    private final AtomicLongArray mBuckets;
+    private final AtomicLong mTotalTime;
+
+
+
+
+    LatencyHistogram() {
+        mBuckets = new AtomicLongArray(BUCKET_COUNT);
+        mTotalTime = new AtomicLong();
+    }
+
+
+
+
+    /**
+     *  Records the specified duration.
+     *
+     * @param durationNanos the duration (in nanoseconds)
+     */
+    void record(long durationNanos) {
+        final long duration = Math.max(0L, durationNanos);
+
+        mBuckets.incrementAndGet(Math.min((BUCKET_COUNT - Long.numberOfLeadingZeros(duration)), (BUCKET_COUNT - 1)));
+        mTotalTime.addAndGet(duration);
+    }
+
+
+
+
+    /**
+     *  Retrieves the (exclusive) upper bound of the durations held by the specified bucket.
+     *
+     * @param bucket the index of the bucket
+     * @return the upper bound (in nanoseconds)
+     */
+    public static long getBucketUpperBound(int bucket) {
+        Preconditions.isTrue("The bucket index is out of bounds.", ((bucket >= 0) && (bucket < BUCKET_COUNT)));
+        return ((bucket == (BUCKET_COUNT - 1)) ? Long.MAX_VALUE : (1L << bucket));
+    }
+
+
+
+
+    /**
+     *  Retrieves the number of the durations recorded into the specified bucket.
+     *
+     * @param bucket the index of the bucket
+     * @return the number of the durations
+     */
+    public long getBucketCount(int bucket) {
+        Preconditions.isTrue("The bucket index is out of bounds.", ((bucket >= 0) && (bucket < BUCKET_COUNT)));
+        return mBuckets.get(bucket);
+    }
+
+
+
+
+    /**
+     *  Retrieves the number of the durations recorded into each of the buckets.
+     *
+     * @return the copy of the bucket counts
+     */
+    @NonNull
+    public long[] getBucketCounts() {
+        final long[] counts = new long[BUCKET_COUNT];
+
+        for(int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = mBuckets.get(i);
+        }
+
+        return counts;
+    }
+
+
+
+
+    /**
+     *  Retrieves the total number of the recorded durations.
+     *
+     * @return the number of the durations
+     */
+    public long getCount() {
+        long count = 0L;
+
+        for(int i = 0; i < BUCKET_COUNT; i++) {
+            count += mBuckets.get(i);
+        }
+
+        return count;
+    }
+
+
+
+
+    /**
+     *  Retrieves the sum of all the recorded durations.
+     *
+     * @return the total duration (in nanoseconds)
+     */
+    public long getTotalTime() {
+        return mTotalTime.get();
+    }
+
+
+
+
+    /**
+     *  Estimates the specified percentile of the recorded durations (as the upper bound of the bucket the percentile falls into).
+     *
+     * @param percentile the percentile, within the [0, 100] range
+     * @return the estimated duration (in nanoseconds), or 0 if nothing is recorded
+     */
+    public long getPercentile(double percentile) {
+        Preconditions.isTrue("The percentile must be within the [0, 100] range.", ((percentile >= 0.0) && (percentile <= 100.0)));
+
+        final long[] counts = getBucketCounts();
+        long count = 0L;
+
+        for(long bucketCount : counts) {
+            count += bucketCount;
+        }
+
+        if(count == 0L) {
+            return 0L;
+        }
+
+        final long rank = Math.max(1L, (long) Math.ceil((percentile / 100.0) * count));
+        long seen = 0L;
+
+        for(int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+
+            if(seen >= rank) {
+                return getBucketUpperBound(i);
+            }
+        }
+
+        return getBucketUpperBound(BUCKET_COUNT - 1);
+    }
+
+
+
+
+    @Override
+    public String toString() {
+        return ("LatencyHistogram{count=" + getCount()
+            + ", totalTime=" + getTotalTime()
+            + ", p50=" + getPercentile(50.0)
+            + ", p99=" + getPercentile(99.0) + "}");
+    }
+
+
+
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import android.os.Looper;
+
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+
+/**
+ *  A detector of the blocking disk operations (the initial loading of the preferences files and the commits)
+ *  performed on the main thread, which reports them to the {@link MainThreadIoReporter}.
+ *
+ * @author arthur3486
+ */
+
+final class MainThreadIoDetector {
+
+
+    private volatile MainThreadIoReporter mReporter;
+    private volatile long mThreshold;
+
+
+
+
+    MainThreadIoDetector() {
+        mReporter = null;
+        mThreshold = 0L;
+    }
+
+
+
+
+    void enable(long thresholdMillis, @NonNull MainThreadIoReporter reporter) {
+        mThreshold = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        mReporter = reporter;
+    }
+
+
+
+
+    void disable() {
+        mReporter = null;
+    }
+
+
+
+
+    boolean isEnabled() {
+        return (mReporter != null);
+    }
+
+
+
+
+    /**
+     *  Reports the specified operation if it's a blocking disk operation which was performed on the main thread
+     *  and took no less than the threshold.
+     */
+    void onOperation(@NonNull String sharedPreferencesFileName, @NonNull PreferenceMetrics.Operation operation, long durationNanos) {
+        final MainThreadIoReporter reporter = mReporter;
+
+        if((reporter == null)
+            || ((operation != PreferenceMetrics.Operation.LOAD) && (operation != PreferenceMetrics.Operation.COMMIT))
+            || (durationNanos < mThreshold)
+            || !isMainThread()) {
+            return;
+        }
+
+        reporter.onMainThreadIo(new MainThreadIoViolation(sharedPreferencesFileName, operation, durationNanos));
+    }
+
+
+
+
+    private static boolean isMainThread() {
+        final Looper mainLooper = Looper.getMainLooper();
+        return ((mainLooper != null) && (mainLooper.getThread() == Thread.currentThread()));
+    }
+
+
+
+
+}
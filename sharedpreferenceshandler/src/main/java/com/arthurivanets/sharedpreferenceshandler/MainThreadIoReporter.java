@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import androidx.annotation.NonNull;
+
+/**
+ *  A reporter of the blocking disk operations performed on the main thread
+ *  (see {@link SharedPreferencesManagerProvider#enableMainThreadIoDetection(long, MainThreadIoReporter)}).
+ *
+ * @author arthur3486
+ */
+
+public interface MainThreadIoReporter {
+
+    /**
+     *  Called (right on the main thread) after a blocking disk operation has been performed on the main thread.
+     *  The implementations are expected to be lightweight (e.g. to log the violation, or to hand it over to a crash reporter).
+     *
+     * @param violation the details of the operation, along with the stack trace of the call
+     */
+    void onMainThreadIo(@NonNull MainThreadIoViolation violation);
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import androidx.annotation.NonNull;
+
+/**
+ *  The details of a blocking disk operation performed on the main thread, the stack trace of which
+ *  points to the call that has caused the operation.
+ *  (see {@link MainThreadIoReporter})
+ *
+ * @author arthur3486
+ */
+
+public final class MainThreadIoViolation extends Exception {
+
+
+    private static final long serialVersionUID = 1L;
+
+    private final String mSharedPreferencesFileName;
+    private final PreferenceMetrics.Operation mOperation;
+    private final long mDuration;
+
+
+
+
+    MainThreadIoViolation(@NonNull String sharedPreferencesFileName, @NonNull PreferenceMetrics.Operation operation, long durationNanos) {
+        super(operation + " of " + sharedPreferencesFileName + " took " + (durationNanos / 1000L) + "us on the main thread.");
+
+        mSharedPreferencesFileName = sharedPreferencesFileName;
+        mOperation = operation;
+        mDuration = durationNanos;
+    }
+
+
+
+
+    /**
+     *  Retrieves the name of the preferences file the operation was performed on.
+     *
+     * @return the name of the preferences file
+     */
+    @NonNull
+    public String getSharedPreferencesFileName() {
+        return mSharedPreferencesFileName;
+    }
+
+
+
+
+    /**
+     *  Retrieves the blocking operation ({@link PreferenceMetrics.Operation#LOAD} or {@link PreferenceMetrics.Operation#COMMIT}).
+     *
+     * @return the operation
+     */
+    @NonNull
+    public PreferenceMetrics.Operation getOperation() {
+        return mOperation;
+    }
+
+
+
+
+    /**
+     *  Retrieves the time the main thread was blocked for.
+     *
+     * @return the duration (in nanoseconds)
+     */
+    public long getDuration() {
+        return mDuration;
+    }
+
+
+
+
+}
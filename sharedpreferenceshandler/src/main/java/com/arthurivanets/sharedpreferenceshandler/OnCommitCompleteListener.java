@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import androidx.annotation.Nullable;
+
+/**
+ *  A listener of the completion of an asynchronous commit (see {@link CommitFuture}).
+ *
+ * @author arthur3486
+ */
+
+public interface OnCommitCompleteListener {
+
+    /**
+     *  Called when the commit is complete.
+     *
+     * @param isSuccessful whether the changes were successfully written
+     * @param error the cause of the failure (if the write has thrown, or the commit was cancelled), or null
+     */
+    void onCommitComplete(boolean isSuccessful, @Nullable Throwable error);
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import androidx.annotation.NonNull;
+
+/**
+ *  A listener the collected metrics are exported to
+ *  (see {@link SharedPreferencesManagerProvider#reportMetrics(OnMetricsReportListener)}).
+ *
+ * @author arthur3486
+ */
+
+public interface OnMetricsReportListener {
+
+    /**
+     *  Called for each of the managers the metrics of which are enabled.
+     *
+     * @param sharedPreferencesFileName the name of the preferences file of the manager
+     * @param metrics the metrics of the manager
+     */
+    void onMetricsReport(@NonNull String sharedPreferencesFileName, @NonNull PreferenceMetrics metrics);
+
+}
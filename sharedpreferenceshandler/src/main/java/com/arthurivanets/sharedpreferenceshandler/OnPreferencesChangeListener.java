@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+
+/**
+ *  A listener of the changes of the preferences
+ *  (see {@link SharedPreferencesManager#subscribe(PreferenceKeyFilter, java.util.concurrent.Executor, OnPreferencesChangeListener)}).
+ *
+ * @author arthur3486
+ */
+
+public interface OnPreferencesChangeListener {
+
+    /**
+     *  Called when the values of the preferences the listener is subscribed to have changed.
+     *  The changes that happen in quick succession are coalesced into a single call.
+     *
+     * @param keys the keys of the changed preferences (only the ones matching the filter of the subscription)
+     */
+    void onPreferencesChanged(@NonNull Set<String> keys);
+
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.store.PreferenceStore;
+import com.arthurivanets.sharedpreferenceshandler.util.Preconditions;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ *  An in-memory write-through cache of the values of a single {@link PreferenceStore}.
+ *  The cache is populated with the contents of the file upon the first read; thereafter the reads are
+ *  served without any locking. The written values take precedence over the ones loaded from the file.
+ *  <br>
+ *  The String Sets are cached as the unmodifiable copies, so the cached values can be changed neither via
+ *  the sets passed to (or loaded into) the cache, nor via the ones handed out by it.
+ *  <br>
+ *  The multi-key writes and reads (see {@link #getBatchLock()}) are mutually exclusive, so the latter never observe
+ *  a half-applied batch of changes (e.g. of a transaction).
+ *
+ * @author arthur3486
+ */
+
+final class PreferenceCache {
+
+
+    /**
+     * A marker of the values that have been removed (but not necessarily written to the file yet).
+     */
+    private static final Object REMOVED = new Object();
+
+    private final PreferenceStore mStore;
+    private final ConcurrentMap<String, Object> mValues;
+    private final Object mBatchLock;
+
+    private volatile boolean mIsLoaded;
+
+
+
+
+    PreferenceCache(@NonNull PreferenceStore store) {
+        Preconditions.nonNull(store);
+
+        mStore = store;
+        mValues = new ConcurrentHashMap<>();
+        mBatchLock = new Object();
+        mIsLoaded = false;
+    }
+
+
+
+
+    /**
+     *  Retrieves the value associated with the specified key, loading the contents of the file if necessary.
+     *
+     * @param key the key of the value
+     * @return the value, or null if there's no value associated with the key
+     */
+    @Nullable
+    Object get(@NonNull String key) {
+        Object value = mValues.get(key);
+
+        if((value == null) && !mIsLoaded) {
+            load();
+            value = mValues.get(key);
+        }
+
+        return ((value != REMOVED) ? value : null);
+    }
+
+
+
+
+    void put(@NonNull String key, @NonNull Object value) {
+        mValues.put(key, toCachedValue(value));
+    }
+
+
+
+
+    void put(@NonNull String key, @Nullable String value) {
+        mValues.put(key, ((value != null) ? value : REMOVED));
+    }
+
+
+
+
+    void put(@NonNull String key, @NonNull Set<String> values) {
+        mValues.put(key, toCachedValue(values));
+    }
+
+
+
+
+    void remove(@NonNull String key) {
+        mValues.put(key, REMOVED);
+    }
+
+
+
+
+    /**
+     *  Puts all the specified changes into the cache.
+     *
+     * @param changes the changes to put (the null values denote the removals)
+     */
+    void putAll(@NonNull Map<String, ?> changes) {
+        synchronized(mBatchLock) {
+            for(Map.Entry<String, ?> change : changes.entrySet()) {
+                final Object value = change.getValue();
+
+                mValues.put(change.getKey(), ((value != null) ? toCachedValue(value) : REMOVED));
+            }
+        }
+    }
+
+
+
+
+    /**
+     *  Retrieves the lock guarding the multi-key writes and reads. The single-key writes that are meant
+     *  to be observed all at once are to be made while holding it.
+     *
+     * @return the lock
+     */
+    @NonNull
+    Object getBatchLock() {
+        return mBatchLock;
+    }
+
+
+
+
+    /**
+     *  Loads the contents of the preferences file into the cache (if not already loaded).
+     *  The values that have been written into the cache prior to the loading are preserved.
+     */
+    void load() {
+        if(mIsLoaded) {
+            return;
+        }
+
+        synchronized(this) {
+            if(mIsLoaded) {
+                return;
+            }
+
+            for(Map.Entry<String, ?> entry : mStore.getAll().entrySet()) {
+                if(entry.getValue() != null) {
+                    mValues.putIfAbsent(entry.getKey(), toCachedValue(entry.getValue()));
+                }
+            }
+
+            mIsLoaded = true;
+        }
+    }
+
+
+
+
+    /**
+     *  Checks whether the contents of the preferences file have been loaded into the cache.
+     *
+     * @return true if they have, false otherwise
+     */
+    boolean isLoaded() {
+        return mIsLoaded;
+    }
+
+
+
+
+    /**
+     *  Retrieves all the values held by the cache (loading the contents of the file if necessary).
+     *
+     * @return the copy of all the values
+     */
+    @NonNull
+    Map<String, Object> getAll() {
+        load();
+
+        final Map<String, Object> values = new HashMap<>();
+
+        synchronized(mBatchLock) {
+            for(Map.Entry<String, Object> entry : mValues.entrySet()) {
+                if(entry.getValue() != REMOVED) {
+                    values.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        return values;
+    }
+
+
+
+
+    /**
+     *  Retrieves the values associated with the specified keys (loading the contents of the file if necessary).
+     *
+     * @param keys the keys of the values
+     * @return the copy of the values (the keys that have no values associated with them are omitted)
+     */
+    @NonNull
+    Map<String, Object> getAll(@NonNull Collection<String> keys) {
+        load();
+
+        final Map<String, Object> values = new HashMap<>();
+
+        synchronized(mBatchLock) {
+            for(String key : keys) {
+                final Object value = mValues.get(key);
+
+                if((value != null) && (value != REMOVED)) {
+                    values.put(key, value);
+                }
+            }
+        }
+
+        return values;
+    }
+
+
+
+
+    /**
+     *  Converts the specified value into its cached form (the String Sets are copied into the unmodifiable ones).
+     */
+    private static Object toCachedValue(Object value) {
+        return ((value instanceof Set) ? Collections.unmodifiableSet(new HashSet<>((Set<?>) value)) : value);
+    }
+
+
+
+
+    void clear() {
+        mValues.clear();
+        mIsLoaded = false;
+    }
+
+
+
+
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.util.BackgroundExecutors;
+import com.arthurivanets.sharedpreferenceshandler.util.Preconditions;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import androidx.annotation.NonNull;
+
+/**
+ *  A dispatcher of the preference change notifications to the subscribed listeners.
+ *  <br>
+ *  The writers never block on (or wait for) the listeners: the changed keys are merely added to the pending keys of the
+ *  matching subscriptions, while the actual delivery happens on the executors of the subscriptions. The changes that happen
+ *  while a delivery is already pending (or within the batch window) are coalesced into that delivery.
+ *  The batch window starts upon the first change and is not extended by the subsequent ones.
+ *
+ * @author arthur3486
+ */
+
+final class PreferenceChangeNotifier {
+
+
+    private final CopyOnWriteArrayList<Subscription> mSubscriptions;
+
+
+
+
+    PreferenceChangeNotifier() {
+        mSubscriptions = new CopyOnWriteArrayList<>();
+    }
+
+
+
+
+    @NonNull
+    PreferenceSubscription subscribe(@NonNull PreferenceKeyFilter filter,
+                                     @NonNull Executor executor,
+                                     long batchWindow,
+                                     @NonNull OnPreferencesChangeListener listener) {
+        Preconditions.nonNull(filter);
+        Preconditions.nonNull(executor);
+        Preconditions.isTrue("The batch window must not be negative.", (batchWindow >= 0L));
+        Preconditions.nonNull(listener);
+
+        final Subscription subscription = new Subscription(filter, executor, batchWindow, listener);
+        mSubscriptions.add(subscription);
+
+        return subscription;
+    }
+
+
+
+
+    /**
+     *  Checks whether there are any active subscriptions (so that the changes are worth tracking at all).
+     *
+     * @return true if there are, false otherwise
+     */
+    boolean hasSubscriptions() {
+        return !mSubscriptions.isEmpty();
+    }
+
+
+
+
+    /**
+     *  Notifies the matching subscriptions of the changes of the specified keys.
+     *
+     * @param keys the keys of the changed preferences
+     */
+    void notifyChanged(@NonNull Collection<String> keys) {
+        if(keys.isEmpty()) {
+            return;
+        }
+
+        for(Subscription subscription : mSubscriptions) {
+            subscription.enqueue(keys);
+        }
+    }
+
+
+
+
+    void clear() {
+        for(Subscription subscription : mSubscriptions) {
+            subscription.unsubscribe();
+        }
+    }
+
+
+
+
+    private final class Subscription implements PreferenceSubscription, Runnable {
+
+        private final PreferenceKeyFilter mFilter;
+        private final Executor mExecutor;
+        private final long mBatchWindow;
+        private final OnPreferencesChangeListener mListener;
+
+        private final Set<String> mPendingKeys;
+        private final AtomicBoolean mIsDeliveryScheduled;
+        private volatile boolean mIsUnsubscribed;
+
+        private final Runnable mDeliveryTask = new Runnable() {
+
+            @Override
+            public void run() {
+                mExecutor.execute(Subscription.this);
+            }
+
+        };
+
+        Subscription(PreferenceKeyFilter filter, Executor executor, long batchWindow, OnPreferencesChangeListener listener) {
+            mFilter = filter;
+            mExecutor = executor;
+            mBatchWindow = batchWindow;
+            mListener = listener;
+            mPendingKeys = new HashSet<>();
+            mIsDeliveryScheduled = new AtomicBoolean(false);
+            mIsUnsubscribed = false;
+        }
+
+        void enqueue(Collection<String> keys) {
+            boolean hasMatches = false;
+
+            synchronized(mPendingKeys) {
+                for(String key : keys) {
+                    if(mFilter.matches(key)) {
+                        mPendingKeys.add(key);
+                        hasMatches = true;
+                    }
+                }
+            }
+
+            if(!hasMatches || !mIsDeliveryScheduled.compareAndSet(false, true)) {
+                return;
+            }
+
+            if(mBatchWindow > 0L) {
+                BackgroundExecutors.scheduler().schedule(mDeliveryTask, mBatchWindow, TimeUnit.MILLISECONDS);
+            } else {
+                mExecutor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            final Set<String> keys;
+
+            // the changes made from now on are to be delivered separately
+            mIsDeliveryScheduled.set(false);
+
+            synchronized(mPendingKeys) {
+                keys = new HashSet<>(mPendingKeys);
+                mPendingKeys.clear();
+            }
+
+            if(!keys.isEmpty() && !mIsUnsubscribed) {
+                mListener.onPreferencesChanged(keys);
+            }
+        }
+
+        @Override
+        public void unsubscribe() {
+            mIsUnsubscribed = true;
+            mSubscriptions.remove(this);
+
+            synchronized(mPendingKeys) {
+                mPendingKeys.clear();
+            }
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return mIsUnsubscribed;
+        }
+
+    }
+
+
+
+
+}
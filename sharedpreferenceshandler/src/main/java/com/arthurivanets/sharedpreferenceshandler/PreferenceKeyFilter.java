@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.util.Preconditions;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+
+/**
+ *  A filter of the preference keys, which determines the changes of which preferences are of interest to a subscription.
+ *  (see {@link SharedPreferencesManager#subscribe(PreferenceKeyFilter, java.util.concurrent.Executor, OnPreferencesChangeListener)})
+ *
+ * @author arthur3486
+ */
+
+public abstract class PreferenceKeyFilter {
+
+
+    /**
+     *  A filter that matches all the keys.
+     */
+    public static final PreferenceKeyFilter ALL = new PreferenceKeyFilter() {
+
+        @Override
+        public boolean matches(@NonNull String key) {
+            return true;
+        }
+
+    };
+
+
+
+
+    /**
+     *  Creates a filter that matches only the specified keys.
+     *
+     * @param keys the keys to match
+     * @return the filter
+     */
+    @NonNull
+    public static PreferenceKeyFilter forKeys(@NonNull String... keys) {
+        Preconditions.nonNull(keys);
+        return forKeys(Arrays.asList(keys));
+    }
+
+
+
+
+    /**
+     *  Creates a filter that matches only the specified keys.
+     *
+     * @param keys the keys to match
+     * @return the filter
+     */
+    @NonNull
+    public static PreferenceKeyFilter forKeys(@NonNull Collection<String> keys) {
+        Preconditions.nonNull(keys);
+
+        final Set<String> keySet = new HashSet<>(keys);
+
+        return new PreferenceKeyFilter() {
+
+            @Override
+            public boolean matches(@NonNull String key) {
+                return keySet.contains(key);
+            }
+
+        };
+    }
+
+
+
+
+    /**
+     *  Creates a filter that matches all the keys starting with the specified prefix
+     *  (e.g. the keys of all the Property fields of a class, see {@link #forClass(Class)}).
+     *
+     * @param prefix the prefix of the keys to match
+     * @return the filter
+     */
+    @NonNull
+    public static PreferenceKeyFilter forPrefix(@NonNull final String prefix) {
+        Preconditions.nonEmpty(prefix);
+
+        return new PreferenceKeyFilter() {
+
+            @Override
+            public boolean matches(@NonNull String key) {
+                return key.startsWith(prefix);
+            }
+
+        };
+    }
+
+
+
+
+    /**
+     *  Creates a filter that matches the keys of all the {@link com.arthurivanets.sharedpreferenceshandler.annotations.Property}
+     *  fields of the specified class.
+     *
+     * @param objectClass the class of the preferences Object
+     * @return the filter
+     */
+    @NonNull
+    public static PreferenceKeyFilter forClass(@NonNull Class<?> objectClass) {
+        Preconditions.nonNull(objectClass);
+        return forPrefix(objectClass.getName() + ".");
+    }
+
+
+
+
+    /**
+     *  Checks whether the specified key is matched by the filter.
+     *
+     * @param key the key to check
+     * @return true if it is, false otherwise
+     */
+    public abstract boolean matches(@NonNull String key);
+
+
+
+
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.store.PreferenceStore;
+import com.arthurivanets.sharedpreferenceshandler.util.Preconditions;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import androidx.annotation.NonNull;
+
+/**
+ *  {@link PreferenceMetrics} holds the latency histograms of the operations performed by a single {@link SharedPreferencesManager}
+ *  (see {@link SharedPreferencesManagerConfig.Builder#setMetricsEnabled(boolean)}), along with the size of its preferences.
+ *  <br>
+ *  The metrics of all the managers can be exported at once via the {@link SharedPreferencesManagerProvider#reportMetrics(OnMetricsReportListener)}.
+ *
+ * @author arthur3486
+ */
+
+public final class PreferenceMetrics {
+
+
+    /**
+     *  The operations the latencies of which are recorded.
+     */
+    public enum Operation {
+
+        /**
+         * The first read of the store, which includes the waiting for the initial loading of the preferences file.
+         */
+        LOAD,
+
+        /**
+         * The reads of the values, including the ones served by the cache (the read that loads the cache is recorded as the {@link #LOAD}).
+         */
+        READ,
+
+        /**
+         * The puts (removals) of the values into the editors of the store.
+         */
+        WRITE,
+
+        /**
+         * The synchronous writes of the changes into the preferences file.
+         */
+        COMMIT,
+
+        /**
+         * The asynchronous writes of the changes (only the part the caller is blocked for).
+         */
+        APPLY,
+
+        /**
+         * The mappings of the preferences Objects to the preferences (see {@link SharedPreferencesManager#put(Object)}).
+         */
+        OBJECT_MAPPING,
+
+        /**
+         * The recoveries of the preferences Objects from the preferences (see {@link SharedPreferencesManager#get(Class)}).
+         */
+        OBJECT_RECOVERY
+
+    }
+
+
+    private final PreferenceStore mStore;
+    private final LatencyHistogram[] mHistograms;
+    private final ConcurrentMap<Class<?>, LatencyHistogram> mObjectMappingHistograms;
+    private final ConcurrentMap<Class<?>, LatencyHistogram> mObjectRecoveryHistograms;
+
+    /**
+     * The number of the preferences, recorded upon the reads of all the preferences of the store
+     * and kept up to date by the writes (-1 until the first such read).
+     */
+    private final AtomicInteger mKeyCount;
+
+
+
+
+    PreferenceMetrics(@NonNull PreferenceStore store) {
+        Preconditions.nonNull(store);
+
+        final Operation[] operations = Operation.values();
+
+        mStore = store;
+        mHistograms = new LatencyHistogram[operations.length];
+        mObjectMappingHistograms = new ConcurrentHashMap<>();
+        mObjectRecoveryHistograms = new ConcurrentHashMap<>();
+        mKeyCount = new AtomicInteger(-1);
+
+        for(Operation operation : operations) {
+            mHistograms[operation.ordinal()] = new LatencyHistogram();
+        }
+    }
+
+
+
+
+    void record(@NonNull Operation operation, long durationNanos) {
+        mHistograms[operation.ordinal()].record(durationNanos);
+    }
+
+
+
+
+    /**
+     *  Records the duration of the mapping (recovery) of an Object of the specified class
+     *  (both into the overall histogram of the operation and into the histogram of the class).
+     */
+    void record(@NonNull Operation operation, @NonNull Class<?> objectClass, long durationNanos) {
+        final ConcurrentMap<Class<?>, LatencyHistogram> histograms = ((operation == Operation.OBJECT_MAPPING) ? mObjectMappingHistograms : mObjectRecoveryHistograms);
+        LatencyHistogram histogram = histograms.get(objectClass);
+
+        if(histogram == null) {
+            final LatencyHistogram newHistogram = new LatencyHistogram();
+            histogram = histograms.putIfAbsent(objectClass, newHistogram);
+
+            if(histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+
+        histogram.record(durationNanos);
+        record(operation, durationNanos);
+    }
+
+
+
+
+    void recordKeyCount(int keyCount) {
+        mKeyCount.set(keyCount);
+    }
+
+
+
+
+    /**
+     *  Adjusts the recorded number of the preferences by the specified change (made by a write).
+     *  Does nothing while the number is not yet known.
+     */
+    void recordKeyCountChange(int change) {
+        int keyCount;
+
+        do {
+            keyCount = mKeyCount.get();
+
+            if(keyCount < 0) {
+                return;
+            }
+        } while(!mKeyCount.compareAndSet(keyCount, Math.max(0, (keyCount + change))));
+    }
+
+
+
+
+    /**
+     *  Retrieves the latency histogram of the specified operation.
+     *
+     * @param operation the operation
+     * @return the histogram
+     */
+    @NonNull
+    public LatencyHistogram getHistogram(@NonNull Operation operation) {
+        Preconditions.nonNull(operation);
+        return mHistograms[operation.ordinal()];
+    }
+
+
+
+
+    /**
+     *  Retrieves the latency histograms of the mappings of the preferences Objects, per class of the Object.
+     *
+     * @return the unmodifiable view of the histograms
+     */
+    @NonNull
+    public Map<Class<?>, LatencyHistogram> getObjectMappingHistograms() {
+        return Collections.unmodifiableMap(mObjectMappingHistograms);
+    }
+
+
+
+
+    /**
+     *  Retrieves the latency histograms of the recoveries of the preferences Objects, per class of the Object.
+     *
+     * @return the unmodifiable view of the histograms
+     */
+    @NonNull
+    public Map<Class<?>, LatencyHistogram> getObjectRecoveryHistograms() {
+        return Collections.unmodifiableMap(mObjectRecoveryHistograms);
+    }
+
+
+
+
+    /**
+     *  Retrieves the number of the preferences currently held by the store, as recorded upon the loading of the store
+     *  (the reading of all of its preferences, e.g. by the cache, see {@link SharedPreferencesManagerConfig.Builder#setCachingEnabled(boolean)})
+     *  and kept up to date by the subsequent writes. Never reads the store itself.
+     *
+     * @return the number of the preferences, or -1 if all the preferences of the store have not been read yet
+     */
+    public int getKeyCount() {
+        return mKeyCount.get();
+    }
+
+
+
+
+    /**
+     *  Retrieves the size of the underlying preferences file.
+     *
+     * @return the size of the file (in bytes), or -1 if the store does not expose its file
+     */
+    public long getFileSize() {
+        final File file = ((mStore instanceof PreferenceStore.FileBacked) ? ((PreferenceStore.FileBacked) mStore).getFile() : null);
+        return ((file != null) ? file.length() : -1L);
+    }
+
+
+
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+/**
+ *  A handle of the subscription to the changes of the preferences, which is to be used for the cancellation of the subscription.
+ *
+ * @author arthur3486
+ */
+
+public interface PreferenceSubscription {
+
+    /**
+     *  Cancels the subscription; no further changes are delivered to the listener thereafter.
+     */
+    void unsubscribe();
+
+    /**
+     *  Checks whether the subscription is cancelled.
+     *
+     * @return true if it is, false otherwise
+     */
+    boolean isUnsubscribed();
+
+}
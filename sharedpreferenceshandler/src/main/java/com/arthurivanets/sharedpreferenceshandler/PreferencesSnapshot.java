@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.util.Preconditions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ *  An immutable snapshot of (a subset of) the preferences, obtained all at once
+ *  (see {@link SharedPreferencesManager#snapshot()} and {@link SharedPreferencesManager#getAll(java.util.Collection)}).
+ *  <br>
+ *  The keys are held in a sorted array (the lookups are the binary searches), whereas the primitive values
+ *  are held in a primitive array, so reading them involves neither locking nor unboxing.
+ *  As with the preferences themselves, retrieving a value as a type other than the one it was stored with
+ *  results in a {@link ClassCastException}.
+ *
+ * @author arthur3486
+ */
+
+public final class PreferencesSnapshot {
+
+
+    private static final byte TYPE_BOOLEAN = 1;
+    private static final byte TYPE_FLOAT = 2;
+    private static final byte TYPE_INT = 3;
+    private static final byte TYPE_LONG = 4;
+    private static final byte TYPE_STRING = 5;
+    private static final byte TYPE_STRING_SET = 6;
+
+    private final String[] mKeys;
+    private final byte[] mTypes;
+    private final long[] mPrimitiveValues;
+    private final Object[] mObjectValues;
+
+
+
+
+    PreferencesSnapshot(@NonNull Map<String, ?> values) {
+        Preconditions.nonNull(values);
+
+        final String[] keys = values.keySet().toArray(new String[values.size()]);
+        Arrays.sort(keys);
+
+        mKeys = keys;
+        mTypes = new byte[keys.length];
+        mPrimitiveValues = new long[keys.length];
+        mObjectValues = new Object[keys.length];
+
+        for(int i = 0; i < keys.length; i++) {
+            final Object value = values.get(keys[i]);
+
+            if(value instanceof Boolean) {
+                mTypes[i] = TYPE_BOOLEAN;
+                mPrimitiveValues[i] = (((Boolean) value) ? 1L : 0L);
+            } else if(value instanceof Float) {
+                mTypes[i] = TYPE_FLOAT;
+                mPrimitiveValues[i] = Float.floatToRawIntBits((Float) value);
+            } else if(value instanceof Integer) {
+                mTypes[i] = TYPE_INT;
+                mPrimitiveValues[i] = (Integer) value;
+            } else if(value instanceof Long) {
+                mTypes[i] = TYPE_LONG;
+                mPrimitiveValues[i] = (Long) value;
+            } else if(value instanceof String) {
+                mTypes[i] = TYPE_STRING;
+                mObjectValues[i] = value;
+            } else if(value instanceof Set) {
+                mTypes[i] = TYPE_STRING_SET;
+                mObjectValues[i] = Collections.unmodifiableSet(new HashSet<>((Set<?>) value));
+            } else {
+                throw new IllegalArgumentException("Unsupported preference value: " + value);
+            }
+        }
+    }
+
+
+
+
+    private int indexOf(String key, byte type) {
+        Preconditions.nonEmpty(key);
+
+        final int index = Arrays.binarySearch(mKeys, key);
+
+        if((index >= 0) && (mTypes[index] != type)) {
+            throw new ClassCastException("The value of " + key + " is not of the requested type.");
+        }
+
+        return index;
+    }
+
+
+
+
+    /**
+     *  Checks whether the snapshot contains a value associated with the specified key.
+     *
+     * @param key the key to check
+     * @return true if it does, false otherwise
+     */
+    public boolean contains(@NonNull String key) {
+        Preconditions.nonEmpty(key);
+        return (Arrays.binarySearch(mKeys, key) >= 0);
+    }
+
+
+
+
+    /**
+     *  Retrieves the number of the values held by the snapshot.
+     *
+     * @return the number of the values
+     */
+    public int size() {
+        return mKeys.length;
+    }
+
+
+
+
+    /**
+     *  Retrieves the keys of all the values held by the snapshot (in their natural order).
+     *
+     * @return the unmodifiable Set of the keys
+     */
+    @NonNull
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(mKeys)));
+    }
+
+
+
+
+    public boolean getBoolean(@NonNull String key, boolean defaultValue) {
+        final int index = indexOf(key, TYPE_BOOLEAN);
+        return ((index >= 0) ? (mPrimitiveValues[index] != 0L) : defaultValue);
+    }
+
+
+
+
+    public float getFloat(@NonNull String key, float defaultValue) {
+        final int index = indexOf(key, TYPE_FLOAT);
+        return ((index >= 0) ? Float.intBitsToFloat((int) mPrimitiveValues[index]) : defaultValue);
+    }
+
+
+
+
+    public int getInt(@NonNull String key, int defaultValue) {
+        final int index = indexOf(key, TYPE_INT);
+        return ((index >= 0) ? (int) mPrimitiveValues[index] : defaultValue);
+    }
+
+
+
+
+    public long getLong(@NonNull String key, long defaultValue) {
+        final int index = indexOf(key, TYPE_LONG);
+        return ((index >= 0) ? mPrimitiveValues[index] : defaultValue);
+    }
+
+
+
+
+    @Nullable
+    public String getString(@NonNull String key, @Nullable String defaultValue) {
+        final int index = indexOf(key, TYPE_STRING);
+        return ((index >= 0) ? (String) mObjectValues[index] : defaultValue);
+    }
+
+
+
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public Set<String> getStringSet(@NonNull String key, @Nullable Set<String> defaultValues) {
+        final int index = indexOf(key, TYPE_STRING_SET);
+        return ((index >= 0) ? (Set<String>) mObjectValues[index] : defaultValues);
+    }
+
+
+
+
+}
@@ -16,7 +16,10 @@
 
 package com.arthurivanets.sharedpreferenceshandler;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -243,6 +246,63 @@ public interface SharedPreferencesManager {
     @NonNull
     SharedPreferencesManager putAndApply(@NonNull String key, @NonNull Set<String> value);
 
+    /**
+     *  Sets all the specified values in the preferences at once, without writing preference changes into the corresponding preferences file.
+     *  The supported values are the Booleans, Floats, Integers, Longs, Strings and Sets of Strings; the null values denote the removals.
+     *  All the entries are validated before any of them is set, so either all or none of the values are set.
+     *  In order to write the changes into a file, you need to call one of the following methods: {@link #commit()} or {@link #apply()},
+     *  after the execution of the current method.
+     *
+     * @param values the values to be set, keyed by the names of the preferences
+     * @return the current instance of the {@link SharedPreferencesManager}
+     */
+    @NonNull
+    SharedPreferencesManager putAll(@NonNull Map<String, ?> values);
+
+    /**
+     *  Sets the specified boolean values in the preferences at once (the value at each index corresponds to the key at the same index),
+     *  without writing preference changes into the corresponding preferences file.
+     *
+     * @param keys the names of the preferences to be modified
+     * @param values the new values for the preferences
+     * @return the current instance of the {@link SharedPreferencesManager}
+     */
+    @NonNull
+    SharedPreferencesManager putAll(@NonNull String[] keys, @NonNull boolean[] values);
+
+    /**
+     *  Sets the specified float values in the preferences at once (the value at each index corresponds to the key at the same index),
+     *  without writing preference changes into the corresponding preferences file.
+     *
+     * @param keys the names of the preferences to be modified
+     * @param values the new values for the preferences
+     * @return the current instance of the {@link SharedPreferencesManager}
+     */
+    @NonNull
+    SharedPreferencesManager putAll(@NonNull String[] keys, @NonNull float[] values);
+
+    /**
+     *  Sets the specified int values in the preferences at once (the value at each index corresponds to the key at the same index),
+     *  without writing preference changes into the corresponding preferences file.
+     *
+     * @param keys the names of the preferences to be modified
+     * @param values the new values for the preferences
+     * @return the current instance of the {@link SharedPreferencesManager}
+     */
+    @NonNull
+    SharedPreferencesManager putAll(@NonNull String[] keys, @NonNull int[] values);
+
+    /**
+     *  Sets the specified long values in the preferences at once (the value at each index corresponds to the key at the same index),
+     *  without writing preference changes into the corresponding preferences file.
+     *
+     * @param keys the names of the preferences to be modified
+     * @param values the new values for the preferences
+     * @return the current instance of the {@link SharedPreferencesManager}
+     */
+    @NonNull
+    SharedPreferencesManager putAll(@NonNull String[] keys, @NonNull long[] values);
+
     /**
      *  Extracts all fields marked as {@link com.arthurivanets.sharedpreferenceshandler.annotations.Property} and sets their corresponding
      *  values in the preferences, without writing preference changes into the corresponding preferences file.
@@ -363,6 +423,7 @@ public interface SharedPreferencesManager {
 
     /**
      *  Retrieves a Set of values from the preferences that corresponds to the specified key.
+     *  The retrieved Set is not to be modified (the cached Sets are unmodifiable); a changed copy is to be put instead.
      *
      * @param key the key for which to retrieve the value
      * @param defaultValues the values to be used if no values were previously associated with the specified key
@@ -371,6 +432,29 @@ public interface SharedPreferencesManager {
     @Nullable
     Set<String> getStringSet(@NonNull String key, @Nullable Set<String> defaultValues);
 
+    /**
+     *  Retrieves the values associated with the specified keys all at once, in a form of an immutable snapshot.
+     *  The keys that have no values associated with them are not present in the snapshot.
+     *  <br>
+     *  Intended for the cases when several values are to be read at once (e.g. when populating a screen),
+     *  as it involves a single synchronization with the preferences, rather than one per value.
+     *  The snapshot is consistent: it holds either all or none of the changes of each transaction, as well as of each bulk put.
+     *
+     * @param keys the keys for which to retrieve the values
+     * @return the snapshot of the values
+     */
+    @NonNull
+    PreferencesSnapshot getAll(@NonNull Collection<String> keys);
+
+    /**
+     *  Retrieves all the preferences at once, in a form of an immutable snapshot.
+     *  (see {@link #getAll(Collection)})
+     *
+     * @return the snapshot of all the preferences
+     */
+    @NonNull
+    PreferencesSnapshot snapshot();
+
     /**
      *  Recovers a preferences Object of the specified Class from the shared preferences.
      *
@@ -381,16 +465,90 @@ public interface SharedPreferencesManager {
     @Nullable
     <T> T get(@NonNull Class<T> objectClass);
 
+    /**
+     *  Begins a new isolated {@link SharedPreferencesTransaction}, the changes of which are kept
+     *  separately from the changes made directly through the current manager (as well as from the changes
+     *  of other transactions) and are written into the corresponding preferences file all at once, upon
+     *  the completion of the transaction.
+     *
+     * @return the new transaction
+     */
+    @NonNull
+    SharedPreferencesTransaction edit();
+
     /**
      *  Commits (Writes) the not yet committed (written) preferences to the appropriate preferences file synchronously.
      */
     void commit();
 
+    /**
+     *  Commits (Writes) the not yet committed (written) preferences to the appropriate preferences file on the
+     *  background commit thread of the manager, without blocking the caller. Unlike the {@link #apply()}, reports the result of the write
+     *  through the returned {@link CommitFuture} (the changes made before the write actually begins are written as well).
+     *  The commits of the manager are performed one at a time, in the order of their submission.
+     *  The commits still pending upon the {@link #recycle()} complete with the result of its final commit, which writes their changes.
+     *
+     * @return the handle of the commit, which completes with the result of the write
+     */
+    @NonNull
+    CommitFuture commitAsync();
+
     /**
      *  Commits (Writes) the not yet committed (written) preferences to the appropriate preferences file asynchronously.
      */
     void apply();
 
+    /**
+     *  Immediately performs the write of the changes that were applied, but the write of which
+     *  was deferred due to the coalescing of the applies (see {@link SharedPreferencesManagerConfig.Builder#setApplyCoalescingWindow(long)}).
+     *  Does nothing if there's no pending write.
+     */
+    void flush();
+
+    /**
+     *  Subscribes the specified listener to the changes of the preferences the keys of which match the specified filter.
+     *  The listener is notified upon the commit (apply) of the changes (made either directly or through a transaction),
+     *  on the specified {@link Executor}, and never blocks the writers. The changes made while a notification is still pending
+     *  (i.e. not yet run by the executor) are coalesced into it.
+     *
+     * @param filter the filter of the keys to be observed (see {@link PreferenceKeyFilter})
+     * @param executor the executor to deliver the notifications on
+     * @param listener the listener to be notified
+     * @return the subscription, to be used to stop the observation
+     */
+    @NonNull
+    PreferenceSubscription subscribe(@NonNull PreferenceKeyFilter filter,
+                                     @NonNull Executor executor,
+                                     @NonNull OnPreferencesChangeListener listener);
+
+    /**
+     *  Subscribes the specified listener to the changes of the preferences the keys of which match the specified filter,
+     *  coalescing the changes that happen within the specified batch window into a single notification.
+     *  The notifications are throttled by design, not debounced: the window starts upon the first change and is not extended
+     *  by the subsequent ones, so a steady stream of changes is still delivered once per window, rather than postponed for as long as it lasts.
+     *  (see {@link #subscribe(PreferenceKeyFilter, Executor, OnPreferencesChangeListener)})
+     *
+     * @param filter the filter of the keys to be observed (see {@link PreferenceKeyFilter})
+     * @param executor the executor to deliver the notifications on
+     * @param batchWindow the batch window (in milliseconds), or 0 to deliver every commit (apply) separately
+     * @param listener the listener to be notified
+     * @return the subscription, to be used to stop the observation
+     */
+    @NonNull
+    PreferenceSubscription subscribe(@NonNull PreferenceKeyFilter filter,
+                                     @NonNull Executor executor,
+                                     long batchWindow,
+                                     @NonNull OnPreferencesChangeListener listener);
+
+    /**
+     *  Retrieves the metrics recorded by the manager
+     *  (see {@link SharedPreferencesManagerConfig.Builder#setMetricsEnabled(boolean)}).
+     *
+     * @return the metrics, or null if the recording of the metrics is disabled
+     */
+    @Nullable
+    PreferenceMetrics getMetrics();
+
     /**
      *  Checks whether the current instance of the {@link SharedPreferencesManager} is recycled.
      *
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.store.PreferenceStore;
+import com.arthurivanets.sharedpreferenceshandler.store.SharedPreferencesStore;
+import com.arthurivanets.sharedpreferenceshandler.util.Preconditions;
+
+import androidx.annotation.NonNull;
+
+/**
+ *  {@link SharedPreferencesManagerConfig} holds the configuration of a single {@link SharedPreferencesManager}.
+ *  (see {@link SharedPreferencesManagerProvider#get(String, SharedPreferencesManagerConfig)})
+ *
+ * @author arthur3486
+ */
+
+public final class SharedPreferencesManagerConfig {
+
+
+    /**
+     * The configuration used by default.
+     */
+    public static final SharedPreferencesManagerConfig DEFAULT = new Builder().build();
+
+
+    private final boolean mIsCachingEnabled;
+    private final long mApplyCoalescingWindow;
+    private final PreferenceStore.Factory mStoreFactory;
+    private final boolean mIsMetricsEnabled;
+    private final boolean mIsDirtyTrackingEnabled;
+
+
+
+
+    private SharedPreferencesManagerConfig(Builder builder) {
+        mIsCachingEnabled = (builder.mIsCachingEnabled || (builder.mApplyCoalescingWindow > 0L) || builder.mIsDirtyTrackingEnabled);
+        mApplyCoalescingWindow = builder.mApplyCoalescingWindow;
+        mStoreFactory = builder.mStoreFactory;
+        mIsMetricsEnabled = builder.mIsMetricsEnabled;
+        mIsDirtyTrackingEnabled = builder.mIsDirtyTrackingEnabled;
+    }
+
+
+
+
+    /**
+     *  Checks whether the in-memory caching of the preference values is enabled.
+     *  (The caching is always enabled when the coalescing of the applies or the dirty tracking is enabled)
+     *
+     * @return true if it is, false otherwise
+     */
+    public boolean isCachingEnabled() {
+        return mIsCachingEnabled;
+    }
+
+
+
+
+    /**
+     *  Retrieves the window (in milliseconds) within which the calls to {@link SharedPreferencesManager#apply()}
+     *  are coalesced into a single write.
+     *
+     * @return the coalescing window, or 0 if the coalescing is disabled
+     */
+    public long getApplyCoalescingWindow() {
+        return mApplyCoalescingWindow;
+    }
+
+
+
+
+    /**
+     *  Retrieves the factory of the {@link PreferenceStore} the manager is to delegate the storing of the preferences to.
+     *
+     * @return the store factory
+     */
+    @NonNull
+    public PreferenceStore.Factory getStoreFactory() {
+        return mStoreFactory;
+    }
+
+
+
+
+    /**
+     *  Checks whether the recording of the metrics of the manager is enabled.
+     *
+     * @return true if it is, false otherwise
+     */
+    public boolean isMetricsEnabled() {
+        return mIsMetricsEnabled;
+    }
+
+
+
+
+    /**
+     *  Checks whether the skipping of the unchanged puts and of the empty commits is enabled.
+     *
+     * @return true if it is, false otherwise
+     */
+    public boolean isDirtyTrackingEnabled() {
+        return mIsDirtyTrackingEnabled;
+    }
+
+
+
+
+    /**
+     *  A builder of the {@link SharedPreferencesManagerConfig}.
+     */
+    public static final class Builder {
+
+
+        private boolean mIsCachingEnabled;
+        private long mApplyCoalescingWindow;
+        private PreferenceStore.Factory mStoreFactory;
+        private boolean mIsMetricsEnabled;
+        private boolean mIsDirtyTrackingEnabled;
+
+
+
+
+        public Builder() {
+            mIsCachingEnabled = false;
+            mApplyCoalescingWindow = 0L;
+            mStoreFactory = SharedPreferencesStore.FACTORY;
+            mIsMetricsEnabled = false;
+            mIsDirtyTrackingEnabled = false;
+        }
+
+
+
+
+        /**
+         *  Enables or disables the in-memory write-through caching of the preference values.
+         *  When enabled, the whole preferences file is loaded into the cache upon the first read, after which
+         *  all the reads are served from the cache without any locking. The values are put into the cache as soon as
+         *  they are put into the manager (even before they are committed or applied).
+         *  <br>
+         *  The cache assumes that the preferences file is modified only through the corresponding manager.
+         *
+         * @param isCachingEnabled whether the caching is to be enabled
+         * @return the current instance of the {@link Builder}
+         */
+        @NonNull
+        public Builder setCachingEnabled(boolean isCachingEnabled) {
+            mIsCachingEnabled = isCachingEnabled;
+            return this;
+        }
+
+
+
+
+        /**
+         *  Sets the window within which the calls to {@link SharedPreferencesManager#apply()}
+         *  (including the ones made by the putAndApply methods) are coalesced into a single write.
+         *  The first apply schedules the write to happen once the window elapses; all the subsequent applies
+         *  made within the window are merged into the scheduled one.
+         *  The pending write can be performed immediately via {@link SharedPreferencesManager#flush()}
+         *  (or {@link SharedPreferencesManagerProvider#flush()}), which is meant to be called upon
+         *  the lifecycle events (e.g. when the app goes to the background).
+         *  The pending write is also performed by any commit of the manager (or of its transactions) made within the window,
+         *  prior to the changes of the commit itself, so the changes are always written in the order they were made.
+         *  <br>
+         *  Enabling the coalescing also enables the caching (see {@link #setCachingEnabled(boolean)}),
+         *  so that the values stay readable while their write is pending.
+         *
+         * @param applyCoalescingWindow the coalescing window in milliseconds (0 to disable the coalescing)
+         * @return the current instance of the {@link Builder}
+         */
+        @NonNull
+        public Builder setApplyCoalescingWindow(long applyCoalescingWindow) {
+            Preconditions.isTrue("The window must be non-negative", (applyCoalescingWindow >= 0L));
+
+            mApplyCoalescingWindow = applyCoalescingWindow;
+            return this;
+        }
+
+
+
+
+        /**
+         *  Sets the factory of the {@link PreferenceStore} the manager is to delegate the storing of the preferences to.
+         *  By default, the platform {@link android.content.SharedPreferences} are used (see {@link SharedPreferencesStore}).
+         *
+         * @param storeFactory the store factory
+         * @return the current instance of the {@link Builder}
+         */
+        @NonNull
+        public Builder setStoreFactory(@NonNull PreferenceStore.Factory storeFactory) {
+            Preconditions.nonNull(storeFactory);
+
+            mStoreFactory = storeFactory;
+            return this;
+        }
+
+
+
+
+        /**
+         *  Sets whether the latencies of the reads, writes, commits (applies) and object mappings performed by the manager
+         *  are to be recorded (see {@link PreferenceMetrics}). The recording is allocation-free and lock-free, but still
+         *  adds a couple of clock reads per operation, so it's disabled by default.
+         *
+         * @param isMetricsEnabled whether the metrics are to be recorded
+         * @return the current instance of the {@link Builder}
+         */
+        @NonNull
+        public Builder setMetricsEnabled(boolean isMetricsEnabled) {
+            mIsMetricsEnabled = isMetricsEnabled;
+            return this;
+        }
+
+
+
+
+        /**
+         *  Sets whether the manager is to skip the puts (removals) of the values equal to the current ones,
+         *  as well as the commits (applies) when there are no changes to be written. This way, re-saving an unchanged
+         *  preferences Object (see {@link SharedPreferencesManager#put(Object)}) involves no disk writes at all.
+         *  <br>
+         *  Enabling the dirty tracking also enables the caching (see {@link #setCachingEnabled(boolean)}),
+         *  as the values are compared against the cached ones (which include the not yet written changes).
+         *
+         * @param isDirtyTrackingEnabled whether the dirty tracking is to be enabled
+         * @return the current instance of the {@link Builder}
+         */
+        @NonNull
+        public Builder setDirtyTrackingEnabled(boolean isDirtyTrackingEnabled) {
+            mIsDirtyTrackingEnabled = isDirtyTrackingEnabled;
+            return this;
+        }
+
+
+
+
+        /**
+         *  Creates a new {@link SharedPreferencesManagerConfig} out of the current builder state.
+         *
+         * @return the new config
+         */
+        @NonNull
+        public SharedPreferencesManagerConfig build() {
+            return new SharedPreferencesManagerConfig(this);
+        }
+
+
+
+
+    }
+
+
+
+
+}
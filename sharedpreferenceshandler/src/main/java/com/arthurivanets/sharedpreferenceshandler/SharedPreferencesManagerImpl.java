@@ -17,15 +17,34 @@
 package com.arthurivanets.sharedpreferenceshandler;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 
+import com.arthurivanets.sharedpreferenceshandler.util.Mapper;
+import com.arthurivanets.sharedpreferenceshandler.util.Mappers;
 import com.arthurivanets.sharedpreferenceshandler.util.ObjectMappingUtil;
+import com.arthurivanets.sharedpreferenceshandler.store.PreferenceStore;
+import com.arthurivanets.sharedpreferenceshandler.util.BackgroundExecutors;
 import com.arthurivanets.sharedpreferenceshandler.util.Preconditions;
-
+import com.arthurivanets.sharedpreferenceshandler.util.TypeDetectingUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 
 /**
  * @author arthur3486
@@ -34,25 +53,129 @@ import androidx.annotation.Nullable;
 final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
 
 
-    private SharedPreferences mSharedPreferences;
-    private SharedPreferences.Editor mPreferenceEditor;
+    private volatile PreferenceStore mStore;
+    private PreferenceStore.Editor mPreferenceEditor;
+    private PreferenceCache mCache;
+
+    private final long mApplyCoalescingWindow;
+    private final AtomicBoolean mIsApplyScheduled;
+    private final Runnable mScheduledApplyTask;
+
+    /**
+     * Writes the changes the scheduled (coalesced) apply is pending for; run by the transactions (while holding the commit lock)
+     * prior to writing their own changes, so that the older changes of the manager can never be written over the newer ones of the transactions.
+     */
+    private final Runnable mPendingApplyWriter;
+
+    private final PreferenceChangeNotifier mChangeNotifier;
+    private final PreferenceMetrics mMetrics;
+
+    /**
+     * The executor of the asynchronous commits, which keeps them in the order of their submission.
+     */
+    private final ExecutorService mCommitExecutor;
+
+    /**
+     * The lock held for the duration of each commit (both the synchronous and the asynchronous one),
+     * so that the older changes can never be written over the newer ones.
+     */
+    private final Object mCommitLock;
+
+    /**
+     * The result of the final commit made by the {@link #recycle()}, which is reported by the asynchronous commits
+     * still pending upon the recycling, as their changes are written by it (guarded by the mCommitLock).
+     */
+    private boolean mFinalCommitResult;
+
+    private final boolean mIsDirtyTrackingEnabled;
+
+    /**
+     * Whether there are changes that are not yet handed over to the store (tracked only if the dirty tracking is enabled).
+     */
+    private final AtomicBoolean mHasUnwrittenChanges;
+
+    /**
+     * The keys changed since the last commit (apply), tracked only while there are subscriptions.
+     */
+    private final Set<String> mChangedKeys;
+
+
+
+
+    public static SharedPreferencesManagerImpl init(@NonNull Context context, @NonNull String sharedPreferencesFileName) {
+        return init(context, sharedPreferencesFileName, SharedPreferencesManagerConfig.DEFAULT);
+    }
+
+
+
+
+    public static SharedPreferencesManagerImpl init(@NonNull Context context,
+                                                    @NonNull String sharedPreferencesFileName,
+                                                    @NonNull SharedPreferencesManagerConfig config) {
+        Preconditions.nonNull(context);
+        Preconditions.nonEmpty(sharedPreferencesFileName);
+        Preconditions.nonNull(config);
+
+        return new SharedPreferencesManagerImpl(context.getApplicationContext(), sharedPreferencesFileName, config, null);
+    }
 
 
 
 
-    public static SharedPreferencesManager init(@NonNull Context context, @NonNull String sharedPreferencesFileName) {
+    static SharedPreferencesManagerImpl init(@NonNull Context context,
+                                             @NonNull String sharedPreferencesFileName,
+                                             @NonNull SharedPreferencesManagerConfig config,
+                                             @Nullable MainThreadIoDetector mainThreadIoDetector) {
         Preconditions.nonNull(context);
         Preconditions.nonEmpty(sharedPreferencesFileName);
+        Preconditions.nonNull(config);
 
-        return new SharedPreferencesManagerImpl(context.getApplicationContext(), sharedPreferencesFileName);
+        return new SharedPreferencesManagerImpl(context.getApplicationContext(), sharedPreferencesFileName, config, mainThreadIoDetector);
     }
 
 
 
 
-    private SharedPreferencesManagerImpl(Context context, String sharedPreferencesFileName) {
-        mSharedPreferences = context.getSharedPreferences(sharedPreferencesFileName, Context.MODE_PRIVATE);
-        mPreferenceEditor = mSharedPreferences.edit();
+    private SharedPreferencesManagerImpl(Context context,
+                                         String sharedPreferencesFileName,
+                                         SharedPreferencesManagerConfig config,
+                                         MainThreadIoDetector mainThreadIoDetector) {
+        final PreferenceStore store = config.getStoreFactory().create(context, sharedPreferencesFileName);
+
+        mMetrics = (config.isMetricsEnabled() ? new PreferenceMetrics(store) : null);
+        mStore = (((mMetrics != null) || (mainThreadIoDetector != null))
+            ? new InstrumentedPreferenceStore(store, sharedPreferencesFileName, mMetrics, mainThreadIoDetector)
+            : store);
+        mPreferenceEditor = mStore.edit();
+        mCache = (config.isCachingEnabled() ? new PreferenceCache(mStore) : null);
+        mApplyCoalescingWindow = config.getApplyCoalescingWindow();
+        mIsApplyScheduled = new AtomicBoolean(false);
+        mIsDirtyTrackingEnabled = config.isDirtyTrackingEnabled();
+        mHasUnwrittenChanges = new AtomicBoolean(false);
+        mChangeNotifier = new PreferenceChangeNotifier();
+        mCommitExecutor = BackgroundExecutors.newSerialExecutor("SharedPreferencesHandler-Commit");
+        mCommitLock = new Object();
+        mChangedKeys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        mScheduledApplyTask = new Runnable() {
+
+            @Override
+            public void run() {
+                synchronized(mCommitLock) {
+                    if(!isRecycled()) {
+                        writePendingApply();
+                    }
+                }
+            }
+
+        };
+        mPendingApplyWriter = new Runnable() {
+
+            @Override
+            public void run() {
+                writePendingApply();
+            }
+
+        };
     }
 
 
@@ -63,7 +186,16 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
         checkInternalState();
         Preconditions.nonEmpty(key);
 
+        if(mIsDirtyTrackingEnabled && isUnchanged(key, value)) {
+            return this;
+        }
+
         mPreferenceEditor.putBoolean(key, value);
+        markChanged(key);
+
+        if(mCache != null) {
+            mCache.put(key, value);
+        }
 
         return this;
     }
@@ -98,7 +230,16 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
         checkInternalState();
         Preconditions.nonEmpty(key);
 
+        if(mIsDirtyTrackingEnabled && isUnchanged(key, value)) {
+            return this;
+        }
+
         mPreferenceEditor.putFloat(key, value);
+        markChanged(key);
+
+        if(mCache != null) {
+            mCache.put(key, value);
+        }
 
         return this;
     }
@@ -133,7 +274,16 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
         checkInternalState();
         Preconditions.nonEmpty(key);
 
+        if(mIsDirtyTrackingEnabled && isUnchanged(key, value)) {
+            return this;
+        }
+
         mPreferenceEditor.putInt(key, value);
+        markChanged(key);
+
+        if(mCache != null) {
+            mCache.put(key, value);
+        }
 
         return this;
     }
@@ -168,7 +318,16 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
         checkInternalState();
         Preconditions.nonEmpty(key);
 
+        if(mIsDirtyTrackingEnabled && isUnchanged(key, value)) {
+            return this;
+        }
+
         mPreferenceEditor.putLong(key, value);
+        markChanged(key);
+
+        if(mCache != null) {
+            mCache.put(key, value);
+        }
 
         return this;
     }
@@ -203,7 +362,16 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
         checkInternalState();
         Preconditions.nonEmpty(key);
 
+        if(mIsDirtyTrackingEnabled && isUnchanged(key, value)) {
+            return this;
+        }
+
         mPreferenceEditor.putString(key, value);
+        markChanged(key);
+
+        if(mCache != null) {
+            mCache.put(key, value);
+        }
 
         return this;
     }
@@ -239,7 +407,16 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
         Preconditions.nonEmpty(key);
         Preconditions.nonNull(value);
 
+        if(mIsDirtyTrackingEnabled && isUnchanged(key, value)) {
+            return this;
+        }
+
         mPreferenceEditor.putStringSet(key, value);
+        markChanged(key);
+
+        if(mCache != null) {
+            mCache.put(key, value);
+        }
 
         return this;
     }
@@ -269,12 +446,247 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
 
 
 
+    @NonNull
+    @Override
+    @SuppressWarnings("unchecked")
+    public final SharedPreferencesManager putAll(@NonNull Map<String, ?> values) {
+        checkInternalState();
+        Preconditions.nonNull(values);
+
+        // validating all the entries upfront, so that either all or none of the values are put
+        for(Map.Entry<String, ?> entry : values.entrySet()) {
+            final Object value = entry.getValue();
+
+            Preconditions.nonEmpty(entry.getKey());
+
+            if((value != null)
+                && !(value instanceof Boolean)
+                && !(value instanceof Float)
+                && !(value instanceof Integer)
+                && !(value instanceof Long)
+                && !(value instanceof String)
+                && !(value instanceof Set)) {
+                throw new IllegalArgumentException("Unsupported value of " + entry.getKey() + ": " + value.getClass().getName());
+            }
+        }
+
+        final Map<String, ?> changes = (mIsDirtyTrackingEnabled ? filterChanges(values) : values);
+
+        for(Map.Entry<String, ?> entry : changes.entrySet()) {
+            final String key = entry.getKey();
+            final Object value = entry.getValue();
+
+            if(value == null) {
+                mPreferenceEditor.remove(key);
+            } else if(value instanceof Boolean) {
+                mPreferenceEditor.putBoolean(key, (Boolean) value);
+            } else if(value instanceof Float) {
+                mPreferenceEditor.putFloat(key, (Float) value);
+            } else if(value instanceof Integer) {
+                mPreferenceEditor.putInt(key, (Integer) value);
+            } else if(value instanceof Long) {
+                mPreferenceEditor.putLong(key, (Long) value);
+            } else if(value instanceof String) {
+                mPreferenceEditor.putString(key, (String) value);
+            } else {
+                mPreferenceEditor.putStringSet(key, (Set<String>) value);
+            }
+        }
+
+        if(mCache != null) {
+            mCache.putAll(changes);
+        }
+
+        for(String key : changes.keySet()) {
+            markChanged(key);
+        }
+
+        return this;
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public final SharedPreferencesManager putAll(@NonNull String[] keys, @NonNull boolean[] values) {
+        checkInternalState();
+        Preconditions.nonNull(values);
+        checkKeys(keys, values.length);
+
+        if(mIsDirtyTrackingEnabled) {
+            // putting the values one by one, so that the unchanged ones get skipped
+            // (the dirty tracking implies the caching, and the values are to be observed by the snapshots all at once)
+            synchronized(mCache.getBatchLock()) {
+                for(int i = 0; i < keys.length; i++) {
+                    put(keys[i], values[i]);
+                }
+            }
+
+            return this;
+        }
+
+        for(int i = 0; i < keys.length; i++) {
+            mPreferenceEditor.putBoolean(keys[i], values[i]);
+        }
+
+        if(mCache != null) {
+            // the values are to be observed by the snapshots all at once
+            synchronized(mCache.getBatchLock()) {
+                for(int i = 0; i < keys.length; i++) {
+                    mCache.put(keys[i], values[i]);
+                }
+            }
+        }
+
+        markChanged(keys);
+
+        return this;
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public final SharedPreferencesManager putAll(@NonNull String[] keys, @NonNull float[] values) {
+        checkInternalState();
+        Preconditions.nonNull(values);
+        checkKeys(keys, values.length);
+
+        if(mIsDirtyTrackingEnabled) {
+            // putting the values one by one, so that the unchanged ones get skipped
+            // (the dirty tracking implies the caching, and the values are to be observed by the snapshots all at once)
+            synchronized(mCache.getBatchLock()) {
+                for(int i = 0; i < keys.length; i++) {
+                    put(keys[i], values[i]);
+                }
+            }
+
+            return this;
+        }
+
+        for(int i = 0; i < keys.length; i++) {
+            mPreferenceEditor.putFloat(keys[i], values[i]);
+        }
+
+        if(mCache != null) {
+            // the values are to be observed by the snapshots all at once
+            synchronized(mCache.getBatchLock()) {
+                for(int i = 0; i < keys.length; i++) {
+                    mCache.put(keys[i], values[i]);
+                }
+            }
+        }
+
+        markChanged(keys);
+
+        return this;
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public final SharedPreferencesManager putAll(@NonNull String[] keys, @NonNull int[] values) {
+        checkInternalState();
+        Preconditions.nonNull(values);
+        checkKeys(keys, values.length);
+
+        if(mIsDirtyTrackingEnabled) {
+            // putting the values one by one, so that the unchanged ones get skipped
+            // (the dirty tracking implies the caching, and the values are to be observed by the snapshots all at once)
+            synchronized(mCache.getBatchLock()) {
+                for(int i = 0; i < keys.length; i++) {
+                    put(keys[i], values[i]);
+                }
+            }
+
+            return this;
+        }
+
+        for(int i = 0; i < keys.length; i++) {
+            mPreferenceEditor.putInt(keys[i], values[i]);
+        }
+
+        if(mCache != null) {
+            // the values are to be observed by the snapshots all at once
+            synchronized(mCache.getBatchLock()) {
+                for(int i = 0; i < keys.length; i++) {
+                    mCache.put(keys[i], values[i]);
+                }
+            }
+        }
+
+        markChanged(keys);
+
+        return this;
+    }
+
+
+
+
+    @NonNull
     @Override
+    public final SharedPreferencesManager putAll(@NonNull String[] keys, @NonNull long[] values) {
+        checkInternalState();
+        Preconditions.nonNull(values);
+        checkKeys(keys, values.length);
+
+        if(mIsDirtyTrackingEnabled) {
+            // putting the values one by one, so that the unchanged ones get skipped
+            // (the dirty tracking implies the caching, and the values are to be observed by the snapshots all at once)
+            synchronized(mCache.getBatchLock()) {
+                for(int i = 0; i < keys.length; i++) {
+                    put(keys[i], values[i]);
+                }
+            }
+
+            return this;
+        }
+
+        for(int i = 0; i < keys.length; i++) {
+            mPreferenceEditor.putLong(keys[i], values[i]);
+        }
+
+        if(mCache != null) {
+            // the values are to be observed by the snapshots all at once
+            synchronized(mCache.getBatchLock()) {
+                for(int i = 0; i < keys.length; i++) {
+                    mCache.put(keys[i], values[i]);
+                }
+            }
+        }
+
+        markChanged(keys);
+
+        return this;
+    }
+
+
+
+
+    @Override
+    @SuppressWarnings("unchecked")
     public final SharedPreferencesManager put(@NonNull Object object) {
         checkInternalState();
         Preconditions.nonNull(object);
 
-        ObjectMappingUtil.map(this, object);
+        final long startTime = ((mMetrics != null) ? System.nanoTime() : 0L);
+
+        // giving the preference to the compile-time generated mapper (if there's one)
+        final Mapper<Object> mapper = (Mapper<Object>) Mappers.get(object.getClass());
+
+        if(mapper != null) {
+            mapper.map(this, object);
+        } else {
+            ObjectMappingUtil.map(this, object);
+        }
+
+        if(mMetrics != null) {
+            mMetrics.record(PreferenceMetrics.Operation.OBJECT_MAPPING, object.getClass(), (System.nanoTime() - startTime));
+        }
 
         return this;
     }
@@ -309,7 +721,16 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
         checkInternalState();
         Preconditions.nonEmpty(key);
 
+        if(mIsDirtyTrackingEnabled && isUnchanged(key, null)) {
+            return this;
+        }
+
         mPreferenceEditor.remove(key);
+        markChanged(key);
+
+        if(mCache != null) {
+            mCache.remove(key);
+        }
 
         return this;
     }
@@ -345,7 +766,12 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
         checkInternalState();
         Preconditions.nonEmpty(key);
 
-        return mSharedPreferences.getBoolean(key, defaultValue);
+        if(mCache != null) {
+            final Object value = getCachedValue(key);
+            return ((value != null) ? (Boolean) value : defaultValue);
+        }
+
+        return mStore.getBoolean(key, defaultValue);
     }
 
 
@@ -356,7 +782,12 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
         checkInternalState();
         Preconditions.nonEmpty(key);
 
-        return mSharedPreferences.getFloat(key, defaultValue);
+        if(mCache != null) {
+            final Object value = getCachedValue(key);
+            return ((value != null) ? (Float) value : defaultValue);
+        }
+
+        return mStore.getFloat(key, defaultValue);
     }
 
 
@@ -367,7 +798,12 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
         checkInternalState();
         Preconditions.nonEmpty(key);
 
-        return mSharedPreferences.getInt(key, defaultValue);
+        if(mCache != null) {
+            final Object value = getCachedValue(key);
+            return ((value != null) ? (Integer) value : defaultValue);
+        }
+
+        return mStore.getInt(key, defaultValue);
     }
 
 
@@ -378,7 +814,12 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
         checkInternalState();
         Preconditions.nonEmpty(key);
 
-        return mSharedPreferences.getLong(key, defaultValue);
+        if(mCache != null) {
+            final Object value = getCachedValue(key);
+            return ((value != null) ? (Long) value : defaultValue);
+        }
+
+        return mStore.getLong(key, defaultValue);
     }
 
 
@@ -389,7 +830,12 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
         checkInternalState();
         Preconditions.nonEmpty(key);
 
-        return mSharedPreferences.getString(key, defaultValue);
+        if(mCache != null) {
+            final Object value = getCachedValue(key);
+            return ((value != null) ? (String) value : defaultValue);
+        }
+
+        return mStore.getString(key, defaultValue);
     }
 
 
@@ -400,7 +846,66 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
         checkInternalState();
         Preconditions.nonEmpty(key);
 
-        return mSharedPreferences.getStringSet(key, defaultValues);
+        if(mCache != null) {
+            final Object values = getCachedValue(key);
+            return ((values != null) ? TypeDetectingUtil.<Set<String>>inferType(values) : defaultValues);
+        }
+
+        return mStore.getStringSet(key, defaultValues);
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public final PreferencesSnapshot getAll(@NonNull Collection<String> keys) {
+        checkInternalState();
+        Preconditions.nonNull(keys);
+
+        if(mCache != null) {
+            final boolean isCacheLoaded = mCache.isLoaded();
+            final long startTime = ((mMetrics != null) ? System.nanoTime() : 0L);
+            final Map<String, Object> values = mCache.getAll(keys);
+            recordCachedRead(isCacheLoaded, startTime);
+
+            return new PreferencesSnapshot(values);
+        }
+
+        final Map<String, Object> values = new HashMap<>();
+
+        // a single read of the whole store is cheaper than a synchronized read per key
+        final Map<String, ?> allValues = mStore.getAll();
+
+        for(String key : keys) {
+            final Object value = allValues.get(key);
+
+            if(value != null) {
+                values.put(key, value);
+            }
+        }
+
+        return new PreferencesSnapshot(values);
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public final PreferencesSnapshot snapshot() {
+        checkInternalState();
+
+        if(mCache != null) {
+            final boolean isCacheLoaded = mCache.isLoaded();
+            final long startTime = ((mMetrics != null) ? System.nanoTime() : 0L);
+            final Map<String, Object> values = mCache.getAll();
+            recordCachedRead(isCacheLoaded, startTime);
+
+            return new PreferencesSnapshot(values);
+        }
+
+        return new PreferencesSnapshot(mStore.getAll());
     }
 
 
@@ -409,7 +914,28 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
     @Override
     public final <T> T get(@NonNull Class<T> objectClass) {
         Preconditions.nonNull(objectClass);
-        return ObjectMappingUtil.recover(this, objectClass);
+
+        final long startTime = ((mMetrics != null) ? System.nanoTime() : 0L);
+
+        // giving the preference to the compile-time generated mapper (if there's one)
+        final Mapper<T> mapper = Mappers.get(objectClass);
+        final T object = ((mapper != null) ? mapper.recover(this) : ObjectMappingUtil.recover(this, objectClass));
+
+        if(mMetrics != null) {
+            mMetrics.record(PreferenceMetrics.Operation.OBJECT_RECOVERY, objectClass, (System.nanoTime() - startTime));
+        }
+
+        return object;
+    }
+
+
+
+
+    @Override
+    public final SharedPreferencesTransaction edit() {
+        checkInternalState();
+
+        return new SharedPreferencesTransactionImpl(mStore.edit(), mCache, mChangeNotifier, mCommitExecutor, mCommitLock, mPendingApplyWriter);
     }
 
 
@@ -418,8 +944,52 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
     @Override
     public final void commit() {
         checkInternalState();
+        commitInternal();
+    }
+
 
-        mPreferenceEditor.commit();
+
+
+    @NonNull
+    @Override
+    public final CommitFuture commitAsync() {
+        checkInternalState();
+
+        final CommitTask task = new CommitTask(new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                synchronized(mCommitLock) {
+                    return (isRecycled() ? mFinalCommitResult : commitInternal());
+                }
+            }
+
+        });
+
+        mCommitExecutor.execute(task);
+
+        return task;
+    }
+
+
+
+
+    private boolean commitInternal() {
+        synchronized(mCommitLock) {
+            // the commit writes all the changes, including the ones the scheduled apply is pending for
+            final boolean isApplyPending = mIsApplyScheduled.getAndSet(false);
+
+            if(!takeUnwrittenChanges() && !isApplyPending) {
+                // there's nothing to write
+                return true;
+            }
+
+            final boolean isCommitted = mPreferenceEditor.commit();
+
+            dispatchChanges();
+
+            return isCommitted;
+        }
     }
 
 
@@ -429,7 +999,189 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
     public void apply() {
         checkInternalState();
 
-        mPreferenceEditor.apply();
+        if(!takeUnwrittenChanges()) {
+            // there's nothing to write (or the write is already scheduled)
+            return;
+        }
+
+        if(mApplyCoalescingWindow <= 0L) {
+            synchronized(mCommitLock) {
+                mPreferenceEditor.apply();
+            }
+        } else if(mIsApplyScheduled.compareAndSet(false, true)) {
+            // merging the apply into the already scheduled one (or scheduling a new one)
+            BackgroundExecutors.scheduler().schedule(mScheduledApplyTask, mApplyCoalescingWindow, TimeUnit.MILLISECONDS);
+        }
+
+        // the applied values are already readable (either from the store or from the cache)
+        dispatchChanges();
+    }
+
+
+
+
+    @Override
+    public final void flush() {
+        checkInternalState();
+
+        synchronized(mCommitLock) {
+            writePendingApply();
+        }
+    }
+
+
+
+
+    /**
+     *  Writes the changes the scheduled (coalesced) apply is pending for, if any.
+     *  To be called while holding the commit lock, so that the writes happen in the order of the changes.
+     */
+    private void writePendingApply() {
+        if(mIsApplyScheduled.compareAndSet(true, false)) {
+            mPreferenceEditor.apply();
+        }
+    }
+
+
+
+
+    /**
+     *  Blocks until the contents of the preferences file are loaded into memory
+     *  (into the cache, if the caching is enabled).
+     */
+    @WorkerThread
+    final void preload() {
+        checkInternalState();
+
+        if(mCache != null) {
+            mCache.load();
+        } else {
+            // any read awaits the completion of the initial loading of the file
+            mStore.contains("");
+        }
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public final PreferenceSubscription subscribe(@NonNull PreferenceKeyFilter filter,
+                                                 @NonNull Executor executor,
+                                                 @NonNull OnPreferencesChangeListener listener) {
+        return subscribe(filter, executor, 0L, listener);
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public final PreferenceSubscription subscribe(@NonNull PreferenceKeyFilter filter,
+                                                 @NonNull Executor executor,
+                                                 long batchWindow,
+                                                 @NonNull OnPreferencesChangeListener listener) {
+        checkInternalState();
+
+        return mChangeNotifier.subscribe(filter, executor, batchWindow, listener);
+    }
+
+
+
+
+    /**
+     *  Marks the specified key as changed; to be called once the change is handed over to the editor.
+     */
+    private void markChanged(String key) {
+        if(mIsDirtyTrackingEnabled) {
+            mHasUnwrittenChanges.set(true);
+        }
+
+        if(mChangeNotifier.hasSubscriptions()) {
+            mChangedKeys.add(key);
+        }
+    }
+
+
+
+
+    private void markChanged(String[] keys) {
+        if(mIsDirtyTrackingEnabled && (keys.length > 0)) {
+            mHasUnwrittenChanges.set(true);
+        }
+
+        if(mChangeNotifier.hasSubscriptions()) {
+            mChangedKeys.addAll(Arrays.asList(keys));
+        }
+    }
+
+
+
+
+    /**
+     *  Checks (and resets) whether there are changes to be written.
+     *
+     * @return true if there are (or the dirty tracking is disabled), false otherwise
+     */
+    private boolean takeUnwrittenChanges() {
+        return (!mIsDirtyTrackingEnabled || mHasUnwrittenChanges.getAndSet(false));
+    }
+
+
+
+
+    /**
+     *  Checks whether the specified value is equal to the current (cached) value associated with the specified key.
+     *  (the null value denotes the removal)
+     */
+    private boolean isUnchanged(String key, @Nullable Object value) {
+        final Object currentValue = mCache.get(key);
+        return ((value != null) ? value.equals(currentValue) : (currentValue == null));
+    }
+
+
+
+
+    private Map<String, Object> filterChanges(Map<String, ?> values) {
+        final Map<String, Object> changes = new HashMap<>(values.size());
+
+        for(Map.Entry<String, ?> entry : values.entrySet()) {
+            if(!isUnchanged(entry.getKey(), entry.getValue())) {
+                changes.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return changes;
+    }
+
+
+
+
+    /**
+     *  Notifies the subscribers of the keys changed since the last commit (apply).
+     */
+    private void dispatchChanges() {
+        if(mChangedKeys.isEmpty()) {
+            return;
+        }
+
+        final List<String> keys = new ArrayList<>(mChangedKeys.size());
+
+        for(Iterator<String> iterator = mChangedKeys.iterator(); iterator.hasNext();) {
+            keys.add(iterator.next());
+            iterator.remove();
+        }
+
+        mChangeNotifier.notifyChanged(keys);
+    }
+
+
+
+
+    @Nullable
+    @Override
+    public final PreferenceMetrics getMetrics() {
+        return mMetrics;
     }
 
 
@@ -437,7 +1189,7 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
 
     @Override
     public final boolean isRecycled() {
-        return (mSharedPreferences == null);
+        return (mStore == null);
     }
 
 
@@ -445,13 +1197,61 @@ final class SharedPreferencesManagerImpl implements SharedPreferencesManager {
 
     @Override
     public final void recycle() {
-        if(isRecycled()) {
-            return;
+        synchronized(mCommitLock) {
+            if(isRecycled()) {
+                return;
+            }
+
+            mFinalCommitResult = commitInternal();
+
+            if(mCache != null) {
+                mCache.clear();
+            }
+
+            mChangeNotifier.clear();
+            mChangedKeys.clear();
+
+            mStore = null;
+            mPreferenceEditor = null;
+            mCache = null;
+        }
+    }
+
+
+
+
+    private Object getCachedValue(String key) {
+        final boolean isCacheLoaded = mCache.isLoaded();
+        final long startTime = ((mMetrics != null) ? System.nanoTime() : 0L);
+        final Object value = mCache.get(key);
+        recordCachedRead(isCacheLoaded, startTime);
+
+        return value;
+    }
+
+
+
+
+    /**
+     *  Records the duration of the read served by the cache (the read that loads the cache
+     *  is already recorded by the store, as the {@link PreferenceMetrics.Operation#LOAD}).
+     */
+    private void recordCachedRead(boolean isCacheLoaded, long startTime) {
+        if((mMetrics != null) && isCacheLoaded) {
+            mMetrics.record(PreferenceMetrics.Operation.READ, (System.nanoTime() - startTime));
         }
+    }
 
-        mPreferenceEditor.commit();
-        mSharedPreferences = null;
-        mPreferenceEditor = null;
+
+
+
+    private static void checkKeys(String[] keys, int valueCount) {
+        Preconditions.nonNull(keys);
+        Preconditions.isTrue("The number of the keys must match the number of the values.", (keys.length == valueCount));
+
+        for(String key : keys) {
+            Preconditions.nonEmpty(key);
+        }
     }
 
 
@@ -18,10 +18,13 @@ package com.arthurivanets.sharedpreferenceshandler;
 
 import android.content.Context;
 
+import com.arthurivanets.sharedpreferenceshandler.util.BackgroundExecutors;
 import com.arthurivanets.sharedpreferenceshandler.util.Preconditions;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
 
 import androidx.annotation.NonNull;
 
@@ -36,12 +39,16 @@ import androidx.annotation.NonNull;
 public final class SharedPreferencesManagerProvider {
 
 
+    private static final int LOCK_STRIPE_COUNT = 16;
+
     @SuppressWarnings("StaticFieldLeak")
     private static volatile SharedPreferencesManagerProvider sInstance;
 
     private Context mContext;
 
-    private Map<String, SharedPreferencesManager> mFileSharedPreferencesMap;
+    private final ConcurrentMap<String, SharedPreferencesManagerImpl> mFileSharedPreferencesMap;
+    private final Object[] mLocks;
+    private final MainThreadIoDetector mMainThreadIoDetector;
 
 
 
@@ -71,7 +78,13 @@ public final class SharedPreferencesManagerProvider {
 
     private SharedPreferencesManagerProvider(Context context) {
         mContext = context;
-        mFileSharedPreferencesMap = new HashMap<>();
+        mFileSharedPreferencesMap = new ConcurrentHashMap<>();
+        mLocks = new Object[LOCK_STRIPE_COUNT];
+        mMainThreadIoDetector = new MainThreadIoDetector();
+
+        for(int i = 0; i < LOCK_STRIPE_COUNT; i++) {
+            mLocks[i] = new Object();
+        }
     }
 
 
@@ -86,33 +99,201 @@ public final class SharedPreferencesManagerProvider {
      */
     @NonNull
     public final SharedPreferencesManager get(@NonNull String sharedPreferencesFileName) {
+        return get(sharedPreferencesFileName, SharedPreferencesManagerConfig.DEFAULT);
+    }
+
+
+
+
+    /**
+     *  Creates or retrieves an existing instance of the {@link SharedPreferencesManager}
+     *  associated with the specified preferences file name.
+     *  The specified config is used only if a brand-new instance of the {@link SharedPreferencesManager} is to be created
+     *  (this is also the place to select the storage engine of the file, see
+     *  {@link SharedPreferencesManagerConfig.Builder#setStoreFactory(com.arthurivanets.sharedpreferenceshandler.store.PreferenceStore.Factory)}).
+     *  <br>
+     *  Can be safely called from any thread; the retrieval of the existing instances does not involve any locking,
+     *  whereas the creation of the new ones is guaranteed to happen only once per file.
+     *
+     * @param sharedPreferencesFileName the name of the preferences file
+     * @param config the configuration of the manager
+     * @return the corresponding instance of {@link SharedPreferencesManager}
+     */
+    @NonNull
+    public final SharedPreferencesManager get(@NonNull String sharedPreferencesFileName,
+                                              @NonNull SharedPreferencesManagerConfig config) {
         Preconditions.nonEmpty(sharedPreferencesFileName);
+        Preconditions.nonNull(config);
 
-        SharedPreferencesManager sharedPreferencesManager = mFileSharedPreferencesMap.get(sharedPreferencesFileName);
+        SharedPreferencesManagerImpl sharedPreferencesManager = mFileSharedPreferencesMap.get(sharedPreferencesFileName);
 
-        if((sharedPreferencesManager == null) || sharedPreferencesManager.isRecycled()) {
-            sharedPreferencesManager = SharedPreferencesManagerImpl.init(mContext, sharedPreferencesFileName);
+        if((sharedPreferencesManager != null) && !sharedPreferencesManager.isRecycled()) {
+            return sharedPreferencesManager;
         }
 
-        mFileSharedPreferencesMap.put(sharedPreferencesFileName, sharedPreferencesManager);
+        // the creation is guarded by the lock of the corresponding stripe, so that no duplicate managers get created
+        synchronized(getLock(sharedPreferencesFileName)) {
+            sharedPreferencesManager = mFileSharedPreferencesMap.get(sharedPreferencesFileName);
+
+            if((sharedPreferencesManager == null) || sharedPreferencesManager.isRecycled()) {
+                sharedPreferencesManager = SharedPreferencesManagerImpl.init(
+                    mContext,
+                    sharedPreferencesFileName,
+                    config,
+                    (mMainThreadIoDetector.isEnabled() ? mMainThreadIoDetector : null)
+                );
+                mFileSharedPreferencesMap.put(sharedPreferencesFileName, sharedPreferencesManager);
+            }
 
-        return sharedPreferencesManager;
+            return sharedPreferencesManager;
+        }
     }
 
 
 
 
     /**
-     *  Releases all the cached instances of the {@link SharedPreferencesManager}.
+     *  Asynchronously loads the specified preferences files into memory (creating the corresponding
+     *  instances of the {@link SharedPreferencesManager} along the way), so that the subsequent interactions
+     *  with the files do not block on the disk I/O.
+     *  Intended to be called as early as possible (e.g. during the Application creation).
+     *
+     * @param sharedPreferencesFileNames the names of the preferences files to preload
+     * @return a {@link Future} which is completed once all the files are loaded
      */
-    public final void recycle() {
+    @NonNull
+    public final Future<?> preload(@NonNull String... sharedPreferencesFileNames) {
+        return preload(SharedPreferencesManagerConfig.DEFAULT, sharedPreferencesFileNames);
+    }
+
+
+
+
+    /**
+     *  Asynchronously loads the specified preferences files into memory (creating the corresponding
+     *  instances of the {@link SharedPreferencesManager} with the specified config along the way), so that
+     *  the subsequent interactions with the files do not block on the disk I/O.
+     *  Intended to be called as early as possible (e.g. during the Application creation).
+     *
+     * @param config the configuration of the managers to be created
+     * @param sharedPreferencesFileNames the names of the preferences files to preload
+     * @return a {@link Future} which is completed once all the files are loaded
+     */
+    @NonNull
+    public final Future<?> preload(@NonNull final SharedPreferencesManagerConfig config,
+                                   @NonNull final String... sharedPreferencesFileNames) {
+        Preconditions.nonNull(config);
+        Preconditions.nonNull(sharedPreferencesFileNames);
+
+        for(String sharedPreferencesFileName : sharedPreferencesFileNames) {
+            Preconditions.nonEmpty(sharedPreferencesFileName);
+        }
+
+        return BackgroundExecutors.io().submit(new Runnable() {
+
+            @Override
+            public void run() {
+                for(String sharedPreferencesFileName : sharedPreferencesFileNames) {
+                    ((SharedPreferencesManagerImpl) get(sharedPreferencesFileName, config)).preload();
+                }
+            }
+
+        });
+    }
+
+
+
+
+    /**
+     *  Immediately performs the pending (coalesced) writes of all the cached instances of the {@link SharedPreferencesManager}.
+     *  Intended to be called upon the lifecycle events (e.g. when the app goes to the background).
+     *  (see {@link SharedPreferencesManager#flush()})
+     */
+    public final void flush() {
         for(SharedPreferencesManager sharedPreferencesManager : mFileSharedPreferencesMap.values()) {
             if(!sharedPreferencesManager.isRecycled()) {
-                sharedPreferencesManager.recycle();
+                sharedPreferencesManager.flush();
             }
         }
+    }
+
+
+
+
+    /**
+     *  Enables the debug mode, in which the blocking disk operations (the initial loading of the preferences files
+     *  and the commits, including the ones made by the put(remove)AndCommit methods and the {@link SharedPreferencesManager#recycle()})
+     *  performed on the main thread are reported to the specified reporter, along with their durations and stack traces.
+     *  <br>
+     *  Only the instances of the {@link SharedPreferencesManager} created after the enabling are monitored, so this is intended
+     *  to be called as early as possible (e.g. during the Application creation, in the debug builds).
+     *
+     * @param thresholdMillis the minimum duration (in milliseconds) of the operations to be reported, or 0 to report all of them
+     * @param reporter the reporter of the operations
+     */
+    public final void enableMainThreadIoDetection(long thresholdMillis, @NonNull MainThreadIoReporter reporter) {
+        Preconditions.isTrue("The threshold must not be negative.", (thresholdMillis >= 0L));
+        Preconditions.nonNull(reporter);
+
+        mMainThreadIoDetector.enable(thresholdMillis, reporter);
+    }
+
+
+
+
+    /**
+     *  Disables the reporting of the blocking disk operations performed on the main thread.
+     *  (see {@link #enableMainThreadIoDetection(long, MainThreadIoReporter)})
+     */
+    public final void disableMainThreadIoDetection() {
+        mMainThreadIoDetector.disable();
+    }
+
+
+
+
+    /**
+     *  Exports the metrics of all the cached instances of the {@link SharedPreferencesManager} the metrics of which are enabled
+     *  (see {@link SharedPreferencesManagerConfig.Builder#setMetricsEnabled(boolean)}) to the specified listener.
+     *  The listener is called on the calling thread, once per preferences file.
+     *
+     * @param listener the listener to export the metrics to
+     */
+    public final void reportMetrics(@NonNull OnMetricsReportListener listener) {
+        Preconditions.nonNull(listener);
+
+        for(Map.Entry<String, SharedPreferencesManagerImpl> entry : mFileSharedPreferencesMap.entrySet()) {
+            final PreferenceMetrics metrics = entry.getValue().getMetrics();
+
+            if((metrics != null) && !entry.getValue().isRecycled()) {
+                listener.onMetricsReport(entry.getKey(), metrics);
+            }
+        }
+    }
+
+
+
+
+    /**
+     *  Releases all the cached instances of the {@link SharedPreferencesManager}.
+     */
+    public final void recycle() {
+        for(String sharedPreferencesFileName : mFileSharedPreferencesMap.keySet()) {
+            synchronized(getLock(sharedPreferencesFileName)) {
+                final SharedPreferencesManager sharedPreferencesManager = mFileSharedPreferencesMap.remove(sharedPreferencesFileName);
+
+                if((sharedPreferencesManager != null) && !sharedPreferencesManager.isRecycled()) {
+                    sharedPreferencesManager.recycle();
+                }
+            }
+        }
+    }
+
+
+
 
-        mFileSharedPreferencesMap.clear();
+    private Object getLock(String sharedPreferencesFileName) {
+        return mLocks[(sharedPreferencesFileName.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPE_COUNT];
     }
 
 
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ *  {@link SharedPreferencesTransaction} is an isolated batch of preference changes, which are
+ *  made visible (and written into the corresponding preferences file) all at once, upon the {@link #commit()} or {@link #apply()}.
+ *  <br>
+ *  Unlike the changes made directly through the {@link SharedPreferencesManager}, the changes of a transaction
+ *  are never affected by (and never affect) the changes made by other threads, until the transaction is completed.
+ *  The transaction itself is not thread-safe and is intended to be used by a single thread.
+ *  A completed transaction cannot be reused.
+ *
+ * @author arthur3486
+ */
+
+public interface SharedPreferencesTransaction {
+
+    /**
+     *  Sets the boolean value in the current transaction.
+     *
+     * @param key the name of the preference to be modified
+     * @param value the new value for the preference
+     * @return the current instance of the {@link SharedPreferencesTransaction}
+     */
+    @NonNull
+    SharedPreferencesTransaction put(@NonNull String key, boolean value);
+
+    /**
+     *  Sets the float value in the current transaction.
+     *
+     * @param key the name of the preference to be modified
+     * @param value the new value for the preference
+     * @return the current instance of the {@link SharedPreferencesTransaction}
+     */
+    @NonNull
+    SharedPreferencesTransaction put(@NonNull String key, float value);
+
+    /**
+     *  Sets the int value in the current transaction.
+     *
+     * @param key the name of the preference to be modified
+     * @param value the new value for the preference
+     * @return the current instance of the {@link SharedPreferencesTransaction}
+     */
+    @NonNull
+    SharedPreferencesTransaction put(@NonNull String key, int value);
+
+    /**
+     *  Sets the long value in the current transaction.
+     *
+     * @param key the name of the preference to be modified
+     * @param value the new value for the preference
+     * @return the current instance of the {@link SharedPreferencesTransaction}
+     */
+    @NonNull
+    SharedPreferencesTransaction put(@NonNull String key, long value);
+
+    /**
+     *  Sets the String value in the current transaction.
+     *
+     * @param key the name of the preference to be modified
+     * @param value the new value for the preference
+     * @return the current instance of the {@link SharedPreferencesTransaction}
+     */
+    @NonNull
+    SharedPreferencesTransaction put(@NonNull String key, @Nullable String value);
+
+    /**
+     *  Sets the Set of String values in the current transaction.
+     *
+     * @param key the name of the preference to be modified
+     * @param value the new value for the preference
+     * @return the current instance of the {@link SharedPreferencesTransaction}
+     */
+    @NonNull
+    SharedPreferencesTransaction put(@NonNull String key, @NonNull Set<String> value);
+
+    /**
+     *  Removes the preference with the specified key within the current transaction.
+     *
+     * @param key the name of the preference to remove
+     * @return the current instance of the {@link SharedPreferencesTransaction}
+     */
+    @NonNull
+    SharedPreferencesTransaction remove(@NonNull String key);
+
+    /**
+     *  Completes the transaction by atomically writing all of its changes into the corresponding preferences file synchronously.
+     *  The changes become visible in memory (and are reported to the subscribers) only if the write succeeds.
+     *
+     * @return true if the changes were successfully written, false otherwise
+     */
+    boolean commit();
+
+    /**
+     *  Completes the transaction by atomically writing all of its changes into the corresponding preferences file
+     *  on the background commit thread of the manager (the commits of the manager are performed one at a time, in the order
+     *  of their submission). The changes become visible in memory (and are reported to the subscribers) only if the write succeeds.
+     *
+     * @return the handle of the commit, which completes with the result of the write
+     */
+    @NonNull
+    CommitFuture commitAsync();
+
+    /**
+     *  Completes the transaction by atomically applying all of its changes in memory and writing them into
+     *  the corresponding preferences file asynchronously.
+     */
+    void apply();
+
+}
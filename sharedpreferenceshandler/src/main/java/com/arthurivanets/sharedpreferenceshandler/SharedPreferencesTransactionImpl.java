@@ -0,0 +1,317 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.store.PreferenceStore;
+import com.arthurivanets.sharedpreferenceshandler.util.Preconditions;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * @author arthur3486
+ */
+
+final class SharedPreferencesTransactionImpl implements SharedPreferencesTransaction {
+
+
+    private final PreferenceStore.Editor mPreferenceEditor;
+    private final PreferenceCache mCache;
+
+    /**
+     * The changes to be written into the cache upon the completion of the transaction
+     * (the null values denote the removals).
+     */
+    private final Map<String, Object> mCacheChanges;
+
+    private final PreferenceChangeNotifier mChangeNotifier;
+    private final Set<String> mChangedKeys;
+
+    private final Executor mCommitExecutor;
+    private final Object mCommitLock;
+
+    /**
+     * Writes the pending (coalesced) apply of the manager, the changes of which precede the ones of the transaction.
+     */
+    private final Runnable mPendingApplyWriter;
+
+    private boolean mIsCompleted;
+
+
+
+
+    SharedPreferencesTransactionImpl(@NonNull PreferenceStore.Editor preferenceEditor,
+                                     @Nullable PreferenceCache cache,
+                                     @NonNull PreferenceChangeNotifier changeNotifier,
+                                     @NonNull Executor commitExecutor,
+                                     @NonNull Object commitLock,
+                                     @NonNull Runnable pendingApplyWriter) {
+        Preconditions.nonNull(preferenceEditor);
+        Preconditions.nonNull(changeNotifier);
+        Preconditions.nonNull(commitExecutor);
+        Preconditions.nonNull(commitLock);
+        Preconditions.nonNull(pendingApplyWriter);
+
+        mPreferenceEditor = preferenceEditor;
+        mCache = cache;
+        mCacheChanges = ((cache != null) ? new HashMap<String, Object>() : null);
+        mChangeNotifier = changeNotifier;
+        mChangedKeys = new HashSet<>();
+        mCommitExecutor = commitExecutor;
+        mCommitLock = commitLock;
+        mPendingApplyWriter = pendingApplyWriter;
+        mIsCompleted = false;
+    }
+
+
+
+
+    @Override
+    public final SharedPreferencesTransaction put(@NonNull String key, boolean value) {
+        checkInternalState();
+        Preconditions.nonEmpty(key);
+
+        mPreferenceEditor.putBoolean(key, value);
+        mChangedKeys.add(key);
+
+        if(mCacheChanges != null) {
+            mCacheChanges.put(key, value);
+        }
+
+        return this;
+    }
+
+
+
+
+    @Override
+    public final SharedPreferencesTransaction put(@NonNull String key, float value) {
+        checkInternalState();
+        Preconditions.nonEmpty(key);
+
+        mPreferenceEditor.putFloat(key, value);
+        mChangedKeys.add(key);
+
+        if(mCacheChanges != null) {
+            mCacheChanges.put(key, value);
+        }
+
+        return this;
+    }
+
+
+
+
+    @Override
+    public final SharedPreferencesTransaction put(@NonNull String key, int value) {
+        checkInternalState();
+        Preconditions.nonEmpty(key);
+
+        mPreferenceEditor.putInt(key, value);
+        mChangedKeys.add(key);
+
+        if(mCacheChanges != null) {
+            mCacheChanges.put(key, value);
+        }
+
+        return this;
+    }
+
+
+
+
+    @Override
+    public final SharedPreferencesTransaction put(@NonNull String key, long value) {
+        checkInternalState();
+        Preconditions.nonEmpty(key);
+
+        mPreferenceEditor.putLong(key, value);
+        mChangedKeys.add(key);
+
+        if(mCacheChanges != null) {
+            mCacheChanges.put(key, value);
+        }
+
+        return this;
+    }
+
+
+
+
+    @Override
+    public final SharedPreferencesTransaction put(@NonNull String key, @Nullable String value) {
+        checkInternalState();
+        Preconditions.nonEmpty(key);
+
+        mPreferenceEditor.putString(key, value);
+        mChangedKeys.add(key);
+
+        if(mCacheChanges != null) {
+            mCacheChanges.put(key, value);
+        }
+
+        return this;
+    }
+
+
+
+
+    @Override
+    public final SharedPreferencesTransaction put(@NonNull String key, @NonNull Set<String> value) {
+        checkInternalState();
+        Preconditions.nonEmpty(key);
+        Preconditions.nonNull(value);
+
+        mPreferenceEditor.putStringSet(key, value);
+        mChangedKeys.add(key);
+
+        if(mCacheChanges != null) {
+            mCacheChanges.put(key, new HashSet<>(value));
+        }
+
+        return this;
+    }
+
+
+
+
+    @Override
+    public final SharedPreferencesTransaction remove(@NonNull String key) {
+        checkInternalState();
+        Preconditions.nonEmpty(key);
+
+        mPreferenceEditor.remove(key);
+        mChangedKeys.add(key);
+
+        if(mCacheChanges != null) {
+            mCacheChanges.put(key, null);
+        }
+
+        return this;
+    }
+
+
+
+
+    @Override
+    public final boolean commit() {
+        complete();
+
+        return commitInternal();
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public final CommitFuture commitAsync() {
+        complete();
+
+        final CommitTask task = new CommitTask(new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                return commitInternal();
+            }
+
+        });
+
+        mCommitExecutor.execute(task);
+
+        return task;
+    }
+
+
+
+
+    /**
+     *  Writes the changes into the preferences file and, only if the write succeeds, into the cache
+     *  (the subscribers are notified of the successfully written changes only).
+     *  The pending apply of the manager is written first, as its changes precede the ones of the transaction.
+     */
+    private boolean commitInternal() {
+        synchronized(mCommitLock) {
+            mPendingApplyWriter.run();
+
+            final boolean isCommitted = mPreferenceEditor.commit();
+
+            if(isCommitted) {
+                updateCache();
+                mChangeNotifier.notifyChanged(mChangedKeys);
+            }
+
+            return isCommitted;
+        }
+    }
+
+
+
+
+    @Override
+    public final void apply() {
+        complete();
+
+        synchronized(mCommitLock) {
+            mPendingApplyWriter.run();
+
+            // the applied changes are visible in memory right away (the same way they are in the store)
+            updateCache();
+            mPreferenceEditor.apply();
+        }
+
+        mChangeNotifier.notifyChanged(mChangedKeys);
+    }
+
+
+
+
+    private void complete() {
+        checkInternalState();
+
+        mIsCompleted = true;
+    }
+
+
+
+
+    private void updateCache() {
+        if(mCache != null) {
+            mCache.putAll(mCacheChanges);
+        }
+    }
+
+
+
+
+    private void checkInternalState() {
+        if(mIsCompleted) {
+            throw new IllegalStateException("The transaction is already completed. Please begin a new transaction.");
+        }
+    }
+
+
+
+
+}
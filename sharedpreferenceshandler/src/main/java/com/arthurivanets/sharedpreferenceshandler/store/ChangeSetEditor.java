@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.store;
+
+import com.arthurivanets.sharedpreferenceshandler.util.Preconditions;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ *  A base {@link PreferenceStore.Editor}, which accumulates the changes in a change set
+ *  (where the removals are denoted by the {@link PreferenceCodec#REMOVED} sentinel) and hands them
+ *  over to the store upon the commit (apply).
+ *
+ * @author arthur3486
+ */
+
+abstract class ChangeSetEditor implements PreferenceStore.Editor {
+
+
+    private final Map<String, Object> mChanges = new HashMap<>();
+
+
+
+
+    @NonNull
+    @Override
+    public final PreferenceStore.Editor putBoolean(@NonNull String key, boolean value) {
+        return putValue(key, value);
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public final PreferenceStore.Editor putFloat(@NonNull String key, float value) {
+        return putValue(key, value);
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public final PreferenceStore.Editor putInt(@NonNull String key, int value) {
+        return putValue(key, value);
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public final PreferenceStore.Editor putLong(@NonNull String key, long value) {
+        return putValue(key, value);
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public final PreferenceStore.Editor putString(@NonNull String key, @Nullable String value) {
+        return putValue(key, ((value != null) ? value : PreferenceCodec.REMOVED));
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public final PreferenceStore.Editor putStringSet(@NonNull String key, @NonNull Set<String> values) {
+        Preconditions.nonNull(values);
+        return putValue(key, PreferenceCodec.copyOf(values));
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public final PreferenceStore.Editor remove(@NonNull String key) {
+        return putValue(key, PreferenceCodec.REMOVED);
+    }
+
+
+
+
+    private PreferenceStore.Editor putValue(String key, Object value) {
+        Preconditions.nonNull(key);
+
+        synchronized(mChanges) {
+            mChanges.put(key, value);
+        }
+
+        return this;
+    }
+
+
+
+
+    @Override
+    public final boolean commit() {
+        return commit(takeChanges());
+    }
+
+
+
+
+    @Override
+    public final void apply() {
+        apply(takeChanges());
+    }
+
+
+
+
+    private Map<String, Object> takeChanges() {
+        synchronized(mChanges) {
+            final Map<String, Object> changes = new HashMap<>(mChanges);
+            mChanges.clear();
+
+            return changes;
+        }
+    }
+
+
+
+
+    /**
+     *  Synchronously commits the specified change set to the store.
+     *
+     * @param changes the change set (the removals are denoted by the {@link PreferenceCodec#REMOVED})
+     * @return true if the changes were successfully written, false otherwise
+     */
+    protected abstract boolean commit(@NonNull Map<String, Object> changes);
+
+
+
+
+    /**
+     *  Asynchronously commits the specified change set to the store.
+     *
+     * @param changes the change set (the removals are denoted by the {@link PreferenceCodec#REMOVED})
+     */
+    protected abstract void apply(@NonNull Map<String, Object> changes);
+
+
+
+
+}
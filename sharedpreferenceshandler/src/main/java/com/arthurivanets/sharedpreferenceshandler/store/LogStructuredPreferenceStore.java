@@ -0,0 +1,684 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.store;
+
+import android.content.Context;
+
+import com.arthurivanets.sharedpreferenceshandler.util.BackgroundExecutors;
+import com.arthurivanets.sharedpreferenceshandler.util.Preconditions;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+/**
+ *  A {@link PreferenceStore} intended for the high-churn preferences files (counters, timestamps, sync cursors, etc.).
+ *  <br>
+ *  Rather than rewriting the whole file upon each commit, every put (remove) is appended to the log file as a separate
+ *  CRC-protected record, which makes the cost of a write proportional to the size of the change, not of the file.
+ *  The current values are held in an in-memory index, which is rebuilt by replaying the log upon the loading
+ *  (the large Strings are kept in a form of the raw bytes and are decoded only upon the first access).
+ *  <br>
+ *  Once the share of the stale records in the log exceeds the specified garbage ratio, the log is compacted
+ *  (rewritten to contain only the current values) on a background thread.
+ *  <br>
+ *  The torn (partially written) records at the tail of the log are detected via the CRC and are discarded during the loading.
+ *  A log that cannot be replayed is never appended to (nor compacted): the store stays unloaded
+ *  (reporting no values and retrying the loading upon the subsequent reads), its commits fail and its applies are discarded.
+ *
+ * @author arthur3486
+ */
+
+public final class LogStructuredPreferenceStore implements PreferenceStore, PreferenceStore.FileBacked {
+
+
+    /**
+     *  The default maximum share of the stale records in the log, past which the log gets compacted.
+     */
+    public static final float DEFAULT_MAX_GARBAGE_RATIO = 0.5f;
+
+    private static final int MIN_COMPACTION_RECORD_COUNT = 128;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final String DIRECTORY_NAME = "preference_logs";
+    private static final String FILE_EXTENSION = ".log";
+    private static final String TEMP_FILE_EXTENSION = ".tmp";
+
+    /**
+     *  The factory of the {@link LogStructuredPreferenceStore}s, which uses the {@link #DEFAULT_MAX_GARBAGE_RATIO}.
+     */
+    public static final Factory FACTORY = newFactory(DEFAULT_MAX_GARBAGE_RATIO);
+
+
+    private final File mFile;
+    private final float mMaxGarbageRatio;
+
+    private final Map<String, Object> mValues;
+
+    private final Object mLock;
+    private final Object mFileLock;
+
+    private final ByteArrayOutputStream mPendingRecords;
+    private final DataOutputStream mPendingRecordsOutput;
+
+    /**
+     * The encoder of the pending records (guarded by the mLock); the compaction uses an encoder of its own.
+     */
+    private final RecordEncoder mRecordEncoder;
+
+    private int mPendingRecordCount;
+    private int mRecordCount;
+
+    private OutputStream mOutput;
+
+    private volatile boolean mIsLoaded;
+    private final AtomicBoolean mIsWriteScheduled;
+    private final AtomicBoolean mIsCompactionScheduled;
+
+    private final Runnable mLoadingTask = new Runnable() {
+
+        @Override
+        public void run() {
+            ensureLoaded();
+        }
+
+    };
+
+    private final Runnable mWritingTask = new Runnable() {
+
+        @Override
+        public void run() {
+            mIsWriteScheduled.set(false);
+            writePendingRecords(false);
+        }
+
+    };
+
+    private final Runnable mCompactionTask = new Runnable() {
+
+        @Override
+        public void run() {
+            try {
+                compact();
+            } finally {
+                mIsCompactionScheduled.set(false);
+            }
+        }
+
+    };
+
+
+
+
+    /**
+     *  Creates a factory of the {@link LogStructuredPreferenceStore}s, which compacts the logs
+     *  once the share of the stale records exceeds the specified ratio.
+     *
+     * @param maxGarbageRatio the maximum share of the stale records, must be within the (0, 1) range
+     * @return the factory
+     */
+    @NonNull
+    public static Factory newFactory(final float maxGarbageRatio) {
+        Preconditions.isTrue("The garbage ratio must be within the (0, 1) range.", ((maxGarbageRatio > 0f) && (maxGarbageRatio < 1f)));
+
+        return new Factory() {
+
+            @NonNull
+            @Override
+            public PreferenceStore create(@NonNull Context context, @NonNull String fileName) {
+                Preconditions.nonNull(context);
+                Preconditions.nonEmpty(fileName);
+
+                final File directory = context.getDir(DIRECTORY_NAME, Context.MODE_PRIVATE);
+                final LogStructuredPreferenceStore store = new LogStructuredPreferenceStore(
+                    new File(directory, (fileName + FILE_EXTENSION)),
+                    maxGarbageRatio
+                );
+
+                // loading the log in the background, so that the first read is less likely to block
+                BackgroundExecutors.io().execute(store.mLoadingTask);
+
+                return store;
+            }
+
+        };
+    }
+
+
+
+
+    private LogStructuredPreferenceStore(File file, float maxGarbageRatio) {
+        mFile = file;
+        mMaxGarbageRatio = maxGarbageRatio;
+        mValues = new ConcurrentHashMap<>();
+        mLock = new Object();
+        mFileLock = new Object();
+        mPendingRecords = new ByteArrayOutputStream();
+        mPendingRecordsOutput = new DataOutputStream(mPendingRecords);
+        mRecordEncoder = new RecordEncoder();
+        mIsLoaded = false;
+        mIsWriteScheduled = new AtomicBoolean(false);
+        mIsCompactionScheduled = new AtomicBoolean(false);
+    }
+
+
+
+
+    /**
+     *  Replays the log, unless it's already replayed.
+     *
+     * @return true if the log is replayed, false if the replaying has failed (the store then stays unloaded)
+     */
+    private boolean ensureLoaded() {
+        if(mIsLoaded) {
+            return true;
+        }
+
+        synchronized(mLock) {
+            if(mIsLoaded) {
+                return true;
+            }
+
+            try {
+                mRecordCount = replayLog();
+            } catch(IOException e) {
+                e.printStackTrace();
+
+                // the partially rebuilt index is not to be mistaken for the complete one
+                mValues.clear();
+
+                return false;
+            }
+
+            mIsLoaded = true;
+
+            return true;
+        }
+    }
+
+
+
+
+    /**
+     *  Rebuilds the in-memory index by replaying all the valid records of the log
+     *  (discarding the torn or corrupted tail of the log, if any).
+     *
+     * @return the number of the replayed records
+     */
+    private int replayLog() throws IOException {
+        if(!mFile.exists()) {
+            return 0;
+        }
+
+        final RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+
+        try {
+            final byte[] bytes = new byte[(int) file.length()];
+            file.readFully(bytes);
+
+            final CRC32 checksum = new CRC32();
+            int recordCount = 0;
+            int offset = 0;
+
+            while((offset + RECORD_HEADER_SIZE) <= bytes.length) {
+                final int payloadLength = readInt(bytes, offset);
+                final int payloadChecksum = readInt(bytes, (offset + 4));
+                final int payloadOffset = (offset + RECORD_HEADER_SIZE);
+
+                if((payloadLength < 0) || (payloadLength > (bytes.length - payloadOffset))) {
+                    break;
+                }
+
+                checksum.reset();
+                checksum.update(bytes, payloadOffset, payloadLength);
+
+                if(((int) checksum.getValue()) != payloadChecksum) {
+                    break;
+                }
+
+                final DataInputStream payload = new DataInputStream(new ByteArrayInputStream(bytes, payloadOffset, payloadLength));
+                final String key = PreferenceCodec.readString(payload);
+                final Object value = PreferenceCodec.readValue(payload, true);
+
+                if(value == PreferenceCodec.REMOVED) {
+                    mValues.remove(key);
+                } else {
+                    mValues.put(key, value);
+                }
+
+                recordCount++;
+                offset = (payloadOffset + payloadLength);
+            }
+
+            // dropping the torn tail, so that the subsequent records are appended right after the last valid one
+            if(offset < bytes.length) {
+                file.setLength(offset);
+            }
+
+            return recordCount;
+        } finally {
+            file.close();
+        }
+    }
+
+
+
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (((bytes[offset] & 0xff) << 24)
+            | ((bytes[offset + 1] & 0xff) << 16)
+            | ((bytes[offset + 2] & 0xff) << 8)
+            | (bytes[offset + 3] & 0xff));
+    }
+
+
+
+
+    /**
+     *  Applies the specified changes to the in-memory index and appends the corresponding records
+     *  to the pending (not yet written) records.
+     *
+     * @return true if the changes were enqueued, false if the log could not be replayed
+     */
+    private boolean enqueue(Map<String, Object> changes) {
+        if(!ensureLoaded()) {
+            return false;
+        }
+
+        synchronized(mLock) {
+            for(Map.Entry<String, Object> change : changes.entrySet()) {
+                final String key = change.getKey();
+                final Object value = change.getValue();
+
+                if(value == PreferenceCodec.REMOVED) {
+                    mValues.remove(key);
+                } else {
+                    mValues.put(key, value);
+                }
+
+                try {
+                    mRecordEncoder.append(mPendingRecordsOutput, key, value);
+                } catch(IOException e) {
+                    // cannot happen with in-memory streams
+                    throw new IllegalStateException(e);
+                }
+
+                mPendingRecordCount++;
+                mRecordCount++;
+            }
+        }
+
+        return true;
+    }
+
+
+
+
+    /**
+     *  Appends all the pending records to the log file.
+     *
+     * @param sync whether the written data is to be synced to the storage device
+     * @return true if the records were successfully written, false otherwise
+     */
+    private boolean writePendingRecords(boolean sync) {
+        boolean isSuccessful = true;
+
+        synchronized(mFileLock) {
+            final byte[] records;
+
+            synchronized(mLock) {
+                records = mPendingRecords.toByteArray();
+                mPendingRecords.reset();
+                mPendingRecordCount = 0;
+            }
+
+            try {
+                if(mOutput == null) {
+                    mOutput = new FileOutputStream(mFile, true);
+                }
+
+                mOutput.write(records);
+                mOutput.flush();
+
+                if(sync) {
+                    ((FileOutputStream) mOutput).getFD().sync();
+                }
+            } catch(IOException e) {
+                e.printStackTrace();
+
+                // the log might now end with a torn record, so it is to be rewritten from the in-memory index
+                closeOutput();
+                isSuccessful = false;
+            }
+        }
+
+        if(!isSuccessful || isCompactionNeeded()) {
+            scheduleCompaction();
+        }
+
+        return isSuccessful;
+    }
+
+
+
+
+    private boolean isCompactionNeeded() {
+        synchronized(mLock) {
+            final int garbageRecordCount = (mRecordCount - mValues.size());
+
+            return ((mRecordCount >= MIN_COMPACTION_RECORD_COUNT) && (garbageRecordCount > (mMaxGarbageRatio * mRecordCount)));
+        }
+    }
+
+
+
+
+    private void scheduleCompaction() {
+        if(mIsCompactionScheduled.compareAndSet(false, true)) {
+            BackgroundExecutors.io().execute(mCompactionTask);
+        }
+    }
+
+
+
+
+    /**
+     *  Rewrites the log to contain only the current values. The log is written into a temporary file,
+     *  which then atomically replaces the original one.
+     *  <br>
+     *  The in-memory index remains readable (and writable) throughout the compaction;
+     *  the records produced in the meantime are kept pending until the compaction is completed.
+     */
+    @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
+    void compact() {
+        // the log that could not be replayed is not to be rewritten from the (missing) index
+        if(!mIsLoaded) {
+            return;
+        }
+
+        final File tempFile = new File(mFile.getPath() + TEMP_FILE_EXTENSION);
+
+        synchronized(mFileLock) {
+            final Map<String, Object> snapshot;
+            final int coveredByteCount;
+            final int coveredRecordCount;
+
+            // the pending records are covered by the snapshot, as they are already applied to the index
+            synchronized(mLock) {
+                snapshot = new HashMap<>(mValues);
+                coveredByteCount = mPendingRecords.size();
+                coveredRecordCount = mPendingRecordCount;
+            }
+
+            try {
+                writeSnapshot(tempFile, snapshot);
+                closeOutput();
+
+                if(!tempFile.renameTo(mFile)) {
+                    throw new IOException("Could not replace " + mFile + " with the compacted log.");
+                }
+            } catch(IOException e) {
+                e.printStackTrace();
+                tempFile.delete();
+
+                return;
+            }
+
+            synchronized(mLock) {
+                final byte[] pendingRecords = mPendingRecords.toByteArray();
+
+                mPendingRecords.reset();
+                mPendingRecords.write(pendingRecords, coveredByteCount, (pendingRecords.length - coveredByteCount));
+                mPendingRecordCount -= coveredRecordCount;
+                mRecordCount = (snapshot.size() + mPendingRecordCount);
+            }
+        }
+    }
+
+
+
+
+    private void writeSnapshot(File file, Map<String, Object> snapshot) throws IOException {
+        final FileOutputStream fileOutput = new FileOutputStream(file);
+
+        try {
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput));
+
+            // encoding with the compaction-private buffers, so that the writers are not blocked by the (slow) file output
+            final RecordEncoder recordEncoder = new RecordEncoder();
+
+            for(Map.Entry<String, Object> entry : snapshot.entrySet()) {
+                recordEncoder.append(output, entry.getKey(), entry.getValue());
+            }
+
+            output.flush();
+            fileOutput.getFD().sync();
+        } finally {
+            fileOutput.close();
+        }
+    }
+
+
+
+
+    private void closeOutput() {
+        if(mOutput == null) {
+            return;
+        }
+
+        try {
+            mOutput.close();
+        } catch(IOException e) {
+            e.printStackTrace();
+        }
+
+        mOutput = null;
+    }
+
+
+
+
+    private Object getValue(String key) {
+        if(!ensureLoaded()) {
+            return null;
+        }
+
+        final Object value = mValues.get(key);
+
+        if(value instanceof PreferenceCodec.EncodedString) {
+            final Object decodedValue = PreferenceCodec.decode(value);
+
+            // replacing the encoded value (unless it was overwritten in the meantime), so that it is decoded only once
+            mValues.replace(key, value, decodedValue);
+
+            return decodedValue;
+        }
+
+        return value;
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public Map<String, ?> getAll() {
+        if(!ensureLoaded()) {
+            return new HashMap<>();
+        }
+
+        final Map<String, Object> values = new HashMap<>(mValues);
+
+        for(Map.Entry<String, Object> entry : values.entrySet()) {
+            entry.setValue(PreferenceCodec.decode(entry.getValue()));
+        }
+
+        return values;
+    }
+
+
+
+
+    @Override
+    public boolean contains(@NonNull String key) {
+        return (getValue(key) != null);
+    }
+
+
+
+
+    @Override
+    public boolean getBoolean(@NonNull String key, boolean defaultValue) {
+        final Object value = getValue(key);
+        return ((value != null) ? (Boolean) value : defaultValue);
+    }
+
+
+
+
+    @Override
+    public float getFloat(@NonNull String key, float defaultValue) {
+        final Object value = getValue(key);
+        return ((value != null) ? (Float) value : defaultValue);
+    }
+
+
+
+
+    @Override
+    public int getInt(@NonNull String key, int defaultValue) {
+        final Object value = getValue(key);
+        return ((value != null) ? (Integer) value : defaultValue);
+    }
+
+
+
+
+    @Override
+    public long getLong(@NonNull String key, long defaultValue) {
+        final Object value = getValue(key);
+        return ((value != null) ? (Long) value : defaultValue);
+    }
+
+
+
+
+    @Nullable
+    @Override
+    public String getString(@NonNull String key, @Nullable String defaultValue) {
+        final Object value = getValue(key);
+        return ((value != null) ? (String) value : defaultValue);
+    }
+
+
+
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    @Override
+    public Set<String> getStringSet(@NonNull String key, @Nullable Set<String> defaultValues) {
+        final Object value = getValue(key);
+        return ((value != null) ? (Set<String>) value : defaultValues);
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public File getFile() {
+        return mFile;
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public Editor edit() {
+        return new ChangeSetEditor() {
+
+            @Override
+            protected boolean commit(@NonNull Map<String, Object> changes) {
+                return (enqueue(changes) && writePendingRecords(true));
+            }
+
+            @Override
+            protected void apply(@NonNull Map<String, Object> changes) {
+                if(!enqueue(changes)) {
+                    return;
+                }
+
+                if(mIsWriteScheduled.compareAndSet(false, true)) {
+                    BackgroundExecutors.io().execute(mWritingTask);
+                }
+            }
+
+        };
+    }
+
+
+
+
+    /**
+     *  Encodes the records (the key-value pairs, prefixed with the length and the CRC of the payload),
+     *  reusing its scratch buffers across the records. Not thread-safe.
+     */
+    private static final class RecordEncoder {
+
+        private final ByteArrayOutputStream mPayload = new ByteArrayOutputStream();
+        private final DataOutputStream mPayloadOutput = new DataOutputStream(mPayload);
+        private final CRC32 mChecksum = new CRC32();
+
+        void append(DataOutputStream output, String key, Object value) throws IOException {
+            mPayload.reset();
+            PreferenceCodec.writeString(mPayloadOutput, key);
+            PreferenceCodec.writeValue(mPayloadOutput, value);
+            mPayloadOutput.flush();
+
+            mChecksum.reset();
+            mChecksum.update(mPayload.toByteArray(), 0, mPayload.size());
+
+            output.writeInt(mPayload.size());
+            output.writeInt((int) mChecksum.getValue());
+            mPayload.writeTo(output);
+        }
+
+    }
+
+
+
+
+}
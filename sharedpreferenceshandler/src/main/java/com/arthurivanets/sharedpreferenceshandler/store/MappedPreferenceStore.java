@@ -0,0 +1,790 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.store;
+
+import android.content.Context;
+
+import com.arthurivanets.sharedpreferenceshandler.util.BackgroundExecutors;
+import com.arthurivanets.sharedpreferenceshandler.util.Preconditions;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ *  A {@link PreferenceStore} intended for the large, read-mostly preferences files (e.g. configs with thousands of keys).
+ *  <br>
+ *  The preferences are kept in a compact binary file, which is memory-mapped (rather than parsed) upon the loading,
+ *  so opening the file involves no decoding (merely a single pass validating the bounds of the entries),
+ *  and the individual values are decoded only when read.
+ *  The file consists of:
+ *  <ul>
+ *      <li>the header - the magic number, the format version, the number of the entries and the offsets of the regions;</li>
+ *      <li>the key table - the fixed-size entries (key offset, key length, value offset) sorted by the UTF-8 bytes of the keys,
+ *      which makes the lookups a binary search;</li>
+ *      <li>the key region - the UTF-8 bytes of the keys;</li>
+ *      <li>the value region - the typed values (see {@link PreferenceCodec}).</li>
+ *  </ul>
+ *  The uncommitted (not yet written) changes are held in an in-memory overlay on top of the mapped file.
+ *  Each commit rewrites the file (into a temporary one, which then atomically replaces the original), so the store
+ *  is not suited for the frequently changing preferences (see {@link LogStructuredPreferenceStore}).
+ *  <br>
+ *  A file that cannot be mapped (or fails the validation) is never overwritten: the store stays unloaded
+ *  (reporting no values and retrying the loading upon the subsequent reads), and its commits fail.
+ *
+ * @author arthur3486
+ */
+
+public final class MappedPreferenceStore implements PreferenceStore, PreferenceStore.FileBacked {
+
+
+    private static final int MAGIC = 0x5350484D;
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 20;
+    private static final int KEY_TABLE_ENTRY_SIZE = 12;
+
+    private static final String DIRECTORY_NAME = "preference_maps";
+    private static final String FILE_EXTENSION = ".bin";
+    private static final String TEMP_FILE_EXTENSION = ".tmp";
+
+    private static final Comparator<byte[]> KEY_COMPARATOR = new Comparator<byte[]>() {
+
+        @Override
+        public int compare(byte[] first, byte[] second) {
+            final int length = Math.min(first.length, second.length);
+
+            for(int i = 0; i < length; i++) {
+                final int difference = ((first[i] & 0xff) - (second[i] & 0xff));
+
+                if(difference != 0) {
+                    return difference;
+                }
+            }
+
+            return (first.length - second.length);
+        }
+
+    };
+
+    /**
+     *  The factory of the {@link MappedPreferenceStore}s.
+     */
+    public static final Factory FACTORY = new Factory() {
+
+        @NonNull
+        @Override
+        public PreferenceStore create(@NonNull Context context, @NonNull String fileName) {
+            Preconditions.nonNull(context);
+            Preconditions.nonEmpty(fileName);
+
+            final File directory = context.getDir(DIRECTORY_NAME, Context.MODE_PRIVATE);
+            final MappedPreferenceStore store = new MappedPreferenceStore(new File(directory, (fileName + FILE_EXTENSION)));
+
+            // mapping the file in the background, so that the first read is less likely to block
+            BackgroundExecutors.io().execute(store.mLoadingTask);
+
+            return store;
+        }
+
+    };
+
+
+    private final File mFile;
+
+    private final Map<String, Object> mOverlay;
+
+    private final Object mLock;
+    private final Object mFileLock;
+
+    private volatile Mapping mMapping;
+    private volatile boolean mIsLoaded;
+
+    private final AtomicBoolean mIsWriteScheduled;
+
+    private final Runnable mLoadingTask = new Runnable() {
+
+        @Override
+        public void run() {
+            ensureLoaded();
+        }
+
+    };
+
+    private final Runnable mWritingTask = new Runnable() {
+
+        @Override
+        public void run() {
+            mIsWriteScheduled.set(false);
+            writeChanges();
+        }
+
+    };
+
+
+
+
+    private MappedPreferenceStore(File file) {
+        mFile = file;
+        mOverlay = new ConcurrentHashMap<>();
+        mLock = new Object();
+        mFileLock = new Object();
+        mMapping = null;
+        mIsLoaded = false;
+        mIsWriteScheduled = new AtomicBoolean(false);
+    }
+
+
+
+
+    /**
+     *  Maps the file, unless it's already mapped.
+     *
+     * @return true if the file is mapped, false if the mapping has failed (the store then stays unloaded)
+     */
+    private boolean ensureLoaded() {
+        if(mIsLoaded) {
+            return true;
+        }
+
+        synchronized(mLock) {
+            if(mIsLoaded) {
+                return true;
+            }
+
+            try {
+                map();
+            } catch(IOException e) {
+                e.printStackTrace();
+                return false;
+            }
+
+            mIsLoaded = true;
+
+            return true;
+        }
+    }
+
+
+
+
+    /**
+     *  Maps the current file into memory (validating its header and the bounds of its entries along the way).
+     *  The missing file is treated as an empty one, whereas the malformed one results in an {@link IOException}.
+     */
+    private void map() throws IOException {
+        if(!mFile.exists() || (mFile.length() == 0L)) {
+            mMapping = null;
+            return;
+        }
+
+        final RandomAccessFile file = new RandomAccessFile(mFile, "r");
+
+        try {
+            final FileChannel channel = file.getChannel();
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+            final int entryCount = readHeader(buffer);
+
+            validateEntries(buffer, entryCount);
+
+            // the mapping remains valid after the channel is closed
+            mMapping = ((entryCount > 0) ? new Mapping(buffer, entryCount) : null);
+        } finally {
+            file.close();
+        }
+    }
+
+
+
+
+    private static int readHeader(ByteBuffer buffer) throws IOException {
+        if(buffer.capacity() < HEADER_SIZE) {
+            throw new IOException("Malformed preferences file: truncated header.");
+        }
+
+        final int magic = buffer.getInt(0);
+        final int version = buffer.getInt(4);
+        final int entryCount = buffer.getInt(8);
+        final int keyRegionOffset = buffer.getInt(12);
+        final int valueRegionOffset = buffer.getInt(16);
+
+        if((magic != MAGIC) || (version != VERSION)) {
+            throw new IOException("Malformed preferences file: unsupported format.");
+        }
+
+        if((entryCount < 0)
+            || (keyRegionOffset != (HEADER_SIZE + (entryCount * KEY_TABLE_ENTRY_SIZE)))
+            || (valueRegionOffset < keyRegionOffset)
+            || (valueRegionOffset > buffer.capacity())) {
+            throw new IOException("Malformed preferences file: inconsistent header.");
+        }
+
+        return entryCount;
+    }
+
+
+
+
+    /**
+     *  Validates the bounds of the keys and of the values of all the entries of the key table, so that the subsequent reads
+     *  never run past the regions of the file (the values themselves are not decoded).
+     */
+    private static void validateEntries(ByteBuffer buffer, int entryCount) throws IOException {
+        final int keyRegionOffset = buffer.getInt(12);
+        final int valueRegionOffset = buffer.getInt(16);
+
+        for(int i = 0; i < entryCount; i++) {
+            final int entryOffset = (HEADER_SIZE + (i * KEY_TABLE_ENTRY_SIZE));
+            final int keyOffset = buffer.getInt(entryOffset);
+            final int keyLength = buffer.getInt(entryOffset + 4);
+            final int valueOffset = buffer.getInt(entryOffset + 8);
+
+            if((keyOffset < keyRegionOffset)
+                || (keyLength < 0)
+                || (((long) keyOffset + keyLength) > valueRegionOffset)
+                || (valueOffset < valueRegionOffset)
+                || !isValueWithinBounds(buffer, valueOffset)) {
+                throw new IOException("Malformed preferences file: the entry " + i + " is out of bounds.");
+            }
+        }
+    }
+
+
+
+
+    /**
+     *  Checks whether the value at the specified offset is of a known type and ends within the buffer.
+     */
+    private static boolean isValueWithinBounds(ByteBuffer buffer, int offset) {
+        final long capacity = buffer.capacity();
+
+        if(offset >= capacity) {
+            return false;
+        }
+
+        switch(buffer.get(offset)) {
+
+            case PreferenceCodec.TYPE_BOOLEAN:
+                return ((offset + 2L) <= capacity);
+
+            case PreferenceCodec.TYPE_FLOAT:
+            case PreferenceCodec.TYPE_INT:
+                return ((offset + 5L) <= capacity);
+
+            case PreferenceCodec.TYPE_LONG:
+                return ((offset + 9L) <= capacity);
+
+            case PreferenceCodec.TYPE_STRING:
+                return isStringWithinBounds(buffer, (offset + 1L));
+
+            case PreferenceCodec.TYPE_STRING_SET:
+                if((offset + 5L) > capacity) {
+                    return false;
+                }
+
+                final int size = buffer.getInt(offset + 1);
+                long position = (offset + 5L);
+
+                if(size < 0) {
+                    return false;
+                }
+
+                // each string takes at least 4 bytes, so the loop ends as soon as the buffer is exceeded
+                for(int i = 0; i < size; i++) {
+                    if(!isStringWithinBounds(buffer, position)) {
+                        return false;
+                    }
+
+                    position += (4L + buffer.getInt((int) position));
+                }
+
+                return true;
+
+            default:
+                return false;
+
+        }
+    }
+
+
+
+
+    private static boolean isStringWithinBounds(ByteBuffer buffer, long offset) {
+        if((offset + 4L) > buffer.capacity()) {
+            return false;
+        }
+
+        final int length = buffer.getInt((int) offset);
+
+        return ((length >= 0) && ((offset + 4L + length) <= buffer.capacity()));
+    }
+
+
+
+
+    /**
+     *  Looks the key up in the mapped file via the binary search over the key table.
+     *
+     * @return the offset of the value within the buffer, or -1 if the key is not present
+     */
+    private static int findValueOffset(ByteBuffer buffer, int entryCount, byte[] key) {
+        int low = 0;
+        int high = (entryCount - 1);
+
+        while(low <= high) {
+            final int middle = ((low + high) >>> 1);
+            final int entryOffset = (HEADER_SIZE + (middle * KEY_TABLE_ENTRY_SIZE));
+            final int comparison = compareKey(buffer, buffer.getInt(entryOffset), buffer.getInt(entryOffset + 4), key);
+
+            if(comparison < 0) {
+                low = (middle + 1);
+            } else if(comparison > 0) {
+                high = (middle - 1);
+            } else {
+                return buffer.getInt(entryOffset + 8);
+            }
+        }
+
+        return -1;
+    }
+
+
+
+
+    private static int compareKey(ByteBuffer buffer, int keyOffset, int keyLength, byte[] key) {
+        final int length = Math.min(keyLength, key.length);
+
+        for(int i = 0; i < length; i++) {
+            final int difference = ((buffer.get(keyOffset + i) & 0xff) - (key[i] & 0xff));
+
+            if(difference != 0) {
+                return difference;
+            }
+        }
+
+        return (keyLength - key.length);
+    }
+
+
+
+
+    private static Object readValue(ByteBuffer buffer, int offset) {
+        final byte type = buffer.get(offset);
+
+        switch(type) {
+
+            case PreferenceCodec.TYPE_BOOLEAN:
+                return (buffer.get(offset + 1) != 0);
+
+            case PreferenceCodec.TYPE_FLOAT:
+                return buffer.getFloat(offset + 1);
+
+            case PreferenceCodec.TYPE_INT:
+                return buffer.getInt(offset + 1);
+
+            case PreferenceCodec.TYPE_LONG:
+                return buffer.getLong(offset + 1);
+
+            case PreferenceCodec.TYPE_STRING:
+                return readString(buffer, (offset + 1));
+
+            case PreferenceCodec.TYPE_STRING_SET:
+                final int size = buffer.getInt(offset + 1);
+                final Set<String> values = new HashSet<>();
+                int position = (offset + 5);
+
+                for(int i = 0; i < size; i++) {
+                    final int length = buffer.getInt(position);
+
+                    values.add(readString(buffer, position));
+                    position += (4 + length);
+                }
+
+                return Collections.unmodifiableSet(values);
+
+            default:
+                throw new IllegalStateException("Unknown preference value type: " + type);
+
+        }
+    }
+
+
+
+
+    private static String readString(ByteBuffer buffer, int offset) {
+        final byte[] bytes = new byte[buffer.getInt(offset)];
+
+        // the relative bulk get is used on a duplicate, as the buffer is shared by the readers
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset + 4);
+        duplicate.get(bytes);
+
+        return new String(bytes, PreferenceCodec.UTF_8);
+    }
+
+
+
+
+    private static String readKey(ByteBuffer buffer, int entryIndex) {
+        final int entryOffset = (HEADER_SIZE + (entryIndex * KEY_TABLE_ENTRY_SIZE));
+        final byte[] bytes = new byte[buffer.getInt(entryOffset + 4)];
+
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(buffer.getInt(entryOffset));
+        duplicate.get(bytes);
+
+        return new String(bytes, PreferenceCodec.UTF_8);
+    }
+
+
+
+
+    /**
+     *  Reads all the values of the mapped file into the specified map.
+     */
+    private static void readAll(ByteBuffer buffer, int entryCount, Map<String, Object> values) {
+        for(int i = 0; i < entryCount; i++) {
+            final int entryOffset = (HEADER_SIZE + (i * KEY_TABLE_ENTRY_SIZE));
+
+            values.put(readKey(buffer, i), readValue(buffer, buffer.getInt(entryOffset + 8)));
+        }
+    }
+
+
+
+
+    /**
+     *  Writes the overlay changes into the file (merging them with the currently mapped contents),
+     *  and then remaps the rewritten file.
+     *
+     * @return true if the changes were successfully written, false otherwise
+     */
+    private boolean writeChanges() {
+        // the file that could not be mapped is never rewritten, as its current contents are unknown
+        if(!ensureLoaded()) {
+            return false;
+        }
+
+        synchronized(mFileLock) {
+            final Map<String, Object> changes = new HashMap<>(mOverlay);
+
+            if(changes.isEmpty()) {
+                return true;
+            }
+
+            final Map<String, Object> values = new HashMap<>();
+            final Mapping mapping = mMapping;
+
+            if(mapping != null) {
+                readAll(mapping.mBuffer, mapping.mEntryCount, values);
+            }
+
+            for(Map.Entry<String, Object> change : changes.entrySet()) {
+                if(change.getValue() == PreferenceCodec.REMOVED) {
+                    values.remove(change.getKey());
+                } else {
+                    values.put(change.getKey(), change.getValue());
+                }
+            }
+
+            final File tempFile = new File(mFile.getPath() + TEMP_FILE_EXTENSION);
+
+            try {
+                writeFile(tempFile, values);
+
+                if(!tempFile.renameTo(mFile)) {
+                    throw new IOException("Could not replace " + mFile + " with the rewritten file.");
+                }
+
+                map();
+            } catch(IOException e) {
+                e.printStackTrace();
+                tempFile.delete();
+
+                return false;
+            }
+
+            // the written changes are now served by the mapped file (unless they were overwritten in the meantime)
+            for(Map.Entry<String, Object> change : changes.entrySet()) {
+                mOverlay.remove(change.getKey(), change.getValue());
+            }
+
+            return true;
+        }
+    }
+
+
+
+
+    private static void writeFile(File file, Map<String, Object> values) throws IOException {
+        final List<byte[]> keys = new ArrayList<>(values.size());
+        final Map<byte[], Object> encodedValues = new HashMap<>();
+
+        for(Map.Entry<String, Object> entry : values.entrySet()) {
+            final byte[] key = entry.getKey().getBytes(PreferenceCodec.UTF_8);
+
+            keys.add(key);
+            encodedValues.put(key, entry.getValue());
+        }
+
+        Collections.sort(keys, KEY_COMPARATOR);
+
+        final int entryCount = keys.size();
+        final int keyRegionOffset = (HEADER_SIZE + (entryCount * KEY_TABLE_ENTRY_SIZE));
+        int keyRegionSize = 0;
+
+        for(byte[] key : keys) {
+            keyRegionSize += key.length;
+        }
+
+        final int valueRegionOffset = (keyRegionOffset + keyRegionSize);
+        final ByteArrayOutputStream valueRegion = new ByteArrayOutputStream();
+        final DataOutputStream valueRegionOutput = new DataOutputStream(valueRegion);
+        final FileOutputStream fileOutput = new FileOutputStream(file);
+
+        try {
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput));
+
+            // header
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(entryCount);
+            output.writeInt(keyRegionOffset);
+            output.writeInt(valueRegionOffset);
+
+            // key table
+            int keyOffset = keyRegionOffset;
+
+            for(byte[] key : keys) {
+                output.writeInt(keyOffset);
+                output.writeInt(key.length);
+                output.writeInt(valueRegionOffset + valueRegion.size());
+
+                PreferenceCodec.writeValue(valueRegionOutput, encodedValues.get(key));
+                keyOffset += key.length;
+            }
+
+            // key region
+            for(byte[] key : keys) {
+                output.write(key);
+            }
+
+            // value region
+            valueRegionOutput.flush();
+            valueRegion.writeTo(output);
+
+            output.flush();
+            fileOutput.getFD().sync();
+        } finally {
+            fileOutput.close();
+        }
+    }
+
+
+
+
+    private Object getValue(String key) {
+        final Object value = mOverlay.get(key);
+
+        if(value != null) {
+            return ((value != PreferenceCodec.REMOVED) ? value : null);
+        }
+
+        ensureLoaded();
+
+        final Mapping mapping = mMapping;
+
+        if(mapping == null) {
+            return null;
+        }
+
+        final int valueOffset = findValueOffset(mapping.mBuffer, mapping.mEntryCount, key.getBytes(PreferenceCodec.UTF_8));
+
+        return ((valueOffset != -1) ? readValue(mapping.mBuffer, valueOffset) : null);
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public Map<String, ?> getAll() {
+        ensureLoaded();
+
+        final Map<String, Object> values = new HashMap<>();
+
+        synchronized(mFileLock) {
+            final Mapping mapping = mMapping;
+
+            if(mapping != null) {
+                readAll(mapping.mBuffer, mapping.mEntryCount, values);
+            }
+
+            for(Map.Entry<String, Object> change : mOverlay.entrySet()) {
+                if(change.getValue() == PreferenceCodec.REMOVED) {
+                    values.remove(change.getKey());
+                } else {
+                    values.put(change.getKey(), change.getValue());
+                }
+            }
+        }
+
+        return values;
+    }
+
+
+
+
+    @Override
+    public boolean contains(@NonNull String key) {
+        return (getValue(key) != null);
+    }
+
+
+
+
+    @Override
+    public boolean getBoolean(@NonNull String key, boolean defaultValue) {
+        final Object value = getValue(key);
+        return ((value != null) ? (Boolean) value : defaultValue);
+    }
+
+
+
+
+    @Override
+    public float getFloat(@NonNull String key, float defaultValue) {
+        final Object value = getValue(key);
+        return ((value != null) ? (Float) value : defaultValue);
+    }
+
+
+
+
+    @Override
+    public int getInt(@NonNull String key, int defaultValue) {
+        final Object value = getValue(key);
+        return ((value != null) ? (Integer) value : defaultValue);
+    }
+
+
+
+
+    @Override
+    public long getLong(@NonNull String key, long defaultValue) {
+        final Object value = getValue(key);
+        return ((value != null) ? (Long) value : defaultValue);
+    }
+
+
+
+
+    @Nullable
+    @Override
+    public String getString(@NonNull String key, @Nullable String defaultValue) {
+        final Object value = getValue(key);
+        return ((value != null) ? (String) value : defaultValue);
+    }
+
+
+
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    @Override
+    public Set<String> getStringSet(@NonNull String key, @Nullable Set<String> defaultValues) {
+        final Object value = getValue(key);
+        return ((value != null) ? (Set<String>) value : defaultValues);
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public File getFile() {
+        return mFile;
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public Editor edit() {
+        return new ChangeSetEditor() {
+
+            @Override
+            protected boolean commit(@NonNull Map<String, Object> changes) {
+                mOverlay.putAll(changes);
+                return writeChanges();
+            }
+
+            @Override
+            protected void apply(@NonNull Map<String, Object> changes) {
+                mOverlay.putAll(changes);
+
+                if(mIsWriteScheduled.compareAndSet(false, true)) {
+                    BackgroundExecutors.io().execute(mWritingTask);
+                }
+            }
+
+        };
+    }
+
+
+
+
+    /**
+     *  The currently mapped file along with the number of its entries
+     *  (held together, so that the readers always observe a consistent pair).
+     */
+    private static final class Mapping {
+
+        final ByteBuffer mBuffer;
+        final int mEntryCount;
+
+        Mapping(ByteBuffer buffer, int entryCount) {
+            mBuffer = buffer;
+            mEntryCount = entryCount;
+        }
+
+    }
+
+
+
+
+}
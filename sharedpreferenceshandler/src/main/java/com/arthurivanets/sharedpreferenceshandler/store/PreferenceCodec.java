@@ -0,0 +1,279 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.store;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ *  A binary codec of the typed preference values, shared by the custom {@link PreferenceStore}s.
+ *  <br>
+ *  Each value is encoded as a single type byte followed by the type-specific payload;
+ *  the Strings are encoded as the length-prefixed UTF-8 bytes (so they are not limited to 64K, unlike {@link DataOutput#writeUTF(String)}).
+ *
+ * @author arthur3486
+ */
+
+final class PreferenceCodec {
+
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    static final byte TYPE_REMOVED = 0;
+    static final byte TYPE_BOOLEAN = 1;
+    static final byte TYPE_FLOAT = 2;
+    static final byte TYPE_INT = 3;
+    static final byte TYPE_LONG = 4;
+    static final byte TYPE_STRING = 5;
+    static final byte TYPE_STRING_SET = 6;
+
+    /**
+     *  A sentinel value, which denotes the removal of the preference.
+     */
+    static final Object REMOVED = new Object();
+
+    /**
+     *  The minimum size (in bytes) of the Strings, the decoding of which is deferred (see {@link #readValue(DataInput, boolean)}).
+     */
+    static final int LAZY_DECODING_THRESHOLD = 1024;
+
+
+
+
+    private PreferenceCodec() {
+        // not to be instantiated
+    }
+
+
+
+
+    /**
+     *  Writes the specified value (or the {@link #REMOVED} sentinel).
+     *
+     * @param output the output to write the value into
+     * @param value the value to be written
+     */
+    @SuppressWarnings("unchecked")
+    static void writeValue(@NonNull DataOutput output, @NonNull Object value) throws IOException {
+        if(value == REMOVED) {
+            output.writeByte(TYPE_REMOVED);
+        } else if(value instanceof Boolean) {
+            output.writeByte(TYPE_BOOLEAN);
+            output.writeBoolean((Boolean) value);
+        } else if(value instanceof Float) {
+            output.writeByte(TYPE_FLOAT);
+            output.writeFloat((Float) value);
+        } else if(value instanceof Integer) {
+            output.writeByte(TYPE_INT);
+            output.writeInt((Integer) value);
+        } else if(value instanceof Long) {
+            output.writeByte(TYPE_LONG);
+            output.writeLong((Long) value);
+        } else if(value instanceof String) {
+            output.writeByte(TYPE_STRING);
+            writeString(output, (String) value);
+        } else if(value instanceof EncodedString) {
+            // the still encoded Strings are written as is, without being decoded
+            final byte[] bytes = ((EncodedString) value).mBytes;
+
+            output.writeByte(TYPE_STRING);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        } else if(value instanceof Set) {
+            final Set<String> values = (Set<String>) value;
+
+            output.writeByte(TYPE_STRING_SET);
+            output.writeInt(values.size());
+
+            for(String item : values) {
+                writeString(output, item);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported preference value type: " + value.getClass().getName());
+        }
+    }
+
+
+
+
+    /**
+     *  Reads a single value previously written via the {@link #writeValue(DataOutput, Object)}.
+     *
+     * @param input the input to read the value from
+     * @return the value, or the {@link #REMOVED} sentinel
+     */
+    @NonNull
+    static Object readValue(@NonNull DataInput input) throws IOException {
+        return readValue(input, false);
+    }
+
+
+
+
+    /**
+     *  Reads a single value previously written via the {@link #writeValue(DataOutput, Object)}.
+     *  <br>
+     *  If the lazy decoding is requested, the large Strings (see {@link #LAZY_DECODING_THRESHOLD}) are returned
+     *  in a form of the {@link EncodedString}s, which are to be decoded upon the first access.
+     *
+     * @param input the input to read the value from
+     * @param isLazyDecodingEnabled whether the decoding of the large Strings is to be deferred
+     * @return the value, or the {@link #REMOVED} sentinel
+     */
+    @NonNull
+    static Object readValue(@NonNull DataInput input, boolean isLazyDecodingEnabled) throws IOException {
+        final byte type = input.readByte();
+
+        switch(type) {
+
+            case TYPE_REMOVED:
+                return REMOVED;
+
+            case TYPE_BOOLEAN:
+                return input.readBoolean();
+
+            case TYPE_FLOAT:
+                return input.readFloat();
+
+            case TYPE_INT:
+                return input.readInt();
+
+            case TYPE_LONG:
+                return input.readLong();
+
+            case TYPE_STRING:
+                final byte[] bytes = readBytes(input);
+
+                return ((isLazyDecodingEnabled && (bytes.length >= LAZY_DECODING_THRESHOLD))
+                    ? new EncodedString(bytes)
+                    : new String(bytes, UTF_8));
+
+            case TYPE_STRING_SET:
+                final int size = input.readInt();
+
+                if(size < 0) {
+                    throw new IOException("Malformed String Set size: " + size);
+                }
+
+                final Set<String> values = new HashSet<>();
+
+                for(int i = 0; i < size; i++) {
+                    values.add(readString(input));
+                }
+
+                return Collections.unmodifiableSet(values);
+
+            default:
+                throw new IOException("Unknown preference value type: " + type);
+
+        }
+    }
+
+
+
+
+    static void writeString(@NonNull DataOutput output, @NonNull String value) throws IOException {
+        final byte[] bytes = value.getBytes(UTF_8);
+
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+
+
+
+    @NonNull
+    static String readString(@NonNull DataInput input) throws IOException {
+        return new String(readBytes(input), UTF_8);
+    }
+
+
+
+
+    private static byte[] readBytes(DataInput input) throws IOException {
+        final int length = input.readInt();
+
+        if(length < 0) {
+            throw new IOException("Malformed String length: " + length);
+        }
+
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+
+        return bytes;
+    }
+
+
+
+
+    /**
+     *  Decodes the specified value if it is an {@link EncodedString}.
+     *
+     * @param value the value
+     * @return the decoded value
+     */
+    static Object decode(@NonNull Object value) {
+        return ((value instanceof EncodedString) ? ((EncodedString) value).decode() : value);
+    }
+
+
+
+
+    /**
+     *  Creates an immutable copy of the specified String Set (the values handed out by the stores must not be modifiable).
+     *
+     * @param values the values to copy
+     * @return the immutable copy, or null if the values are null
+     */
+    @Nullable
+    static Set<String> copyOf(@Nullable Set<String> values) {
+        return ((values != null) ? Collections.unmodifiableSet(new HashSet<>(values)) : null);
+    }
+
+
+
+
+    /**
+     *  The raw UTF-8 bytes of a String, the decoding of which has been deferred until the first access.
+     */
+    static final class EncodedString {
+
+        final byte[] mBytes;
+
+        EncodedString(byte[] bytes) {
+            mBytes = bytes;
+        }
+
+        @NonNull
+        String decode() {
+            return new String(mBytes, UTF_8);
+        }
+
+    }
+
+
+
+
+}
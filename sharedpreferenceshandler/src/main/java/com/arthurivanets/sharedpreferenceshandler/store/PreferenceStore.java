@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.store;
+
+import android.content.Context;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ *  {@link PreferenceStore} is a storage engine the {@link com.arthurivanets.sharedpreferenceshandler.SharedPreferencesManager}
+ *  delegates the actual storing of the preferences to.
+ *  <br>
+ *  The default implementation ({@link SharedPreferencesStore}) is backed by the platform {@link android.content.SharedPreferences};
+ *  the custom implementations can be plugged in on a per-file basis via the
+ *  {@link com.arthurivanets.sharedpreferenceshandler.SharedPreferencesManagerConfig.Builder#setStoreFactory(Factory)}.
+ *  <br>
+ *  The implementations must be thread-safe. The reads are allowed to block until the initial
+ *  loading of the underlying file is completed.
+ *
+ * @author arthur3486
+ */
+
+public interface PreferenceStore {
+
+    /**
+     *  A factory of the {@link PreferenceStore}s.
+     */
+    interface Factory {
+
+        /**
+         *  Creates a store for the specified preferences file.
+         *
+         * @param context the application context
+         * @param fileName the name of the preferences file
+         * @return the created store
+         */
+        @NonNull
+        PreferenceStore create(@NonNull Context context, @NonNull String fileName);
+
+    }
+
+    /**
+     *  An editor of the {@link PreferenceStore}, which accumulates the changes until they are
+     *  atomically committed (applied) to the store.
+     *  <br>
+     *  Each call to {@link PreferenceStore#edit()} must produce a new, independent editor.
+     */
+    interface Editor {
+
+        @NonNull
+        Editor putBoolean(@NonNull String key, boolean value);
+
+        @NonNull
+        Editor putFloat(@NonNull String key, float value);
+
+        @NonNull
+        Editor putInt(@NonNull String key, int value);
+
+        @NonNull
+        Editor putLong(@NonNull String key, long value);
+
+        /**
+         * Puts the String value (the null value is equivalent to the removal of the preference).
+         */
+        @NonNull
+        Editor putString(@NonNull String key, @Nullable String value);
+
+        @NonNull
+        Editor putStringSet(@NonNull String key, @NonNull Set<String> values);
+
+        @NonNull
+        Editor remove(@NonNull String key);
+
+        /**
+         *  Atomically applies the accumulated changes to the store and writes them into the underlying file synchronously.
+         *
+         * @return true if the changes were successfully written, false otherwise
+         */
+        boolean commit();
+
+        /**
+         *  Atomically applies the accumulated changes to the store and writes them into the underlying file asynchronously.
+         */
+        void apply();
+
+    }
+
+    /**
+     *  An optional interface of the stores backed by a single file, which exposes the file
+     *  (e.g. for the reporting of its size, see {@link com.arthurivanets.sharedpreferenceshandler.PreferenceMetrics}).
+     */
+    interface FileBacked {
+
+        /**
+         *  Retrieves the underlying preferences file.
+         *
+         * @return the file, or null if it cannot be determined
+         */
+        @Nullable
+        File getFile();
+
+    }
+
+    /**
+     *  Retrieves all the preferences held by the store.
+     *
+     * @return the snapshot of all the preferences
+     */
+    @NonNull
+    Map<String, ?> getAll();
+
+    boolean contains(@NonNull String key);
+
+    boolean getBoolean(@NonNull String key, boolean defaultValue);
+
+    float getFloat(@NonNull String key, float defaultValue);
+
+    int getInt(@NonNull String key, int defaultValue);
+
+    long getLong(@NonNull String key, long defaultValue);
+
+    @Nullable
+    String getString(@NonNull String key, @Nullable String defaultValue);
+
+    @Nullable
+    Set<String> getStringSet(@NonNull String key, @Nullable Set<String> defaultValues);
+
+    /**
+     *  Creates a new editor of the store.
+     *
+     * @return the new editor
+     */
+    @NonNull
+    Editor edit();
+
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.store;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.arthurivanets.sharedpreferenceshandler.util.Preconditions;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ *  The default {@link PreferenceStore}, which is backed by the platform {@link SharedPreferences}.
+ *
+ * @author arthur3486
+ */
+
+public final class SharedPreferencesStore implements PreferenceStore, PreferenceStore.FileBacked {
+
+
+    /**
+     * The factory of the {@link SharedPreferencesStore}s.
+     */
+    public static final Factory FACTORY = new Factory() {
+
+        @NonNull
+        @Override
+        public PreferenceStore create(@NonNull Context context, @NonNull String fileName) {
+            Preconditions.nonNull(context);
+            Preconditions.nonEmpty(fileName);
+
+            return new SharedPreferencesStore(context, fileName);
+        }
+
+    };
+
+
+    private static final String SHARED_PREFERENCES_DIRECTORY_NAME = "shared_prefs";
+    private static final String SHARED_PREFERENCES_FILE_EXTENSION = ".xml";
+
+
+    private final SharedPreferences mSharedPreferences;
+
+    private final Context mContext;
+    private final String mFileName;
+
+
+
+
+    public SharedPreferencesStore(@NonNull SharedPreferences sharedPreferences) {
+        Preconditions.nonNull(sharedPreferences);
+
+        mSharedPreferences = sharedPreferences;
+        mContext = null;
+        mFileName = null;
+    }
+
+
+
+
+    private SharedPreferencesStore(Context context, String fileName) {
+        mSharedPreferences = context.getSharedPreferences(fileName, Context.MODE_PRIVATE);
+        mContext = context;
+        mFileName = fileName;
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public Map<String, ?> getAll() {
+        return mSharedPreferences.getAll();
+    }
+
+
+
+
+    @Override
+    public boolean contains(@NonNull String key) {
+        return mSharedPreferences.contains(key);
+    }
+
+
+
+
+    @Override
+    public boolean getBoolean(@NonNull String key, boolean defaultValue) {
+        return mSharedPreferences.getBoolean(key, defaultValue);
+    }
+
+
+
+
+    @Override
+    public float getFloat(@NonNull String key, float defaultValue) {
+        return mSharedPreferences.getFloat(key, defaultValue);
+    }
+
+
+
+
+    @Override
+    public int getInt(@NonNull String key, int defaultValue) {
+        return mSharedPreferences.getInt(key, defaultValue);
+    }
+
+
+
+
+    @Override
+    public long getLong(@NonNull String key, long defaultValue) {
+        return mSharedPreferences.getLong(key, defaultValue);
+    }
+
+
+
+
+    @Nullable
+    @Override
+    public String getString(@NonNull String key, @Nullable String defaultValue) {
+        return mSharedPreferences.getString(key, defaultValue);
+    }
+
+
+
+
+    @Nullable
+    @Override
+    public Set<String> getStringSet(@NonNull String key, @Nullable Set<String> defaultValues) {
+        return mSharedPreferences.getStringSet(key, defaultValues);
+    }
+
+
+
+
+    /**
+     *  Resolves the file the platform stores the preferences in (known only for the stores created by the {@link #FACTORY}).
+     */
+    @Nullable
+    @Override
+    public File getFile() {
+        if(mContext == null) {
+            return null;
+        }
+
+        return new File(new File(mContext.getFilesDir().getParentFile(), SHARED_PREFERENCES_DIRECTORY_NAME), (mFileName + SHARED_PREFERENCES_FILE_EXTENSION));
+    }
+
+
+
+
+    @NonNull
+    @Override
+    public Editor edit() {
+        return new EditorImpl(mSharedPreferences.edit());
+    }
+
+
+
+
+    private static final class EditorImpl implements Editor {
+
+
+        private final SharedPreferences.Editor mEditor;
+
+
+
+
+        EditorImpl(SharedPreferences.Editor editor) {
+            mEditor = editor;
+        }
+
+
+
+
+        @NonNull
+        @Override
+        public Editor putBoolean(@NonNull String key, boolean value) {
+            mEditor.putBoolean(key, value);
+            return this;
+        }
+
+
+
+
+        @NonNull
+        @Override
+        public Editor putFloat(@NonNull String key, float value) {
+            mEditor.putFloat(key, value);
+            return this;
+        }
+
+
+
+
+        @NonNull
+        @Override
+        public Editor putInt(@NonNull String key, int value) {
+            mEditor.putInt(key, value);
+            return this;
+        }
+
+
+
+
+        @NonNull
+        @Override
+        public Editor putLong(@NonNull String key, long value) {
+            mEditor.putLong(key, value);
+            return this;
+        }
+
+
+
+
+        @NonNull
+        @Override
+        public Editor putString(@NonNull String key, @Nullable String value) {
+            mEditor.putString(key, value);
+            return this;
+        }
+
+
+
+
+        @NonNull
+        @Override
+        public Editor putStringSet(@NonNull String key, @NonNull Set<String> values) {
+            mEditor.putStringSet(key, values);
+            return this;
+        }
+
+
+
+
+        @NonNull
+        @Override
+        public Editor remove(@NonNull String key) {
+            mEditor.remove(key);
+            return this;
+        }
+
+
+
+
+        @Override
+        public boolean commit() {
+            return mEditor.commit();
+        }
+
+
+
+
+        @Override
+        public void apply() {
+            mEditor.apply();
+        }
+
+
+
+
+    }
+
+
+
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+/**
+ *  A holder of the background executors shared by the whole library.
+ *  The executors are created lazily and are backed by daemon threads, which are released when idle.
+ *
+ * @author arthur3486
+ */
+
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public final class BackgroundExecutors {
+
+
+    private static final int IO_THREAD_COUNT = 2;
+    private static final long KEEP_ALIVE_TIME_IN_SECONDS = 10L;
+
+
+
+
+    /**
+     *  Retrieves the executor to be used for the disk I/O.
+     *
+     * @return the disk I/O executor
+     */
+    @NonNull
+    public static ExecutorService io() {
+        return IoHolder.EXECUTOR;
+    }
+
+
+
+
+    /**
+     *  Retrieves the executor to be used for the scheduling of the delayed (lightweight) tasks.
+     *
+     * @return the scheduling executor
+     */
+    @NonNull
+    public static ScheduledExecutorService scheduler() {
+        return SchedulerHolder.EXECUTOR;
+    }
+
+
+
+
+    /**
+     *  Creates a new (dedicated) single-thread executor, which runs the submitted tasks one at a time,
+     *  in the order of their submission. The thread of the executor is released when idle.
+     *
+     * @param name the name of the thread of the executor
+     * @return the single-thread executor
+     */
+    @NonNull
+    public static ExecutorService newSerialExecutor(@NonNull String name) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            1,
+            1,
+            KEEP_ALIVE_TIME_IN_SECONDS,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            newThreadFactory(name)
+        );
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+
+
+
+    private static ThreadFactory newThreadFactory(final String name) {
+        return new ThreadFactory() {
+
+            private final AtomicInteger mThreadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                final Thread thread = new Thread(runnable, (name + "-" + mThreadCount.incrementAndGet()));
+                thread.setDaemon(true);
+
+                return thread;
+            }
+
+        };
+    }
+
+
+
+
+    private static final class IoHolder {
+
+        static final ExecutorService EXECUTOR;
+
+        static {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                IO_THREAD_COUNT,
+                IO_THREAD_COUNT,
+                KEEP_ALIVE_TIME_IN_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                newThreadFactory("SharedPreferencesHandler-IO")
+            );
+            executor.allowCoreThreadTimeOut(true);
+
+            EXECUTOR = executor;
+        }
+
+    }
+
+
+
+
+    private static final class SchedulerHolder {
+
+        static final ScheduledExecutorService EXECUTOR;
+
+        static {
+            final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, newThreadFactory("SharedPreferencesHandler-Scheduler"));
+            executor.setKeepAliveTime(KEEP_ALIVE_TIME_IN_SECONDS, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+
+            EXECUTOR = executor;
+        }
+
+    }
+
+
+
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.util;
+
+import java.lang.reflect.Field;
+
+import androidx.annotation.NonNull;
+
+/**
+ *  A primitive-specialized accessor of a single field.
+ *  The values of the fields of primitive types are read and written via the primitive-specific
+ *  methods of the {@link Field} (e.g. {@link Field#getInt(Object)}, {@link Field#setInt(Object, int)}),
+ *  so that no boxing takes place, whereas the values of the fields of wrapper types are (un)boxed as usual.
+ *
+ *  @author arthur3486
+ */
+
+final class FieldAccessor {
+
+
+    private final Field mField;
+    private final boolean mIsPrimitive;
+
+
+
+
+    FieldAccessor(@NonNull Field field) {
+        Preconditions.nonNull(field);
+
+        field.setAccessible(true);
+
+        mField = field;
+        mIsPrimitive = field.getType().isPrimitive();
+    }
+
+
+
+
+    /**
+     *  Checks whether the value of the field is null (only the fields of the wrapper types can hold one).
+     *  The primitive-specific getters must not be used for the wrapper fields holding null.
+     */
+    boolean isNull(@NonNull Object target) throws IllegalAccessException {
+        return (!mIsPrimitive && (mField.get(target) == null));
+    }
+
+
+
+
+    boolean getBoolean(@NonNull Object target) throws IllegalAccessException {
+        return (mIsPrimitive ? mField.getBoolean(target) : (Boolean) mField.get(target));
+    }
+
+
+
+
+    void setBoolean(@NonNull Object target, boolean value) throws IllegalAccessException {
+        if(mIsPrimitive) {
+            mField.setBoolean(target, value);
+        } else {
+            mField.set(target, value);
+        }
+    }
+
+
+
+
+    int getInt(@NonNull Object target) throws IllegalAccessException {
+        return (mIsPrimitive ? mField.getInt(target) : (Integer) mField.get(target));
+    }
+
+
+
+
+    void setInt(@NonNull Object target, int value) throws IllegalAccessException {
+        if(mIsPrimitive) {
+            mField.setInt(target, value);
+        } else {
+            mField.set(target, value);
+        }
+    }
+
+
+
+
+    long getLong(@NonNull Object target) throws IllegalAccessException {
+        return (mIsPrimitive ? mField.getLong(target) : (Long) mField.get(target));
+    }
+
+
+
+
+    void setLong(@NonNull Object target, long value) throws IllegalAccessException {
+        if(mIsPrimitive) {
+            mField.setLong(target, value);
+        } else {
+            mField.set(target, value);
+        }
+    }
+
+
+
+
+    float getFloat(@NonNull Object target) throws IllegalAccessException {
+        return (mIsPrimitive ? mField.getFloat(target) : (Float) mField.get(target));
+    }
+
+
+
+
+    void setFloat(@NonNull Object target, float value) throws IllegalAccessException {
+        if(mIsPrimitive) {
+            mField.setFloat(target, value);
+        } else {
+            mField.set(target, value);
+        }
+    }
+
+
+
+
+    Object get(@NonNull Object target) throws IllegalAccessException {
+        return mField.get(target);
+    }
+
+
+
+
+    void set(@NonNull Object target, Object value) throws IllegalAccessException {
+        mField.set(target, value);
+    }
+
+
+
+
+}
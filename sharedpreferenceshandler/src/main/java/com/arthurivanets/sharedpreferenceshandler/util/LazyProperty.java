@@ -0,0 +1,260 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.util;
+
+import android.text.TextUtils;
+
+import com.arthurivanets.sharedpreferenceshandler.SharedPreferencesManager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ *  {@link LazyProperty} is a holder of a {@link StringifiableProperty}, which defers the recovery of the
+ *  property from its stringified form until the first access (see {@link #get()}).
+ *  <br>
+ *  Intended for the large properties (e.g. JSON blobs) of the {@link com.arthurivanets.sharedpreferenceshandler.annotations.Property}
+ *  objects, so that recovering the object pays only for the properties that are actually accessed.
+ *  The properties recovered from the preferences do not even read their stringified form (which may involve its decoding,
+ *  see {@link com.arthurivanets.sharedpreferenceshandler.store.LogStructuredPreferenceStore}) until the first access,
+ *  so they are to be first accessed before their {@link SharedPreferencesManager} gets recycled.
+ *  The properties that were never accessed are mapped back to the preferences as is, without being re-stringified.
+ *  <br>
+ *  The type argument of the {@link LazyProperty} field must be an instantiable {@link StringifiableProperty}.
+ *  The {@link com.arthurivanets.sharedpreferenceshandler.annotations.DefaultInstance} annotation of the field is honored
+ *  the same way as for the regular {@link StringifiableProperty} fields.
+ *
+ *  @author arthur3486
+ */
+
+public final class LazyProperty<T extends StringifiableProperty> {
+
+
+    private final Object mLock = new Object();
+
+    private String mStringifiedValue;
+    private SharedPreferencesManager mManager;
+    private String mKey;
+    private Class<? extends T> mValueClass;
+    private Class<?> mDefaultInstanceClass;
+
+    private volatile boolean mIsRecovered;
+    private T mValue;
+
+
+
+
+    /**
+     *  Creates a {@link LazyProperty} holding the specified (already recovered) value.
+     *
+     * @param value the value
+     * @return the new {@link LazyProperty}
+     */
+    @NonNull
+    public static <T extends StringifiableProperty> LazyProperty<T> of(@Nullable T value) {
+        final LazyProperty<T> property = new LazyProperty<>();
+        property.set(value);
+
+        return property;
+    }
+
+
+
+
+    /**
+     *  Creates a {@link LazyProperty}, which recovers its value from the specified stringified form upon the first access.
+     *  <br>
+     *  Intended to be used by the library itself and by the generated mappers.
+     *
+     * @param stringifiedValue the stringified form of the value
+     * @param valueClass the class to instantiate the value of
+     * @param defaultInstanceClass the class of the default instance to be used when the stringified form is empty
+     *                             (see {@link com.arthurivanets.sharedpreferenceshandler.annotations.DefaultInstance}), or null if not specified
+     * @return the new {@link LazyProperty}
+     */
+    @NonNull
+    public static <T extends StringifiableProperty> LazyProperty<T> fromString(@NonNull String stringifiedValue,
+                                                                            @NonNull Class<? extends T> valueClass,
+                                                                            @Nullable Class<?> defaultInstanceClass) {
+        Preconditions.nonNull(stringifiedValue);
+        Preconditions.nonNull(valueClass);
+
+        final LazyProperty<T> property = new LazyProperty<>();
+        property.mStringifiedValue = stringifiedValue;
+        property.mValueClass = valueClass;
+        property.mDefaultInstanceClass = defaultInstanceClass;
+        property.mIsRecovered = false;
+
+        return property;
+    }
+
+
+
+
+    /**
+     *  Creates a {@link LazyProperty}, which reads its stringified form from the preferences (and recovers its value from it)
+     *  upon the first access. The stringified form is read as stored at the time of that access.
+     *  <br>
+     *  Intended to be used by the library itself and by the generated mappers.
+     *
+     * @param sharedPreferencesManager the manager to read the stringified form from
+     * @param key the key of the stringified form
+     * @param valueClass the class to instantiate the value of
+     * @param defaultInstanceClass the class of the default instance to be used when the stringified form is empty (or missing)
+     *                             (see {@link com.arthurivanets.sharedpreferenceshandler.annotations.DefaultInstance}), or null if not specified
+     * @return the new {@link LazyProperty}
+     */
+    @NonNull
+    public static <T extends StringifiableProperty> LazyProperty<T> fromPreferences(@NonNull SharedPreferencesManager sharedPreferencesManager,
+                                                                                 @NonNull String key,
+                                                                                 @NonNull Class<? extends T> valueClass,
+                                                                                 @Nullable Class<?> defaultInstanceClass) {
+        Preconditions.nonNull(sharedPreferencesManager);
+        Preconditions.nonEmpty(key);
+        Preconditions.nonNull(valueClass);
+
+        final LazyProperty<T> property = new LazyProperty<>();
+        property.mManager = sharedPreferencesManager;
+        property.mKey = key;
+        property.mValueClass = valueClass;
+        property.mDefaultInstanceClass = defaultInstanceClass;
+        property.mIsRecovered = false;
+
+        return property;
+    }
+
+
+
+
+    private LazyProperty() {
+        mIsRecovered = true;
+    }
+
+
+
+
+    /**
+     *  Retrieves the value, recovering it from the stringified form if this is the first access.
+     *
+     * @return the value
+     */
+    @Nullable
+    public T get() {
+        if(!mIsRecovered) {
+            synchronized(mLock) {
+                if(!mIsRecovered) {
+                    mValue = recover(getStringifiedValue());
+                    mStringifiedValue = null;
+                    mIsRecovered = true;
+                }
+            }
+        }
+
+        return mValue;
+    }
+
+
+
+
+    /**
+     *  Replaces the value.
+     *
+     * @param value the new value
+     */
+    public void set(@Nullable T value) {
+        synchronized(mLock) {
+            mValue = value;
+            mStringifiedValue = null;
+            mManager = null;
+            mKey = null;
+            mIsRecovered = true;
+        }
+    }
+
+
+
+
+    /**
+     *  Checks whether the value has already been recovered (or explicitly set).
+     *
+     * @return true if it has, false otherwise
+     */
+    public boolean isRecovered() {
+        return mIsRecovered;
+    }
+
+
+
+
+    /**
+     *  Retrieves the stringified form of the value; the values that were never accessed are not re-stringified.
+     *
+     * @return the stringified form of the value, or null if there is no value
+     */
+    @Nullable
+    public String stringify() {
+        synchronized(mLock) {
+            if(!mIsRecovered) {
+                return getStringifiedValue();
+            }
+
+            return ((mValue != null) ? mValue.stringify() : null);
+        }
+    }
+
+
+
+
+    /**
+     *  Retrieves the stringified form of the value, reading it from the preferences (only once) if necessary.
+     *  Must be called while holding the mLock.
+     */
+    private String getStringifiedValue() {
+        if(mManager != null) {
+            mStringifiedValue = mManager.getString(mKey, "");
+            mManager = null;
+            mKey = null;
+        }
+
+        return mStringifiedValue;
+    }
+
+
+
+
+    @SuppressWarnings("unchecked")
+    private T recover(String stringifiedValue) {
+        try {
+            if(!TextUtils.isEmpty(stringifiedValue) || (mDefaultInstanceClass == null)) {
+                final T value = (T) ObjectMappingPlan.of(mValueClass).newInstance();
+                value.fromString(stringifiedValue);
+
+                return value;
+            }
+
+            return (!mDefaultInstanceClass.equals(void.class) ? (T) ObjectMappingPlan.of(mDefaultInstanceClass).newInstance() : null);
+        } catch(InstantiationException e) {
+            throw new IllegalStateException(e);
+        } catch(IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+
+
+}
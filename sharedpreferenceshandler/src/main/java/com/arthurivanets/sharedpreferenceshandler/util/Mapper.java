@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.util;
+
+import com.arthurivanets.sharedpreferenceshandler.SharedPreferencesManager;
+
+import androidx.annotation.NonNull;
+
+/**
+ *  {@link Mapper} is an interface implemented by the compile-time generated mappers
+ *  (see the sharedpreferenceshandler-compiler), which are responsible for the mapping of the
+ *  {@link com.arthurivanets.sharedpreferenceshandler.annotations.Property} fields of a specific class
+ *  to (and from) the preferences without the use of reflection.
+ *
+ *  @author arthur3486
+ */
+
+public interface Mapper<T> {
+
+    /**
+     * Puts the values of all the Property fields of the specified object into the preferences.
+     *
+     * @param sharedPreferencesManager the manager to put the values into
+     * @param object the object to be mapped
+     */
+    void map(@NonNull SharedPreferencesManager sharedPreferencesManager, @NonNull T object);
+
+    /**
+     * Recovers a brand-new object from the values stored in the preferences.
+     *
+     * @param sharedPreferencesManager the manager to recover the values from
+     * @return the recovered object
+     */
+    @NonNull
+    T recover(@NonNull SharedPreferencesManager sharedPreferencesManager);
+
+}
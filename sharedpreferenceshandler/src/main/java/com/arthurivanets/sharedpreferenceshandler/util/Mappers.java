@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+/**
+ *  A lookup of the compile-time generated {@link Mapper}s.
+ *  The result of the lookup (including the absence of a generated mapper) is cached per class.
+ *
+ *  @author arthur3486
+ */
+
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public final class Mappers {
+
+
+    /**
+     * The suffix of the names of the classes generated by the sharedpreferenceshandler-compiler.
+     */
+    public static final String GENERATED_CLASS_SUFFIX = "_PropertyMapper";
+
+    /**
+     * The marker of the classes that have no (usable) generated mapper.
+     */
+    private static final Object NO_MAPPER = new Object();
+
+    /**
+     * The generated mappers (or the {@link #NO_MAPPER} markers) per class.
+     */
+    private static final ConcurrentMap<Class<?>, Object> MAPPERS = new ConcurrentHashMap<>();
+
+
+
+
+    /**
+     *  Retrieves the generated {@link Mapper} for the specified class.
+     *
+     * @param objectClass the class to retrieve the mapper for
+     * @return the generated mapper, or null if there's no generated mapper for the specified class
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static <T> Mapper<T> get(@NonNull Class<T> objectClass) {
+        Preconditions.nonNull(objectClass);
+
+        Object mapper = MAPPERS.get(objectClass);
+
+        if(mapper == null) {
+            final Object loadedMapper = load(objectClass);
+            mapper = MAPPERS.putIfAbsent(objectClass, loadedMapper);
+
+            if(mapper == null) {
+                mapper = loadedMapper;
+            }
+        }
+
+        return ((mapper != NO_MAPPER) ? (Mapper<T>) mapper : null);
+    }
+
+
+
+
+    /**
+     *  Loads (and instantiates) the generated mapper for the specified class.
+     *
+     * @return the mapper, or the {@link #NO_MAPPER} if there's no generated mapper (or the found class is not a {@link Mapper})
+     */
+    private static Object load(Class<?> objectClass) {
+        try {
+            final Class<?> mapperClass = Class.forName(getGeneratedClassName(objectClass), true, objectClass.getClassLoader());
+            return (Mapper.class.isAssignableFrom(mapperClass) ? mapperClass.newInstance() : NO_MAPPER);
+        } catch(ClassNotFoundException e) {
+            return NO_MAPPER;
+        } catch(IllegalAccessException e) {
+            return NO_MAPPER;
+        } catch(InstantiationException e) {
+            return NO_MAPPER;
+        }
+    }
+
+
+
+
+    /**
+     *  Composes the fully qualified name of the generated {@link Mapper} for the specified class.
+     *  (e.g. com.example.Outer$Inner -> com.example.Outer_Inner_PropertyMapper)
+     *
+     * @param objectClass the class to compose the name for
+     * @return the name of the generated mapper class
+     */
+    @NonNull
+    public static String getGeneratedClassName(@NonNull Class<?> objectClass) {
+        Preconditions.nonNull(objectClass);
+
+        final String className = objectClass.getName();
+        final int packageEndIndex = className.lastIndexOf('.');
+        final String packagePrefix = className.substring(0, (packageEndIndex + 1));
+        final String simpleName = className.substring(packageEndIndex + 1).replace('$', '_');
+
+        return (packagePrefix + simpleName + GENERATED_CLASS_SUFFIX);
+    }
+
+
+
+
+}
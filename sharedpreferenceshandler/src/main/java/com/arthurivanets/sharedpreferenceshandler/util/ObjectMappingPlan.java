@@ -0,0 +1,238 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.util;
+
+import android.text.TextUtils;
+
+import com.arthurivanets.sharedpreferenceshandler.annotations.Property;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ *  A per-class description of how the instances of the class are to be mapped to (and recovered from) the preferences.
+ *  The plans are resolved only once per class (all the reflective lookups, key composition, type detection, etc.)
+ *  and are then cached for the rest of the process lifetime.
+ *
+ *  @author arthur3486
+ */
+
+final class ObjectMappingPlan {
+
+
+    private static final ConcurrentMap<Class<?>, ObjectMappingPlan> PLANS = new ConcurrentHashMap<>();
+
+    private final Class<?> mObjectClass;
+    private final Constructor<?> mConstructor;
+    private final String mObjectKey;
+    private final PropertyMapping[] mPropertyMappings;
+
+
+
+
+    /**
+     *  Retrieves the cached (or builds a brand-new) mapping plan for the specified class.
+     *
+     * @param objectClass the class to retrieve the plan for
+     * @return the mapping plan
+     */
+    @NonNull
+    static ObjectMappingPlan of(@NonNull Class<?> objectClass) {
+        Preconditions.nonNull(objectClass);
+
+        ObjectMappingPlan plan = PLANS.get(objectClass);
+
+        if(plan == null) {
+            final ObjectMappingPlan newPlan = new ObjectMappingPlan(objectClass);
+            plan = PLANS.putIfAbsent(objectClass, newPlan);
+
+            if(plan == null) {
+                plan = newPlan;
+            }
+        }
+
+        return plan;
+    }
+
+
+
+
+    private ObjectMappingPlan(Class<?> objectClass) {
+        final String className = objectClass.getName();
+
+        mObjectClass = objectClass;
+        mConstructor = resolveConstructor(objectClass);
+
+        final PropertyType objectType = TypeDetectingUtil.classify(objectClass);
+
+        // the whole Object is to be mapped to a single key (the Object is a StringifiableProperty (StreamableProperty) marked as Property)
+        if(objectClass.isAnnotationPresent(Property.class) && ((objectType == PropertyType.STRINGIFIABLE) || (objectType == PropertyType.STREAMABLE))) {
+            final Property annotation = objectClass.getAnnotation(Property.class);
+            final String propertyName = (!TextUtils.isEmpty(annotation.value()) ? annotation.value() : className);
+
+            mObjectKey = composePropertyName(className, propertyName);
+            mPropertyMappings = new PropertyMapping[0];
+
+            return;
+        }
+
+        final Set<Class<?>> enclosingClasses = new HashSet<>();
+        enclosingClasses.add(objectClass);
+
+        mObjectKey = null;
+        mPropertyMappings = resolvePropertyMappings(objectClass, className, enclosingClasses);
+    }
+
+
+
+
+    /**
+     *  Resolves the mappings of the Property fields of the specified class (as well as of the nested objects,
+     *  the keys of the fields of which are prefixed with the keys of the enclosing fields).
+     *
+     * @param objectClass the class to resolve the mappings for
+     * @param keyPrefix the prefix of the keys of the fields
+     * @param enclosingClasses the classes of the objects enclosing the current one (used to detect the cycles)
+     */
+    private static PropertyMapping[] resolvePropertyMappings(Class<?> objectClass, String keyPrefix, Set<Class<?>> enclosingClasses) {
+        final List<PropertyMapping> propertyMappings = new ArrayList<>();
+
+        for(Field field : objectClass.getDeclaredFields()) {
+            if(!field.isAnnotationPresent(Property.class)) {
+                continue;
+            }
+
+            final Property annotation = field.getAnnotation(Property.class);
+            final String propertyName = (!TextUtils.isEmpty(annotation.value()) ? annotation.value() : field.getName());
+            final String key = composePropertyName(keyPrefix, propertyName);
+            final Class<?> fieldType = field.getType();
+
+            if(TypeDetectingUtil.classify(fieldType) != PropertyType.NESTED) {
+                propertyMappings.add(new PropertyMapping(field, key));
+                continue;
+            }
+
+            // the nested objects are flattened, so the cyclic ones would produce the infinite number of keys
+            if(!enclosingClasses.add(fieldType)) {
+                throw new IllegalStateException("The nested Property objects must not be cyclic: " + fieldType.getName() + " is nested in itself.");
+            }
+
+            propertyMappings.add(new PropertyMapping(field, key, resolvePropertyMappings(fieldType, key, enclosingClasses)));
+            enclosingClasses.remove(fieldType);
+        }
+
+        return propertyMappings.toArray(new PropertyMapping[propertyMappings.size()]);
+    }
+
+
+
+
+    private static Constructor<?> resolveConstructor(Class<?> objectClass) {
+        try {
+            final Constructor<?> constructor = objectClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+
+            return constructor;
+        } catch(NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+
+
+
+    /**
+     *  Composes the key of the property. The key is interned (so it's the very same instance as the constant key
+     *  of the generated mapper, as well as the key of the cache entry put by either of them),
+     *  which lets the map lookups succeed on the reference equality, and its hash code is computed (and cached by the String) upfront,
+     *  so that the mapping loop does no string building or hashing at all.
+     *  Only the (bounded number of) keys of the Property fields are interned; the keys loaded from the files are not.
+     */
+    private static String composePropertyName(String keyPrefix, String propertyName) {
+        final String key = (keyPrefix + "." + propertyName).intern();
+        key.hashCode();
+
+        return key;
+    }
+
+
+
+
+    /**
+     *  Creates a new instance of the class this plan describes using its no-arg constructor.
+     *
+     * @return the new instance
+     */
+    @NonNull
+    Object newInstance() throws InstantiationException, IllegalAccessException {
+        if(mConstructor == null) {
+            throw new InstantiationException(mObjectClass.getName() + " does not declare a no-arg constructor.");
+        }
+
+        try {
+            return mConstructor.newInstance();
+        } catch(InvocationTargetException e) {
+            final InstantiationException exception = new InstantiationException(mObjectClass.getName() + " could not be instantiated.");
+            exception.initCause(e.getCause());
+
+            throw exception;
+        }
+    }
+
+
+
+
+    /**
+     *  Checks whether the whole Object is to be mapped to a single key (see {@link #getObjectKey()}),
+     *  rather than on a per-field basis.
+     *
+     * @return true if it is, false otherwise
+     */
+    boolean isStringifiable() {
+        return (mObjectKey != null);
+    }
+
+
+
+
+    @Nullable
+    String getObjectKey() {
+        return mObjectKey;
+    }
+
+
+
+
+    @NonNull
+    PropertyMapping[] getPropertyMappings() {
+        return mPropertyMappings;
+    }
+
+
+
+
+}
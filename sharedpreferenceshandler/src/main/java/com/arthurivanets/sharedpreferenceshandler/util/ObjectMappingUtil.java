@@ -19,15 +19,6 @@ package com.arthurivanets.sharedpreferenceshandler.util;
 import android.text.TextUtils;
 
 import com.arthurivanets.sharedpreferenceshandler.SharedPreferencesManager;
-import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultBoolean;
-import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultFloat;
-import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultInstance;
-import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultInt;
-import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultLong;
-import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultString;
-import com.arthurivanets.sharedpreferenceshandler.annotations.Property;
-
-import org.apache.commons.lang3.reflect.FieldUtils;
 
 import java.lang.reflect.Field;
 
@@ -63,74 +54,101 @@ public final class ObjectMappingUtil {
         Preconditions.nonNull(sharedPreferencesManager);
         Preconditions.nonNull(object);
 
-        final Class<?> objectClass = object.getClass();
-        final String className = objectClass.getName();
-        final Field[] declaredFields = object.getClass().getDeclaredFields();
-
-        Property annotation;
-        String propertyName;
-        String composedPropertyName;
+        final ObjectMappingPlan plan = ObjectMappingPlan.of(object.getClass());
 
         // mapping the Property-Object, which also happens to be a StringifiableProperty to a corresponding key in preferences
-        if(objectClass.isAnnotationPresent(Property.class) && (object instanceof StringifiableProperty)) {
-            annotation = objectClass.getAnnotation(Property.class);
-            propertyName = (!TextUtils.isEmpty(annotation.value()) ? annotation.value() : objectClass.getName());
-            composedPropertyName = composePropertyName(className, propertyName);
-
+        if(plan.isStringifiable()) {
             // putting the stringified object into shared preferences
-            sharedPreferencesManager.put(
-                composedPropertyName,
-                ((StringifiableProperty) object).stringify()
-            );
+            sharedPreferencesManager.put(plan.getObjectKey(), stringify(object));
 
             return;
         }
 
         // mapping each field individually
-        for(Field field : declaredFields) {
-            if(!field.isAnnotationPresent(Property.class)) {
+        mapProperties(sharedPreferencesManager, object, plan.getPropertyMappings());
+    }
+
+
+
+
+    private static void mapProperties(SharedPreferencesManager sharedPreferencesManager,
+                                      Object object,
+                                      PropertyMapping[] propertyMappings) throws IllegalAccessException {
+        for(PropertyMapping propertyMapping : propertyMappings) {
+            final FieldAccessor accessor = propertyMapping.getAccessor();
+            final String composedPropertyName = propertyMapping.getKey();
+
+            // the null values of the wrapper fields are denoted by the absence of the preference
+            if(isPrimitiveLike(propertyMapping.getType()) && accessor.isNull(object)) {
+                sharedPreferencesManager.remove(composedPropertyName);
                 continue;
             }
 
-            annotation = field.getAnnotation(Property.class);
-            propertyName = (!TextUtils.isEmpty(annotation.value()) ? annotation.value() : field.getName());
-            composedPropertyName = composePropertyName(className, propertyName);
-
             // handling the actual field according to its type
-            if(TypeDetectingUtil.isBoolean(field)) {
-                sharedPreferencesManager.put(
-                    composedPropertyName,
-                    ((Boolean) FieldUtils.readField(field, object, true))
-                );
-            } else if(TypeDetectingUtil.isInteger(field)) {
-                sharedPreferencesManager.put(
-                    composedPropertyName,
-                    ((Integer) FieldUtils.readField(field, object, true))
-                );
-            } else if(TypeDetectingUtil.isLong(field)) {
-                sharedPreferencesManager.put(
-                    composedPropertyName,
-                    ((Long) FieldUtils.readField(field, object, true))
-                );
-            } else if(TypeDetectingUtil.isFloat(field)) {
-                sharedPreferencesManager.put(
-                    composedPropertyName,
-                    ((Float) FieldUtils.readField(field, object, true))
-                );
-            } else if(TypeDetectingUtil.isString(field)) {
-                sharedPreferencesManager.put(
-                    composedPropertyName,
-                    ((String) FieldUtils.readField(field, object, true))
-                );
-            } else {
-                final Object value = field.get(object);
-
-                if(value instanceof StringifiableProperty) {
-                    sharedPreferencesManager.put(
-                        composedPropertyName,
-                        ((StringifiableProperty) value).stringify()
-                    );
-                }
+            switch(propertyMapping.getType()) {
+
+                case BOOLEAN:
+                    sharedPreferencesManager.put(composedPropertyName, accessor.getBoolean(object));
+                    break;
+
+                case INTEGER:
+                    sharedPreferencesManager.put(composedPropertyName, accessor.getInt(object));
+                    break;
+
+                case LONG:
+                    sharedPreferencesManager.put(composedPropertyName, accessor.getLong(object));
+                    break;
+
+                case FLOAT:
+                    sharedPreferencesManager.put(composedPropertyName, accessor.getFloat(object));
+                    break;
+
+                case STRING:
+                    sharedPreferencesManager.put(composedPropertyName, ((String) accessor.get(object)));
+                    break;
+
+                case LAZY:
+                    final LazyProperty<?> lazyProperty = (LazyProperty<?>) accessor.get(object);
+                    final String stringifiedValue = ((lazyProperty != null) ? lazyProperty.stringify() : null);
+
+                    // the values that were never accessed are put back as is, without being re-stringified
+                    if(stringifiedValue != null) {
+                        sharedPreferencesManager.put(composedPropertyName, stringifiedValue);
+                    }
+
+                    break;
+
+                case PACKED:
+                    sharedPreferencesManager.put(composedPropertyName, PackedValues.pack(accessor.get(object), propertyMapping.getPackedElementClass()));
+                    break;
+
+                case NESTED:
+                    final Object nestedObject = accessor.get(object);
+
+                    // the presence of the nested object is marked explicitly, as the flattened fields alone
+                    // cannot tell the null object from the one holding the default values
+                    sharedPreferencesManager.put(composedPropertyName, (nestedObject != null));
+
+                    // the fields of the nested object are flattened into the keys prefixed with the key of the enclosing field
+                    if(nestedObject != null) {
+                        mapProperties(sharedPreferencesManager, nestedObject, propertyMapping.getNestedMappings());
+                    } else {
+                        removeProperties(sharedPreferencesManager, propertyMapping.getNestedMappings());
+                    }
+
+                    break;
+
+                case STRINGIFIABLE:
+                case STREAMABLE:
+                case OTHER:
+                    final Object value = accessor.get(object);
+
+                    if((value instanceof StringifiableProperty) || (value instanceof StreamableProperty)) {
+                        sharedPreferencesManager.put(composedPropertyName, stringify(value));
+                    }
+
+                    break;
+
             }
         }
     }
@@ -165,128 +183,186 @@ public final class ObjectMappingUtil {
         Preconditions.nonNull(objectClass);
         Preconditions.isTrue(!objectClass.equals(void.class));
 
-        final T instantiatedObject = objectClass.newInstance();
-        final String className = objectClass.getName();
-        final Field[] declaredFields = objectClass.getDeclaredFields();
-
-        Property annotation;
-        String propertyName;
-        String fieldName;
-        String composedPropertyName;
+        final ObjectMappingPlan plan = ObjectMappingPlan.of(objectClass);
+        final T instantiatedObject = objectClass.cast(plan.newInstance());
 
         // recovering the data from the raw string representation into an Object marked as Property, that also happens to be a StringifiableProperty
-        if(objectClass.isAnnotationPresent(Property.class) && (instantiatedObject instanceof StringifiableProperty)) {
-            annotation = objectClass.getAnnotation(Property.class);
-            propertyName = (!TextUtils.isEmpty(annotation.value()) ? annotation.value() : objectClass.getName());
-            composedPropertyName = composePropertyName(className, propertyName);
-
+        if(plan.isStringifiable()) {
             // recovering the raw string representation
-            final String stringifiedObject = sharedPreferencesManager.getString(composedPropertyName, "");
+            final String stringifiedObject = sharedPreferencesManager.getString(plan.getObjectKey(), "");
 
             // initializing the object out of the recovered raw string
-            ((StringifiableProperty) instantiatedObject).fromString(stringifiedObject);
+            recover(instantiatedObject, stringifiedObject);
 
             return instantiatedObject;
         }
 
         // recovering the data, that corresponds to each individual field, from the preferences
-        for(Field field : declaredFields) {
-            if(!field.isAnnotationPresent(Property.class)) {
-                continue;
-            }
+        recoverProperties(sharedPreferencesManager, instantiatedObject, plan.getPropertyMappings());
 
-            annotation = field.getAnnotation(Property.class);
-            propertyName = (!TextUtils.isEmpty(annotation.value()) ? annotation.value() : field.getName());
-            fieldName = field.getName();
-            composedPropertyName = composePropertyName(className, propertyName);
+        return instantiatedObject;
+    }
+
+
+
+
+    private static void recoverProperties(SharedPreferencesManager sharedPreferencesManager,
+                                          Object instantiatedObject,
+                                          PropertyMapping[] propertyMappings) throws IllegalAccessException, InstantiationException {
+        for(PropertyMapping propertyMapping : propertyMappings) {
+            final Field field = propertyMapping.getField();
+            final FieldAccessor accessor = propertyMapping.getAccessor();
+            final String composedPropertyName = propertyMapping.getKey();
 
             // handling the actual field according to its type
-            if(TypeDetectingUtil.isBoolean(field)) {
-                final boolean defaultBoolean = (field.isAnnotationPresent(DefaultBoolean.class) && field.getAnnotation(DefaultBoolean.class).value());
-
-                FieldUtils.writeField(
-                    instantiatedObject,
-                    fieldName,
-                    sharedPreferencesManager.getBoolean(composedPropertyName, defaultBoolean),
-                    true
-                );
-            } else if(TypeDetectingUtil.isInteger(field)) {
-                final int defaultInt = (field.isAnnotationPresent(DefaultInt.class) ? field.getAnnotation(DefaultInt.class).value() : 0);
-
-                FieldUtils.writeField(
-                    instantiatedObject,
-                    fieldName,
-                    sharedPreferencesManager.getInt(composedPropertyName, defaultInt),
-                    true
-                );
-            } else if(TypeDetectingUtil.isLong(field)) {
-                final long defaultLong = (field.isAnnotationPresent(DefaultLong.class) ? field.getAnnotation(DefaultLong.class).value() : 0L);
-
-                FieldUtils.writeField(
-                    instantiatedObject,
-                    fieldName,
-                    sharedPreferencesManager.getLong(composedPropertyName, defaultLong),
-                    true
-                );
-            } else if(TypeDetectingUtil.isFloat(field)) {
-                final float defaultFloat = (field.isAnnotationPresent(DefaultFloat.class) ? field.getAnnotation(DefaultFloat.class).value() : 0f);
-
-                FieldUtils.writeField(
-                    instantiatedObject,
-                    fieldName,
-                    sharedPreferencesManager.getFloat(composedPropertyName, defaultFloat),
-                    true
-                );
-            } else if(TypeDetectingUtil.isString(field)) {
-                final String defaultString = (field.isAnnotationPresent(DefaultString.class) ? field.getAnnotation(DefaultString.class).value() : "");
-
-                FieldUtils.writeField(
-                    instantiatedObject,
-                    fieldName,
-                    sharedPreferencesManager.getString(composedPropertyName, defaultString),
-                    true
-                );
-            } else {
-                final String stringifiedProperty = sharedPreferencesManager.getString(composedPropertyName, "");
-                final Object recoveredInstance = field.getDeclaringClass().newInstance();
-
-                if(!(recoveredInstance instanceof StringifiableProperty)) {
-                    continue;
-                }
-
-                // initializing the object from the recovered raw string representation of itself
-                ((StringifiableProperty) recoveredInstance).fromString(stringifiedProperty);
-
-                // assigning the recovered object to the corresponding Field
-                if(!TextUtils.isEmpty(stringifiedProperty) || !field.isAnnotationPresent(DefaultInstance.class)) {
-                    FieldUtils.writeField(
-                        instantiatedObject,
-                        fieldName,
-                        recoveredInstance,
-                        true
-                    );
-                } else {
-                    final Class<?> defaultInstanceClass = field.getAnnotation(DefaultInstance.class).value();
-                    final Object defaultObject = (!defaultInstanceClass.equals(void.class) ? defaultInstanceClass.newInstance() : null);
-
-                    FieldUtils.writeField(
-                        instantiatedObject,
-                        fieldName,
-                        defaultObject,
-                        true
-                    );
-                }
+            switch(propertyMapping.getType()) {
+
+                case BOOLEAN:
+                    accessor.setBoolean(instantiatedObject, sharedPreferencesManager.getBoolean(composedPropertyName, propertyMapping.getDefaultBoolean()));
+                    break;
+
+                case INTEGER:
+                    accessor.setInt(instantiatedObject, sharedPreferencesManager.getInt(composedPropertyName, propertyMapping.getDefaultInt()));
+                    break;
+
+                case LONG:
+                    accessor.setLong(instantiatedObject, sharedPreferencesManager.getLong(composedPropertyName, propertyMapping.getDefaultLong()));
+                    break;
+
+                case FLOAT:
+                    accessor.setFloat(instantiatedObject, sharedPreferencesManager.getFloat(composedPropertyName, propertyMapping.getDefaultFloat()));
+                    break;
+
+                case STRING:
+                    accessor.set(instantiatedObject, sharedPreferencesManager.getString(composedPropertyName, propertyMapping.getDefaultString()));
+                    break;
+
+                case STRINGIFIABLE:
+                case STREAMABLE:
+                    final String stringifiedProperty = sharedPreferencesManager.getString(composedPropertyName, "");
+                    final Class<?> defaultInstanceClass = propertyMapping.getDefaultInstanceClass();
+
+                    // assigning the recovered object to the corresponding Field
+                    if(!TextUtils.isEmpty(stringifiedProperty) || (defaultInstanceClass == null)) {
+                        final Object recoveredInstance = ObjectMappingPlan.of(field.getType()).newInstance();
+
+                        // initializing the object from the recovered raw string representation of itself
+                        recover(recoveredInstance, stringifiedProperty);
+
+                        accessor.set(instantiatedObject, recoveredInstance);
+                    } else {
+                        final Object defaultObject = (!defaultInstanceClass.equals(void.class) ? ObjectMappingPlan.of(defaultInstanceClass).newInstance() : null);
+
+                        accessor.set(instantiatedObject, defaultObject);
+                    }
+
+                    break;
+
+                case LAZY:
+                    final Class<?> lazyValueClass = propertyMapping.getLazyValueClass();
+
+                    // deferring the actual recovery of the value until the first access
+                    if(lazyValueClass != null) {
+                        accessor.set(instantiatedObject, createLazyProperty(
+                            sharedPreferencesManager,
+                            composedPropertyName,
+                            lazyValueClass,
+                            propertyMapping.getDefaultInstanceClass()
+                        ));
+                    }
+
+                    break;
+
+                case PACKED:
+                    final String packedValue = sharedPreferencesManager.getString(composedPropertyName, null);
+                    final Object unpackedValue = ((packedValue != null) ? PackedValues.unpack(packedValue, field.getType(), propertyMapping.getPackedElementClass()) : null);
+
+                    // keeping the initial value of the field if nothing (or nothing readable) was stored
+                    if(unpackedValue != null) {
+                        accessor.set(instantiatedObject, unpackedValue);
+                    }
+
+                    break;
+
+                case NESTED:
+                    if(sharedPreferencesManager.getBoolean(composedPropertyName, false)) {
+                        final Object nestedObject = ObjectMappingPlan.of(field.getType()).newInstance();
+
+                        recoverProperties(sharedPreferencesManager, nestedObject, propertyMapping.getNestedMappings());
+                        accessor.set(instantiatedObject, nestedObject);
+                    } else if(!sharedPreferencesManager.getBoolean(composedPropertyName, true)) {
+                        // the nested object was explicitly mapped as null
+                        accessor.set(instantiatedObject, null);
+                    }
+
+                    // the initial value of the field is kept if the nested object was never mapped
+                    break;
+
+                case OTHER:
+                    // the values of such fields cannot be recovered, as the actual type of the value is unknown
+                    break;
+
             }
         }
+    }
 
-        return instantiatedObject;
+
+
+
+    /**
+     *  Removes the preferences of the specified Property fields (including the ones of the nested objects).
+     */
+    private static void removeProperties(SharedPreferencesManager sharedPreferencesManager, PropertyMapping[] propertyMappings) {
+        for(PropertyMapping propertyMapping : propertyMappings) {
+            sharedPreferencesManager.remove(propertyMapping.getKey());
+
+            if(propertyMapping.getType() == PropertyType.NESTED) {
+                removeProperties(sharedPreferencesManager, propertyMapping.getNestedMappings());
+            }
+        }
+    }
+
+
+
+
+    private static boolean isPrimitiveLike(PropertyType type) {
+        return ((type == PropertyType.BOOLEAN)
+            || (type == PropertyType.INTEGER)
+            || (type == PropertyType.LONG)
+            || (type == PropertyType.FLOAT));
+    }
+
+
+
+
+    private static String stringify(Object value) {
+        if(value instanceof StreamableProperty) {
+            return PropertyStreams.stringify((StreamableProperty) value);
+        }
+
+        return ((StringifiableProperty) value).stringify();
+    }
+
+
+
+
+    private static void recover(Object value, String stringifiedValue) {
+        if(value instanceof StreamableProperty) {
+            PropertyStreams.recover(((StreamableProperty) value), stringifiedValue);
+        } else {
+            ((StringifiableProperty) value).fromString(stringifiedValue);
+        }
     }
 
 
 
 
-    private static String composePropertyName(String className, String propertyName) {
-        return (className + "." + propertyName);
+    @SuppressWarnings("unchecked")
+    private static LazyProperty<?> createLazyProperty(SharedPreferencesManager sharedPreferencesManager,
+                                                      String key,
+                                                      Class<?> valueClass,
+                                                      Class<?> defaultInstanceClass) {
+        return LazyProperty.fromPreferences(sharedPreferencesManager, key, (Class<? extends StringifiableProperty>) valueClass, defaultInstanceClass);
     }
 
 
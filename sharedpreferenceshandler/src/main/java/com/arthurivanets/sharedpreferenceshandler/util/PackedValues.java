@@ -0,0 +1,609 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.util;
+
+import android.util.Base64;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ *  A codec of the primitive arrays and of the collections of the boxed primitives (and Strings), which packs them
+ *  into a compact binary form (stored as a Base64 String): the header holds the type of the elements and their count,
+ *  followed by the elements themselves (the integers as zigzag varints, the booleans as bits, the Strings as length-prefixed UTF-8).
+ *
+ *  @author arthur3486
+ */
+
+final class PackedValues {
+
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte TYPE_BOOLEAN = 1;
+    private static final byte TYPE_BYTE = 2;
+    private static final byte TYPE_INT = 3;
+    private static final byte TYPE_LONG = 4;
+    private static final byte TYPE_FLOAT = 5;
+    private static final byte TYPE_DOUBLE = 6;
+    private static final byte TYPE_STRING = 7;
+
+
+
+
+    private PackedValues() {
+        // not to be instantiated
+    }
+
+
+
+
+    /**
+     *  Checks whether the values of the specified type can be packed.
+     *
+     * @param type the type of the array (or collection)
+     * @param elementClass the class of the elements (the component type of the array, or the type argument of the collection)
+     * @return true if they can, false otherwise
+     */
+    static boolean isSupported(@NonNull Class<?> type, @Nullable Class<?> elementClass) {
+        if(type.isArray()) {
+            return (getElementType(type.getComponentType()) != 0);
+        }
+
+        return ((elementClass != null) && (getElementType(elementClass) != 0) && (newCollection(type, 0) != null));
+    }
+
+
+
+
+    /**
+     *  Packs the specified array (or collection).
+     *
+     * @param value the array (or collection) to pack
+     * @param elementClass the class of the elements
+     * @return the packed value, or null if the value is null
+     */
+    @Nullable
+    static String pack(@Nullable Object value, @NonNull Class<?> elementClass) {
+        if(value == null) {
+            return null;
+        }
+
+        final byte type = getElementType(elementClass);
+        final ByteSink sink = new ByteSink();
+
+        sink.writeByte(type);
+
+        if(value instanceof Collection) {
+            packCollection(sink, type, (Collection<?>) value);
+        } else {
+            packArray(sink, type, value);
+        }
+
+        return Base64.encodeToString(sink.toByteArray(), Base64.NO_WRAP);
+    }
+
+
+
+
+    private static void packArray(ByteSink sink, byte type, Object array) {
+        switch(type) {
+
+            case TYPE_BOOLEAN:
+                final boolean[] booleans = (boolean[]) array;
+                sink.writeVarInt(booleans.length);
+                sink.writeBits(booleans);
+                break;
+
+            case TYPE_BYTE:
+                final byte[] bytes = (byte[]) array;
+                sink.writeVarInt(bytes.length);
+                sink.writeBytes(bytes, bytes.length);
+                break;
+
+            case TYPE_INT:
+                final int[] ints = (int[]) array;
+                sink.writeVarInt(ints.length);
+
+                for(int value : ints) {
+                    sink.writeVarLong(zigzag(value));
+                }
+
+                break;
+
+            case TYPE_LONG:
+                final long[] longs = (long[]) array;
+                sink.writeVarInt(longs.length);
+
+                for(long value : longs) {
+                    sink.writeVarLong(zigzag(value));
+                }
+
+                break;
+
+            case TYPE_FLOAT:
+                final float[] floats = (float[]) array;
+                sink.writeVarInt(floats.length);
+
+                for(float value : floats) {
+                    sink.writeFixed(Float.floatToRawIntBits(value), 4);
+                }
+
+                break;
+
+            case TYPE_DOUBLE:
+                final double[] doubles = (double[]) array;
+                sink.writeVarInt(doubles.length);
+
+                for(double value : doubles) {
+                    sink.writeFixed(Double.doubleToRawLongBits(value), 8);
+                }
+
+                break;
+
+        }
+    }
+
+
+
+
+    private static void packCollection(ByteSink sink, byte type, Collection<?> collection) {
+        final int size = collection.size();
+        sink.writeVarInt(size);
+
+        if(type == TYPE_BOOLEAN) {
+            final boolean[] booleans = new boolean[size];
+            int i = 0;
+
+            for(Object element : collection) {
+                booleans[i++] = (Boolean) checkElement(element);
+            }
+
+            sink.writeBits(booleans);
+            return;
+        }
+
+        for(Object element : collection) {
+            switch(type) {
+
+                case TYPE_BYTE:
+                    sink.writeByte((Byte) checkElement(element));
+                    break;
+
+                case TYPE_INT:
+                    sink.writeVarLong(zigzag((Integer) checkElement(element)));
+                    break;
+
+                case TYPE_LONG:
+                    sink.writeVarLong(zigzag((Long) checkElement(element)));
+                    break;
+
+                case TYPE_FLOAT:
+                    sink.writeFixed(Float.floatToRawIntBits((Float) checkElement(element)), 4);
+                    break;
+
+                case TYPE_DOUBLE:
+                    sink.writeFixed(Double.doubleToRawLongBits((Double) checkElement(element)), 8);
+                    break;
+
+                case TYPE_STRING:
+                    // the length is shifted by one, so that the 0 denotes the null String
+                    if(element == null) {
+                        sink.writeVarInt(0);
+                    } else {
+                        final byte[] bytes = ((String) element).getBytes(UTF_8);
+                        sink.writeVarInt(bytes.length + 1);
+                        sink.writeBytes(bytes, bytes.length);
+                    }
+
+                    break;
+
+            }
+        }
+    }
+
+
+
+
+    /**
+     *  Unpacks the array (or collection) of the specified type.
+     *
+     * @param packedValue the packed value
+     * @param type the type of the array (or collection) to unpack
+     * @param elementClass the class of the elements
+     * @return the unpacked array (or collection), or null if the packed value is malformed or holds the elements of a different type
+     */
+    @Nullable
+    static Object unpack(@NonNull String packedValue, @NonNull Class<?> type, @NonNull Class<?> elementClass) {
+        try {
+            final ByteSource source = new ByteSource(Base64.decode(packedValue, Base64.NO_WRAP));
+            final byte elementType = source.readByte();
+
+            if(elementType != getElementType(elementClass)) {
+                return null;
+            }
+
+            final int count = source.readVarInt();
+
+            // each of the elements (except for the booleans) takes at least a byte
+            if(elementType != TYPE_BOOLEAN) {
+                source.checkRemaining(count);
+            }
+
+            return (type.isArray() ? unpackArray(source, elementType, count) : unpackCollection(source, elementType, count, type));
+        } catch(IllegalArgumentException e) {
+            // the malformed Base64 or the truncated payload
+            return null;
+        } catch(ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+
+
+
+    private static Object unpackArray(ByteSource source, byte type, int count) {
+        switch(type) {
+
+            case TYPE_BOOLEAN:
+                return source.readBits(count);
+
+            case TYPE_BYTE:
+                return source.readBytes(count);
+
+            case TYPE_INT:
+                final int[] ints = new int[count];
+
+                for(int i = 0; i < count; i++) {
+                    ints[i] = (int) unzigzag(source.readVarLong());
+                }
+
+                return ints;
+
+            case TYPE_LONG:
+                final long[] longs = new long[count];
+
+                for(int i = 0; i < count; i++) {
+                    longs[i] = unzigzag(source.readVarLong());
+                }
+
+                return longs;
+
+            case TYPE_FLOAT:
+                final float[] floats = new float[count];
+
+                for(int i = 0; i < count; i++) {
+                    floats[i] = Float.intBitsToFloat((int) source.readFixed(4));
+                }
+
+                return floats;
+
+            case TYPE_DOUBLE:
+                final double[] doubles = new double[count];
+
+                for(int i = 0; i < count; i++) {
+                    doubles[i] = Double.longBitsToDouble(source.readFixed(8));
+                }
+
+                return doubles;
+
+            default:
+                return null;
+
+        }
+    }
+
+
+
+
+    private static Object unpackCollection(ByteSource source, byte type, int count, Class<?> collectionType) {
+        final Collection<Object> collection = newCollection(collectionType, count);
+
+        if(collection == null) {
+            return null;
+        }
+
+        if(type == TYPE_BOOLEAN) {
+            for(boolean value : source.readBits(count)) {
+                collection.add(value);
+            }
+
+            return collection;
+        }
+
+        for(int i = 0; i < count; i++) {
+            switch(type) {
+
+                case TYPE_BYTE:
+                    collection.add(source.readByte());
+                    break;
+
+                case TYPE_INT:
+                    collection.add((int) unzigzag(source.readVarLong()));
+                    break;
+
+                case TYPE_LONG:
+                    collection.add(unzigzag(source.readVarLong()));
+                    break;
+
+                case TYPE_FLOAT:
+                    collection.add(Float.intBitsToFloat((int) source.readFixed(4)));
+                    break;
+
+                case TYPE_DOUBLE:
+                    collection.add(Double.longBitsToDouble(source.readFixed(8)));
+                    break;
+
+                case TYPE_STRING:
+                    final int length = source.readVarInt();
+                    collection.add((length > 0) ? new String(source.readBytes(length - 1), UTF_8) : null);
+                    break;
+
+            }
+        }
+
+        return collection;
+    }
+
+
+
+
+    private static byte getElementType(Class<?> elementClass) {
+        if((elementClass == boolean.class) || (elementClass == Boolean.class)) {
+            return TYPE_BOOLEAN;
+        } else if((elementClass == byte.class) || (elementClass == Byte.class)) {
+            return TYPE_BYTE;
+        } else if((elementClass == int.class) || (elementClass == Integer.class)) {
+            return TYPE_INT;
+        } else if((elementClass == long.class) || (elementClass == Long.class)) {
+            return TYPE_LONG;
+        } else if((elementClass == float.class) || (elementClass == Float.class)) {
+            return TYPE_FLOAT;
+        } else if((elementClass == double.class) || (elementClass == Double.class)) {
+            return TYPE_DOUBLE;
+        } else if(elementClass == String.class) {
+            return TYPE_STRING;
+        }
+
+        return 0;
+    }
+
+
+
+
+    /**
+     *  Creates an empty collection of the specified type (the interfaces are backed by the order-preserving implementations).
+     *
+     * @return the collection, or null if the type is not supported
+     */
+    private static Collection<Object> newCollection(Class<?> type, int capacity) {
+        if((type == List.class) || (type == Collection.class) || (type == ArrayList.class)) {
+            return new ArrayList<>(capacity);
+        } else if(type == LinkedList.class) {
+            return new LinkedList<>();
+        } else if((type == Set.class) || (type == LinkedHashSet.class)) {
+            return new LinkedHashSet<>();
+        } else if(type == HashSet.class) {
+            return new HashSet<>();
+        } else if((type == SortedSet.class) || (type == TreeSet.class)) {
+            return new TreeSet<>();
+        }
+
+        return null;
+    }
+
+
+
+
+    private static Object checkElement(Object element) {
+        if(element == null) {
+            throw new IllegalArgumentException("The collections of the primitive values must not contain the null elements.");
+        }
+
+        return element;
+    }
+
+
+
+
+    private static long zigzag(long value) {
+        return ((value << 1) ^ (value >> 63));
+    }
+
+
+
+
+    private static long unzigzag(long value) {
+        return ((value >>> 1) ^ -(value & 1L));
+    }
+
+
+
+
+    private static final class ByteSink {
+
+        private byte[] mBuffer = new byte[64];
+        private int mSize;
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            mBuffer[mSize++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes, int count) {
+            ensureCapacity(count);
+            System.arraycopy(bytes, 0, mBuffer, mSize, count);
+            mSize += count;
+        }
+
+        void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+
+            while((value & ~0x7FL) != 0L) {
+                mBuffer[mSize++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+
+            mBuffer[mSize++] = (byte) value;
+        }
+
+        void writeFixed(long value, int byteCount) {
+            ensureCapacity(byteCount);
+
+            for(int shift = ((byteCount - 1) * 8); shift >= 0; shift -= 8) {
+                mBuffer[mSize++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeBits(boolean[] values) {
+            ensureCapacity((values.length + 7) / 8);
+
+            for(int i = 0; i < values.length; i += 8) {
+                int bits = 0;
+
+                for(int j = 0; (j < 8) && ((i + j) < values.length); j++) {
+                    if(values[i + j]) {
+                        bits |= (1 << j);
+                    }
+                }
+
+                mBuffer[mSize++] = (byte) bits;
+            }
+        }
+
+        byte[] toByteArray() {
+            final byte[] bytes = new byte[mSize];
+            System.arraycopy(mBuffer, 0, bytes, 0, mSize);
+
+            return bytes;
+        }
+
+        private void ensureCapacity(int extraSize) {
+            if((mSize + extraSize) > mBuffer.length) {
+                final byte[] buffer = new byte[Math.max((mBuffer.length * 2), (mSize + extraSize))];
+                System.arraycopy(mBuffer, 0, buffer, 0, mSize);
+                mBuffer = buffer;
+            }
+        }
+
+    }
+
+
+
+
+    private static final class ByteSource {
+
+        private final byte[] mBytes;
+        private int mPosition;
+
+        ByteSource(byte[] bytes) {
+            mBytes = bytes;
+        }
+
+        byte readByte() {
+            return mBytes[mPosition++];
+        }
+
+        byte[] readBytes(int count) {
+            checkRemaining(count);
+
+            final byte[] bytes = new byte[count];
+            System.arraycopy(mBytes, mPosition, bytes, 0, count);
+            mPosition += count;
+
+            return bytes;
+        }
+
+        int readVarInt() {
+            final long value = readVarLong();
+
+            if((value < 0L) || (value > Integer.MAX_VALUE)) {
+                throw new IllegalArgumentException("Malformed packed value.");
+            }
+
+            return (int) value;
+        }
+
+        long readVarLong() {
+            long value = 0L;
+
+            for(int shift = 0; shift < 64; shift += 7) {
+                final byte b = readByte();
+                value |= ((long) (b & 0x7F) << shift);
+
+                if((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+
+            throw new IllegalArgumentException("Malformed packed value.");
+        }
+
+        long readFixed(int byteCount) {
+            checkRemaining(byteCount);
+
+            long value = 0L;
+
+            for(int i = 0; i < byteCount; i++) {
+                value = ((value << 8) | (mBytes[mPosition++] & 0xFF));
+            }
+
+            return value;
+        }
+
+        boolean[] readBits(int count) {
+            checkRemaining((count + 7) / 8);
+
+            final boolean[] values = new boolean[count];
+
+            for(int i = 0; i < count; i++) {
+                values[i] = ((mBytes[mPosition + (i / 8)] & (1 << (i % 8))) != 0);
+            }
+
+            mPosition += ((count + 7) / 8);
+
+            return values;
+        }
+
+        void checkRemaining(int count) {
+            // guarding against the huge allocations caused by the malformed counts
+            if((count < 0) || (count > (mBytes.length - mPosition))) {
+                throw new IllegalArgumentException("Malformed packed value.");
+            }
+        }
+
+    }
+
+
+
+
+}
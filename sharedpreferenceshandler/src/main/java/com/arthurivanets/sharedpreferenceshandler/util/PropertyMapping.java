@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.util;
+
+import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultBoolean;
+import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultFloat;
+import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultInstance;
+import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultInt;
+import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultLong;
+import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultString;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ *  A fully resolved description of a single {@link com.arthurivanets.sharedpreferenceshandler.annotations.Property} field,
+ *  holding everything that is needed to transfer the value of the field to (and from) the preferences.
+ *
+ *  @author arthur3486
+ */
+
+final class PropertyMapping {
+
+
+    private final Field mField;
+    private final FieldAccessor mAccessor;
+    private final String mKey;
+    private final PropertyType mType;
+
+    private final boolean mDefaultBoolean;
+    private final int mDefaultInt;
+    private final long mDefaultLong;
+    private final float mDefaultFloat;
+    private final String mDefaultString;
+    private final Class<?> mDefaultInstanceClass;
+    private final Class<?> mLazyValueClass;
+    private final Class<?> mPackedElementClass;
+    private final PropertyMapping[] mNestedMappings;
+
+
+
+
+    PropertyMapping(@NonNull Field field, @NonNull String key) {
+        this(field, key, null);
+    }
+
+
+
+
+    /**
+     *  Creates the mapping of the field, along with the mappings of the Property fields of the nested object held by the field
+     *  (see {@link PropertyType#NESTED}).
+     */
+    PropertyMapping(@NonNull Field field, @NonNull String key, @Nullable PropertyMapping[] nestedMappings) {
+        Preconditions.nonNull(field);
+        Preconditions.nonEmpty(key);
+
+        final PropertyType type = TypeDetectingUtil.classify(field.getType());
+        final Class<?> packedElementClass = ((type == PropertyType.PACKED) ? resolvePackedElementClass(field) : null);
+
+        mField = field;
+        mAccessor = new FieldAccessor(field);
+        mKey = key;
+        mNestedMappings = ((nestedMappings != null) ? nestedMappings : new PropertyMapping[0]);
+        mPackedElementClass = packedElementClass;
+
+        // the collections of the unsupported elements cannot be mapped
+        mType = (((type == PropertyType.PACKED) && !PackedValues.isSupported(field.getType(), packedElementClass)) ? PropertyType.OTHER : type);
+
+        mDefaultBoolean = (field.isAnnotationPresent(DefaultBoolean.class) && field.getAnnotation(DefaultBoolean.class).value());
+        mDefaultInt = (field.isAnnotationPresent(DefaultInt.class) ? field.getAnnotation(DefaultInt.class).value() : 0);
+        mDefaultLong = (field.isAnnotationPresent(DefaultLong.class) ? field.getAnnotation(DefaultLong.class).value() : 0L);
+        mDefaultFloat = (field.isAnnotationPresent(DefaultFloat.class) ? field.getAnnotation(DefaultFloat.class).value() : 0f);
+        mDefaultString = (field.isAnnotationPresent(DefaultString.class) ? field.getAnnotation(DefaultString.class).value() : "");
+        mDefaultInstanceClass = (field.isAnnotationPresent(DefaultInstance.class) ? field.getAnnotation(DefaultInstance.class).value() : null);
+        mLazyValueClass = ((mType == PropertyType.LAZY) ? resolveTypeArgument(field) : null);
+    }
+
+
+
+
+    private static Class<?> resolveTypeArgument(Field field) {
+        final Type genericType = field.getGenericType();
+
+        if(!(genericType instanceof ParameterizedType)) {
+            return null;
+        }
+
+        final Type valueType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+
+        return ((valueType instanceof Class) ? (Class<?>) valueType : null);
+    }
+
+
+
+
+    private static Class<?> resolvePackedElementClass(Field field) {
+        if(field.getType().isArray()) {
+            return field.getType().getComponentType();
+        }
+
+        // the type argument of the collection
+        return resolveTypeArgument(field);
+    }
+
+
+
+
+    @NonNull
+    Field getField() {
+        return mField;
+    }
+
+
+
+
+    @NonNull
+    FieldAccessor getAccessor() {
+        return mAccessor;
+    }
+
+
+
+
+    @NonNull
+    String getKey() {
+        return mKey;
+    }
+
+
+
+
+    @NonNull
+    PropertyType getType() {
+        return mType;
+    }
+
+
+
+
+    boolean getDefaultBoolean() {
+        return mDefaultBoolean;
+    }
+
+
+
+
+    int getDefaultInt() {
+        return mDefaultInt;
+    }
+
+
+
+
+    long getDefaultLong() {
+        return mDefaultLong;
+    }
+
+
+
+
+    float getDefaultFloat() {
+        return mDefaultFloat;
+    }
+
+
+
+
+    @NonNull
+    String getDefaultString() {
+        return mDefaultString;
+    }
+
+
+
+
+    /**
+     *  Retrieves the class of the default instance specified via the
+     *  {@link DefaultInstance} annotation.
+     *
+     * @return the default instance class, or null if the field is not annotated with {@link DefaultInstance}
+     */
+    @Nullable
+    Class<?> getDefaultInstanceClass() {
+        return mDefaultInstanceClass;
+    }
+
+
+
+
+    /**
+     *  Retrieves the class of the value held by the {@link LazyProperty} field.
+     *
+     * @return the value class, or null if the field is not a {@link LazyProperty} or its type argument cannot be resolved
+     */
+    @Nullable
+    Class<?> getLazyValueClass() {
+        return mLazyValueClass;
+    }
+
+
+
+
+    /**
+     *  Retrieves the class of the elements of the packed array (collection).
+     *
+     * @return the element class, or null if the field is not of the {@link PropertyType#PACKED} type
+     */
+    @Nullable
+    Class<?> getPackedElementClass() {
+        return mPackedElementClass;
+    }
+
+
+
+
+    /**
+     *  Retrieves the mappings of the Property fields of the nested object.
+     *
+     * @return the nested mappings (empty if the field is not of the {@link PropertyType#NESTED} type)
+     */
+    @NonNull
+    PropertyMapping[] getNestedMappings() {
+        return mNestedMappings;
+    }
+
+
+
+
+}
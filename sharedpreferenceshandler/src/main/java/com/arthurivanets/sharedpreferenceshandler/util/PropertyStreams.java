@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.util;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.Arrays;
+
+import androidx.annotation.NonNull;
+
+/**
+ *  A helper for the conversion of the {@link StreamableProperty} instances to (and from) their stored representation.
+ *  Used by the library itself and by the generated mappers.
+ *  <br>
+ *  The properties are written into a per-thread reusable buffer, so the only full-size allocation
+ *  is the resulting {@link String}; the properties are read directly from the stored {@link String} without copying it.
+ *  The buffer of each thread is retained only while it stays within 256K chars; the properties exceeding that
+ *  are written into a one-off buffer, which is released right after the write.
+ *
+ *  @author arthur3486
+ */
+
+public final class PropertyStreams {
+
+
+    /**
+     *  The maximum capacity (in chars) of the buffer retained for the subsequent reuse.
+     *  The buffer grown past it by a larger property is released once the property is written (the thread falls back to
+     *  a buffer of the initial capacity), so each thread retains at most 256K chars, at the cost of the larger properties
+     *  growing a fresh buffer upon every write.
+     */
+    private static final int MAX_RETAINED_BUFFER_CAPACITY = (256 * 1024);
+
+    private static final ThreadLocal<BufferWriter> BUFFERS = new ThreadLocal<BufferWriter>() {
+
+        @Override
+        protected BufferWriter initialValue() {
+            return new BufferWriter();
+        }
+
+    };
+
+
+
+
+    private PropertyStreams() {
+        // not to be instantiated
+    }
+
+
+
+
+    /**
+     *  Writes the specified property into its {@link String} representation.
+     *
+     * @param property the property to write
+     * @return the {@link String} representation of the property
+     */
+    @NonNull
+    public static String stringify(@NonNull StreamableProperty property) {
+        Preconditions.nonNull(property);
+
+        BufferWriter writer = BUFFERS.get();
+
+        // the buffer is already in use higher up the stack (a property that streams a nested one)
+        if(writer.mIsInUse) {
+            writer = new BufferWriter();
+        }
+
+        writer.mIsInUse = true;
+
+        try {
+            property.writeTo(writer);
+            return writer.toString();
+        } catch(IOException e) {
+            throw new IllegalStateException(("Could not write the " + property.getClass().getName() + "."), e);
+        } finally {
+            writer.reset();
+            writer.mIsInUse = false;
+        }
+    }
+
+
+
+
+    /**
+     *  Recovers the state of the specified property from its {@link String} representation.
+     *
+     * @param property the property to recover
+     * @param value the {@link String} representation of the property
+     */
+    public static void recover(@NonNull StreamableProperty property, @NonNull String value) {
+        Preconditions.nonNull(property);
+        Preconditions.nonNull(value);
+
+        try {
+            property.readFrom(new StringReader(value));
+        } catch(IOException e) {
+            throw new IllegalStateException(("Could not read the " + property.getClass().getName() + "."), e);
+        }
+    }
+
+
+
+
+    /**
+     *  A {@link Writer} backed by a growable char buffer, which (unlike the {@link java.io.StringWriter})
+     *  can be reused without the reallocation of the buffer.
+     */
+    private static final class BufferWriter extends Writer {
+
+        private static final int INITIAL_CAPACITY = 256;
+
+        private char[] mBuffer = new char[INITIAL_CAPACITY];
+        private int mSize;
+        private boolean mIsInUse;
+
+        @Override
+        public void write(int c) {
+            ensureCapacity(mSize + 1);
+            mBuffer[mSize++] = (char) c;
+        }
+
+        @Override
+        public void write(@NonNull char[] chars, int offset, int length) {
+            ensureCapacity(mSize + length);
+            System.arraycopy(chars, offset, mBuffer, mSize, length);
+            mSize += length;
+        }
+
+        @Override
+        public void write(@NonNull String string, int offset, int length) {
+            ensureCapacity(mSize + length);
+            string.getChars(offset, (offset + length), mBuffer, mSize);
+            mSize += length;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if(capacity > mBuffer.length) {
+                mBuffer = Arrays.copyOf(mBuffer, Math.max(capacity, (mBuffer.length * 2)));
+            }
+        }
+
+        void reset() {
+            mSize = 0;
+
+            if(mBuffer.length > MAX_RETAINED_BUFFER_CAPACITY) {
+                mBuffer = new char[INITIAL_CAPACITY];
+            }
+        }
+
+        @Override
+        public void flush() {
+            // nothing to flush
+        }
+
+        @Override
+        public void close() {
+            // nothing to close
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return new String(mBuffer, 0, mSize);
+        }
+
+    }
+
+
+
+
+}
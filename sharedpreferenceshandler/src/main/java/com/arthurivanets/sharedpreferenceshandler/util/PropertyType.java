@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.util;
+
+import androidx.annotation.RestrictTo;
+
+/**
+ *  The types of the values that can be mapped to (and recovered from) the preferences.
+ *  (see {@link TypeDetectingUtil#classify(Class)})
+ *
+ *  @author arthur3486
+ */
+
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public enum PropertyType {
+
+    BOOLEAN,
+    INTEGER,
+    LONG,
+    FLOAT,
+    STRING,
+    STRINGIFIABLE,
+
+    /**
+     * The {@link StreamableProperty} (takes precedence over the {@link StringifiableProperty}).
+     */
+    STREAMABLE,
+
+    /**
+     * The {@link LazyProperty}, the value of which is recovered upon the first access.
+     */
+    LAZY,
+
+    /**
+     * The primitive arrays and the collections of the boxed primitives (and Strings), which are stored in a packed form.
+     */
+    PACKED,
+
+    /**
+     * The (non-stringifiable) objects holding the {@link com.arthurivanets.sharedpreferenceshandler.annotations.Property} fields
+     * of their own, which are mapped field by field, under the keys prefixed with the key of the enclosing field
+     * (the key of the enclosing field itself holds the marker of the presence of the object).
+     */
+    NESTED,
+
+    /**
+     * Any other type, the values of which can be mapped only if they happen to be
+     * instances of the {@link StringifiableProperty} (or the {@link StreamableProperty}) at runtime.
+     */
+    OTHER
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import androidx.annotation.NonNull;
+
+/**
+ *  {@link StreamableProperty} is a streaming counterpart of the {@link StringifiableProperty},
+ *  intended for the large objects (e.g. cached lists).
+ *  Rather than building (and consuming) the whole {@link String} representation at once, the property
+ *  writes itself into (and reads itself from) a character stream, which is backed by a reusable buffer,
+ *  so that the only full-size allocation is the final {@link String} handed over to the preferences.
+ *  (see {@link PropertyStreams})
+ *
+ *  @author arthur3486
+ */
+
+public interface StreamableProperty {
+
+    /**
+     * Writes the state of the current property into the specified stream.
+     *
+     * @param writer the stream to write the state into
+     */
+    void writeTo(@NonNull Writer writer) throws IOException;
+
+    /**
+     * Recovers the state of the property from the specified stream.
+     *
+     * @param reader the stream to read the state from
+     */
+    void readFrom(@NonNull Reader reader) throws IOException;
+
+}
@@ -16,7 +16,20 @@
 
 package com.arthurivanets.sharedpreferenceshandler.util;
 
+import com.arthurivanets.sharedpreferenceshandler.annotations.Property;
+
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.RestrictTo;
@@ -29,58 +42,109 @@ import androidx.annotation.RestrictTo;
 public final class TypeDetectingUtil {
 
 
-    private static final String BOOLEAN = "boolean";
-    private static final String GENERIC_BOOLEAN = "Boolean";
-    private static final String INTEGER = "int";
-    private static final String GENERIC_INTEGER = "Integer";
-    private static final String LONG = "long";
-    private static final String GENERIC_LONG = "Long";
-    private static final String FLOAT = "float";
-    private static final String GENERIC_FLOAT = "Float";
-    private static final String STRING = "String";
+    private static final ConcurrentMap<Class<?>, PropertyType> TYPES = new ConcurrentHashMap<>();
+
+    static {
+        TYPES.put(boolean.class, PropertyType.BOOLEAN);
+        TYPES.put(Boolean.class, PropertyType.BOOLEAN);
+        TYPES.put(int.class, PropertyType.INTEGER);
+        TYPES.put(Integer.class, PropertyType.INTEGER);
+        TYPES.put(long.class, PropertyType.LONG);
+        TYPES.put(Long.class, PropertyType.LONG);
+        TYPES.put(float.class, PropertyType.FLOAT);
+        TYPES.put(Float.class, PropertyType.FLOAT);
+        TYPES.put(String.class, PropertyType.STRING);
+        TYPES.put(LazyProperty.class, PropertyType.LAZY);
+
+        for(Class<?> collectionClass : new Class<?>[] {
+            Collection.class, List.class, ArrayList.class, LinkedList.class,
+            Set.class, HashSet.class, LinkedHashSet.class, SortedSet.class, TreeSet.class
+        }) {
+            TYPES.put(collectionClass, PropertyType.PACKED);
+        }
+    }
 
 
 
 
-    public static boolean isBoolean(Field field) {
-        Preconditions.nonNull(field);
+    /**
+     *  Classifies the specified type. The results of the classification are cached per type.
+     *
+     * @param type the type to classify
+     * @return the corresponding {@link PropertyType}
+     */
+    @NonNull
+    public static PropertyType classify(@NonNull Class<?> type) {
+        Preconditions.nonNull(type);
+
+        PropertyType propertyType = TYPES.get(type);
+
+        if(propertyType == null) {
+            if(StreamableProperty.class.isAssignableFrom(type)) {
+                propertyType = PropertyType.STREAMABLE;
+            } else if(StringifiableProperty.class.isAssignableFrom(type)) {
+                propertyType = PropertyType.STRINGIFIABLE;
+            } else if(type.isArray() && type.getComponentType().isPrimitive()) {
+                propertyType = PropertyType.PACKED;
+            } else if(hasPropertyFields(type)) {
+                propertyType = PropertyType.NESTED;
+            } else {
+                propertyType = PropertyType.OTHER;
+            }
 
-        final String typeName = field.getType().getName();
+            TYPES.putIfAbsent(type, propertyType);
+        }
 
-        return (typeName.equals(BOOLEAN) || typeName.equals(GENERIC_BOOLEAN));
+        return propertyType;
     }
 
 
 
 
-    public static boolean isInteger(Field field) {
-        Preconditions.nonNull(field);
+    private static boolean hasPropertyFields(Class<?> type) {
+        if(type.isPrimitive() || type.isArray() || type.isInterface()) {
+            return false;
+        }
 
-        final String typeName = field.getType().getName();
+        for(Field field : type.getDeclaredFields()) {
+            if(field.isAnnotationPresent(Property.class)) {
+                return true;
+            }
+        }
 
-        return (typeName.equals(INTEGER) || typeName.equals(GENERIC_INTEGER));
+        return false;
     }
 
 
 
 
-    public static boolean isLong(Field field) {
+    public static boolean isBoolean(Field field) {
         Preconditions.nonNull(field);
+        return (classify(field.getType()) == PropertyType.BOOLEAN);
+    }
+
 
-        final String typeName = field.getType().getName();
 
-        return (typeName.equals(LONG) || typeName.equals(GENERIC_LONG));
+
+    public static boolean isInteger(Field field) {
+        Preconditions.nonNull(field);
+        return (classify(field.getType()) == PropertyType.INTEGER);
     }
 
 
 
 
-    public static boolean isFloat(Field field) {
+    public static boolean isLong(Field field) {
         Preconditions.nonNull(field);
+        return (classify(field.getType()) == PropertyType.LONG);
+    }
 
-        final String typeName = field.getType().getName();
 
-        return (typeName.equals(FLOAT) || typeName.equals(GENERIC_FLOAT));
+
+
+    public static boolean isFloat(Field field) {
+        Preconditions.nonNull(field);
+        return (classify(field.getType()) == PropertyType.FLOAT);
     }
 
 
@@ -88,10 +152,7 @@ public final class TypeDetectingUtil {
 
     public static boolean isString(Field field) {
         Preconditions.nonNull(field);
-
-        final String typeName = field.getType().getName();
-
-        return typeName.endsWith(STRING);
+        return (classify(field.getType()) == PropertyType.STRING);
     }
 
 
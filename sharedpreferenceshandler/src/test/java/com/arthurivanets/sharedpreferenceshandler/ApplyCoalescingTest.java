@@ -0,0 +1,181 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.store.PreferenceStore;
+import com.arthurivanets.sharedpreferenceshandler.store.SharedPreferencesStore;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Verifies the coalescing of the applies (see {@link SharedPreferencesManagerConfig.Builder#setApplyCoalescingWindow(long)}).
+ *  The writes reaching the store are counted via the metrics of the manager.
+ *
+ * @author arthur3486
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class ApplyCoalescingTest {
+
+
+    private static final String FILE_NAME = "apply_coalescing_test";
+
+    /**
+     * The window long enough for the scheduled write not to happen during a test (unless awaited).
+     */
+    private static final long LONG_WINDOW = 60000L;
+
+    private SharedPreferencesManager mManager;
+
+
+
+
+    @After
+    public void tearDown() {
+        mManager.recycle();
+    }
+
+
+
+
+    @Test
+    public void mergesTheAppliesWithinTheWindow() throws InterruptedException {
+        mManager = createManager(100L);
+        mManager.put("first", 1).apply();
+        mManager.put("second", 2).apply();
+        mManager.put("first", 3).apply();
+
+        assertEquals(0, getCount(PreferenceMetrics.Operation.APPLY));
+
+        // the values stay readable while their write is pending
+        assertEquals(3, mManager.getInt("first", 0));
+        assertFalse(openStore().contains("first"));
+
+        final long deadline = (System.currentTimeMillis() + 5000L);
+
+        while((getCount(PreferenceMetrics.Operation.APPLY) == 0) && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(10L);
+        }
+
+        assertEquals(1, getCount(PreferenceMetrics.Operation.APPLY));
+        assertEquals(3, openStore().getInt("first", 0));
+        assertEquals(2, openStore().getInt("second", 0));
+    }
+
+
+
+
+    @Test
+    public void flushWritesThePendingApplyRightAway() {
+        mManager = createManager(LONG_WINDOW);
+        mManager.put("value", 1).apply();
+        mManager.flush();
+
+        assertEquals(1, getCount(PreferenceMetrics.Operation.APPLY));
+        assertEquals(1, openStore().getInt("value", 0));
+
+        // there's nothing left to write
+        mManager.flush();
+
+        assertEquals(1, getCount(PreferenceMetrics.Operation.APPLY));
+    }
+
+
+
+
+    @Test
+    public void commitCancelsThePendingApply() {
+        mManager = createManager(LONG_WINDOW);
+        mManager.put("first", 1).apply();
+        mManager.put("second", 2).commit();
+
+        assertEquals(1, getCount(PreferenceMetrics.Operation.COMMIT));
+        assertEquals(1, openStore().getInt("first", 0));
+        assertEquals(2, openStore().getInt("second", 0));
+
+        mManager.flush();
+
+        assertEquals(0, getCount(PreferenceMetrics.Operation.APPLY));
+    }
+
+
+
+
+    @Test
+    public void transactionCommitWritesThePendingApplyFirst() {
+        mManager = createManager(LONG_WINDOW);
+        mManager.put("value", 1).put("other", 1).apply();
+        mManager.edit().put("value", 2).commit();
+
+        // the older value of the manager must not be written over the newer one of the transaction
+        mManager.flush();
+
+        assertEquals(2, mManager.getInt("value", 0));
+        assertEquals(2, openStore().getInt("value", 0));
+        assertEquals(1, openStore().getInt("other", 0));
+    }
+
+
+
+
+    @Test
+    public void transactionApplyWritesThePendingApplyFirst() {
+        mManager = createManager(LONG_WINDOW);
+        mManager.put("value", 1).apply();
+        mManager.edit().put("value", 2).apply();
+        mManager.flush();
+
+        assertEquals(2, mManager.getInt("value", 0));
+        assertEquals(2, openStore().getInt("value", 0));
+    }
+
+
+
+
+    private long getCount(PreferenceMetrics.Operation operation) {
+        return mManager.getMetrics().getHistogram(operation).getCount();
+    }
+
+
+
+
+    private static SharedPreferencesManager createManager(long applyCoalescingWindow) {
+        final SharedPreferencesManagerConfig config = new SharedPreferencesManagerConfig.Builder()
+            .setApplyCoalescingWindow(applyCoalescingWindow)
+            .setMetricsEnabled(true)
+            .build();
+
+        return SharedPreferencesManagerImpl.init(RuntimeEnvironment.application, FILE_NAME, config);
+    }
+
+
+
+
+    private static PreferenceStore openStore() {
+        return SharedPreferencesStore.FACTORY.create(RuntimeEnvironment.application, FILE_NAME);
+    }
+
+
+
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultInt;
+import com.arthurivanets.sharedpreferenceshandler.annotations.Property;
+import com.arthurivanets.sharedpreferenceshandler.util.Mappers;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Verifies that the null values of the wrapper (boxed) Property fields are mapped as the absence of the preference,
+ *  both by the reflection-based mapping and by the generated mappers.
+ *
+ * @author arthur3486
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class BoxedPropertyMappingTest {
+
+
+    private SharedPreferencesManager mManager;
+
+
+
+
+    @Before
+    public void setUp() {
+        mManager = SharedPreferencesManagerImpl.init(RuntimeEnvironment.application, "boxed_property_mapping_test");
+    }
+
+
+
+
+    @After
+    public void tearDown() {
+        mManager.recycle();
+    }
+
+
+
+
+    @Test
+    public void reflectiveMapping_roundTripsWrapperValues() {
+        final ReflectiveModel model = new ReflectiveModel();
+        model.set(true, 1, 2L, 3f);
+
+        mManager.putAndCommit(model);
+
+        final ReflectiveModel recoveredModel = mManager.get(ReflectiveModel.class);
+
+        assertEquals(Boolean.TRUE, recoveredModel.booleanValue);
+        assertEquals(Integer.valueOf(1), recoveredModel.intValue);
+        assertEquals(Long.valueOf(2L), recoveredModel.longValue);
+        assertEquals(Float.valueOf(3f), recoveredModel.floatValue);
+    }
+
+
+
+
+    @Test
+    public void reflectiveMapping_removesNullWrapperValues() {
+        final ReflectiveModel model = new ReflectiveModel();
+        model.set(true, 1, 2L, 3f);
+
+        mManager.putAndCommit(model);
+        mManager.putAndCommit(new ReflectiveModel());
+
+        final ReflectiveModel recoveredModel = mManager.get(ReflectiveModel.class);
+        final String keyPrefix = (ReflectiveModel.class.getName() + ".");
+
+        assertEquals(-1, mManager.getInt((keyPrefix + "intValue"), -1));
+        assertEquals(-1L, mManager.getLong((keyPrefix + "longValue"), -1L));
+        assertEquals(Boolean.FALSE, recoveredModel.booleanValue);
+        assertEquals(Integer.valueOf(10), recoveredModel.intValue);
+        assertEquals(Long.valueOf(0L), recoveredModel.longValue);
+        assertEquals(Float.valueOf(0f), recoveredModel.floatValue);
+    }
+
+
+
+
+    @Test
+    public void generatedMapping_roundTripsWrapperValues() {
+        assertNotNull(Mappers.get(GeneratedModel.class));
+
+        final GeneratedModel model = new GeneratedModel();
+        model.set(true, 1, 2L, 3f);
+
+        mManager.putAndCommit(model);
+
+        final GeneratedModel recoveredModel = mManager.get(GeneratedModel.class);
+
+        assertEquals(Boolean.TRUE, recoveredModel.booleanValue);
+        assertEquals(Integer.valueOf(1), recoveredModel.intValue);
+        assertEquals(Long.valueOf(2L), recoveredModel.longValue);
+        assertEquals(Float.valueOf(3f), recoveredModel.floatValue);
+    }
+
+
+
+
+    @Test
+    public void generatedMapping_removesNullWrapperValues() {
+        final GeneratedModel model = new GeneratedModel();
+        model.set(true, 1, 2L, 3f);
+
+        mManager.putAndCommit(model);
+        mManager.putAndCommit(new GeneratedModel());
+
+        final GeneratedModel recoveredModel = mManager.get(GeneratedModel.class);
+        final String keyPrefix = (GeneratedModel.class.getName() + ".");
+
+        assertEquals(-1, mManager.getInt((keyPrefix + "intValue"), -1));
+        assertEquals(-1L, mManager.getLong((keyPrefix + "longValue"), -1L));
+        assertEquals(Boolean.FALSE, recoveredModel.booleanValue);
+        assertEquals(Integer.valueOf(10), recoveredModel.intValue);
+        assertEquals(Long.valueOf(0L), recoveredModel.longValue);
+        assertEquals(Float.valueOf(0f), recoveredModel.floatValue);
+    }
+
+
+
+
+    /**
+     *  The private fields are mapped via the reflection.
+     */
+    public static class ReflectiveModel {
+
+        @Property private Boolean booleanValue;
+        @Property @DefaultInt(10) private Integer intValue;
+        @Property private Long longValue;
+        @Property private Float floatValue;
+
+        void set(Boolean booleanValue, Integer intValue, Long longValue, Float floatValue) {
+            this.booleanValue = booleanValue;
+            this.intValue = intValue;
+            this.longValue = longValue;
+            this.floatValue = floatValue;
+        }
+
+    }
+
+
+
+
+    /**
+     *  The package-private fields are mapped via the generated mapper.
+     */
+    public static class GeneratedModel {
+
+        @Property Boolean booleanValue;
+        @Property @DefaultInt(10) Integer intValue;
+        @Property Long longValue;
+        @Property Float floatValue;
+
+        void set(Boolean booleanValue, Integer intValue, Long longValue, Float floatValue) {
+            this.booleanValue = booleanValue;
+            this.intValue = intValue;
+            this.longValue = longValue;
+            this.floatValue = floatValue;
+        }
+
+    }
+
+
+
+
+}
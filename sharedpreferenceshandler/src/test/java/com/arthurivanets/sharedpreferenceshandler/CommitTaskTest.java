@@ -0,0 +1,213 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.util.BackgroundExecutors;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Verifies the completion of the {@link CommitTask}s (the handles of the asynchronous commits),
+ *  as well as of the asynchronous commits of the manager.
+ *
+ * @author arthur3486
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class CommitTaskTest {
+
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+    };
+
+
+
+
+    @Test
+    public void completesInTheOrderOfSubmissionOnTheSerialExecutor() throws Exception {
+        final ExecutorService executor = BackgroundExecutors.newSerialExecutor("CommitTaskTest");
+        final CountDownLatch firstCommitLatch = new CountDownLatch(1);
+        final CountDownLatch completionLatch = new CountDownLatch(10);
+        final List<Integer> completionOrder = Collections.synchronizedList(new ArrayList<Integer>());
+
+        try {
+            for(int i = 0; i < 10; i++) {
+                final int index = i;
+                final CommitTask task = new CommitTask(new Callable<Boolean>() {
+
+                    @Override
+                    public Boolean call() throws Exception {
+                        // holding the executor, so that all the listeners are added prior to the completion
+                        if(index == 0) {
+                            firstCommitLatch.await();
+                        }
+
+                        return true;
+                    }
+
+                });
+                task.addListener(DIRECT_EXECUTOR, new OnCommitCompleteListener() {
+
+                    @Override
+                    public void onCommitComplete(boolean isSuccessful, Throwable error) {
+                        completionOrder.add(index);
+                        completionLatch.countDown();
+                    }
+
+                });
+
+                executor.execute(task);
+            }
+
+            firstCommitLatch.countDown();
+
+            assertTrue(completionLatch.await(5, TimeUnit.SECONDS));
+
+            for(int i = 0; i < completionOrder.size(); i++) {
+                assertEquals(i, completionOrder.get(i).intValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+
+
+
+    @Test
+    public void notifiesTheListenerAddedAfterTheCompletion() {
+        final CommitTask task = newTask(false, null);
+        final AtomicReference<Boolean> result = new AtomicReference<>();
+
+        task.run();
+        task.addListener(DIRECT_EXECUTOR, new OnCommitCompleteListener() {
+
+            @Override
+            public void onCommitComplete(boolean isSuccessful, Throwable error) {
+                assertNull(error);
+                result.set(isSuccessful);
+            }
+
+        });
+
+        assertEquals(Boolean.FALSE, result.get());
+    }
+
+
+
+
+    @Test
+    public void propagatesTheFailureOfTheCommit() throws InterruptedException {
+        final IllegalStateException failure = new IllegalStateException();
+        final CommitTask task = newTask(true, failure);
+        final AtomicReference<Throwable> reportedError = new AtomicReference<>();
+
+        task.addListener(DIRECT_EXECUTOR, new OnCommitCompleteListener() {
+
+            @Override
+            public void onCommitComplete(boolean isSuccessful, Throwable error) {
+                assertFalse(isSuccessful);
+                reportedError.set(error);
+            }
+
+        });
+        task.run();
+
+        assertSame(failure, reportedError.get());
+
+        try {
+            task.get();
+            fail("The failure of the commit is not propagated.");
+        } catch(ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+
+
+
+    @Test
+    public void completesThePendingCommitsOfTheRecycledManager() throws Exception {
+        final SharedPreferencesManager manager = SharedPreferencesManagerImpl.init(RuntimeEnvironment.application, "commit_task_test");
+        final List<CommitFuture> futures = new ArrayList<>();
+
+        for(int i = 0; i < 20; i++) {
+            futures.add(manager.put(("key_" + i), i).commitAsync());
+        }
+
+        manager.recycle();
+
+        // the commits still pending upon the recycling are written by its final commit
+        for(CommitFuture future : futures) {
+            assertTrue(future.get(5, TimeUnit.SECONDS));
+        }
+
+        final SharedPreferencesManager reopenedManager = SharedPreferencesManagerImpl.init(RuntimeEnvironment.application, "commit_task_test");
+
+        try {
+            for(int i = 0; i < 20; i++) {
+                assertEquals(i, reopenedManager.getInt(("key_" + i), -1));
+            }
+        } finally {
+            reopenedManager.recycle();
+        }
+    }
+
+
+
+
+    private static CommitTask newTask(final boolean isSuccessful, final RuntimeException failure) {
+        return new CommitTask(new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                if(failure != null) {
+                    throw failure;
+                }
+
+                return isSuccessful;
+            }
+
+        });
+    }
+
+
+
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.annotations.Property;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Verifies that the dirty tracking skips the unchanged puts, as well as the commits (applies) with nothing to write.
+ *  The writes reaching the store are counted via the metrics of the manager.
+ *
+ * @author arthur3486
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class DirtyTrackingTest {
+
+
+    private SharedPreferencesManager mManager;
+
+
+
+
+    @Before
+    public void setUp() {
+        final SharedPreferencesManagerConfig config = new SharedPreferencesManagerConfig.Builder()
+            .setDirtyTrackingEnabled(true)
+            .setMetricsEnabled(true)
+            .build();
+
+        mManager = SharedPreferencesManagerImpl.init(RuntimeEnvironment.application, "dirty_tracking_test", config);
+    }
+
+
+
+
+    @After
+    public void tearDown() {
+        mManager.recycle();
+    }
+
+
+
+
+    @Test
+    public void skipsTheUnchangedPuts() {
+        mManager.put("int", 1).put("string", "value").commit();
+
+        final long writeCount = getCount(PreferenceMetrics.Operation.WRITE);
+
+        mManager.put("int", 1).put("string", "value").remove("absent");
+
+        assertEquals(writeCount, getCount(PreferenceMetrics.Operation.WRITE));
+
+        mManager.put("int", 2);
+
+        assertEquals((writeCount + 1), getCount(PreferenceMetrics.Operation.WRITE));
+    }
+
+
+
+
+    @Test
+    public void skipsTheUnchangedBulkPuts() {
+        final Map<String, Object> values = new HashMap<>();
+        values.put("int", 1);
+        values.put("long", 2L);
+
+        mManager.putAll(values).commit();
+
+        final long writeCount = getCount(PreferenceMetrics.Operation.WRITE);
+
+        mManager.putAll(values);
+        mManager.putAll(new String[] {"int"}, new int[] {1});
+
+        assertEquals(writeCount, getCount(PreferenceMetrics.Operation.WRITE));
+    }
+
+
+
+
+    @Test
+    public void skipsTheCommitsWithNothingToWrite() {
+        mManager.put("int", 1).commit();
+
+        final long commitCount = getCount(PreferenceMetrics.Operation.COMMIT);
+
+        mManager.commit();
+        mManager.put("int", 1).commit();
+        mManager.putAndCommit(new Settings().set(3));
+        mManager.putAndCommit(new Settings().set(3));
+
+        // only the first put of the settings is written
+        assertEquals((commitCount + 1), getCount(PreferenceMetrics.Operation.COMMIT));
+    }
+
+
+
+
+    @Test
+    public void skipsTheAppliesWithNothingToWrite() {
+        mManager.put("int", 1).apply();
+
+        final long applyCount = getCount(PreferenceMetrics.Operation.APPLY);
+
+        mManager.apply();
+        mManager.put("int", 1).apply();
+
+        assertEquals(applyCount, getCount(PreferenceMetrics.Operation.APPLY));
+    }
+
+
+
+
+    @Test
+    public void writesTheValueRevertedBeforeTheCommit() {
+        mManager.put("int", 0).commit();
+        mManager.put("int", 5).put("int", 0).commit();
+
+        assertEquals(0, mManager.getInt("int", -1));
+        assertEquals(2, getCount(PreferenceMetrics.Operation.COMMIT));
+    }
+
+
+
+
+    private long getCount(PreferenceMetrics.Operation operation) {
+        return mManager.getMetrics().getHistogram(operation).getCount();
+    }
+
+
+
+
+    public static class Settings {
+
+        @Property int value;
+        @Property String name;
+
+        Settings set(int value) {
+            this.value = value;
+            this.name = String.valueOf(value);
+            return this;
+        }
+
+    }
+
+
+
+
+}
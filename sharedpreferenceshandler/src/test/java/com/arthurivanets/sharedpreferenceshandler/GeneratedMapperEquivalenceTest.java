@@ -0,0 +1,240 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultBoolean;
+import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultFloat;
+import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultInt;
+import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultLong;
+import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultString;
+import com.arthurivanets.sharedpreferenceshandler.annotations.Property;
+import com.arthurivanets.sharedpreferenceshandler.util.Mapper;
+import com.arthurivanets.sharedpreferenceshandler.util.Mappers;
+import com.arthurivanets.sharedpreferenceshandler.util.ObjectMappingUtil;
+import com.arthurivanets.sharedpreferenceshandler.util.StringifiableProperty;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Verifies that the compile-time generated mappers produce the very same preferences
+ *  (and recover the very same objects) as the reflection-based mapping does.
+ *
+ * @author arthur3486
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class GeneratedMapperEquivalenceTest {
+
+
+    private SharedPreferencesManager mReflectiveManager;
+    private SharedPreferencesManager mGeneratedManager;
+    private Mapper<Settings> mMapper;
+
+
+
+
+    @Before
+    public void setUp() {
+        mReflectiveManager = SharedPreferencesManagerImpl.init(RuntimeEnvironment.application, "reflective_mapping_test");
+        mGeneratedManager = SharedPreferencesManagerImpl.init(RuntimeEnvironment.application, "generated_mapping_test");
+        mMapper = Mappers.get(Settings.class);
+
+        assertNotNull(mMapper);
+    }
+
+
+
+
+    @After
+    public void tearDown() {
+        mReflectiveManager.recycle();
+        mGeneratedManager.recycle();
+    }
+
+
+
+
+    @Test
+    public void mapsTheSameValuesToTheSameKeys() {
+        final Settings settings = Settings.create();
+
+        ObjectMappingUtil.map(mReflectiveManager, settings);
+        mMapper.map(mGeneratedManager, settings);
+
+        assertSamePreferences();
+        assertEquals(7, mGeneratedManager.snapshot().size());
+    }
+
+
+
+
+    @Test
+    public void mapsTheNullValuesTheSameWay() {
+        ObjectMappingUtil.map(mReflectiveManager, Settings.create());
+        mMapper.map(mGeneratedManager, Settings.create());
+
+        final Settings settings = new Settings();
+
+        ObjectMappingUtil.map(mReflectiveManager, settings);
+        mMapper.map(mGeneratedManager, settings);
+
+        assertSamePreferences();
+    }
+
+
+
+
+    @Test
+    public void recoversTheSameObjects() {
+        mMapper.map(mGeneratedManager, Settings.create());
+
+        assertSameObjects(
+            ObjectMappingUtil.recover(mGeneratedManager, Settings.class),
+            mMapper.recover(mGeneratedManager)
+        );
+    }
+
+
+
+
+    @Test
+    public void recoversTheSameDefaultValues() {
+        assertSameObjects(
+            ObjectMappingUtil.recover(mGeneratedManager, Settings.class),
+            mMapper.recover(mGeneratedManager)
+        );
+    }
+
+
+
+
+    private void assertSamePreferences() {
+        mReflectiveManager.commit();
+        mGeneratedManager.commit();
+
+        final PreferencesSnapshot reflectiveSnapshot = mReflectiveManager.snapshot();
+        final PreferencesSnapshot generatedSnapshot = mGeneratedManager.snapshot();
+        final String keyPrefix = (Settings.class.getName() + ".");
+
+        assertEquals(reflectiveSnapshot.getKeys(), generatedSnapshot.getKeys());
+
+        assertEquals(
+            reflectiveSnapshot.getBoolean((keyPrefix + "booleanValue"), false),
+            generatedSnapshot.getBoolean((keyPrefix + "booleanValue"), false)
+        );
+        assertEquals(
+            reflectiveSnapshot.getInt((keyPrefix + "int_value"), 0),
+            generatedSnapshot.getInt((keyPrefix + "int_value"), 0)
+        );
+        assertEquals(
+            reflectiveSnapshot.getLong((keyPrefix + "longValue"), 0L),
+            generatedSnapshot.getLong((keyPrefix + "longValue"), 0L)
+        );
+        assertEquals(
+            reflectiveSnapshot.getFloat((keyPrefix + "floatValue"), 0f),
+            generatedSnapshot.getFloat((keyPrefix + "floatValue"), 0f),
+            0f
+        );
+        assertEquals(
+            reflectiveSnapshot.getString((keyPrefix + "stringValue"), null),
+            generatedSnapshot.getString((keyPrefix + "stringValue"), null)
+        );
+        assertEquals(
+            reflectiveSnapshot.getInt((keyPrefix + "boxedIntValue"), 0),
+            generatedSnapshot.getInt((keyPrefix + "boxedIntValue"), 0)
+        );
+        assertEquals(
+            reflectiveSnapshot.getString((keyPrefix + "coordinates"), null),
+            generatedSnapshot.getString((keyPrefix + "coordinates"), null)
+        );
+    }
+
+
+
+
+    private static void assertSameObjects(Settings expected, Settings actual) {
+        assertEquals(expected.booleanValue, actual.booleanValue);
+        assertEquals(expected.intValue, actual.intValue);
+        assertEquals(expected.longValue, actual.longValue);
+        assertEquals(expected.floatValue, actual.floatValue, 0f);
+        assertEquals(expected.stringValue, actual.stringValue);
+        assertEquals(expected.boxedIntValue, actual.boxedIntValue);
+        assertEquals(expected.coordinates.stringify(), actual.coordinates.stringify());
+    }
+
+
+
+
+    /**
+     *  The package-private fields let the generated mapper access them directly.
+     */
+    public static class Settings {
+
+        @Property @DefaultBoolean(true) boolean booleanValue;
+        @Property("int_value") @DefaultInt(5) int intValue;
+        @Property @DefaultLong(6L) long longValue;
+        @Property @DefaultFloat(0.5f) float floatValue;
+        @Property @DefaultString("default") String stringValue;
+        @Property @DefaultInt(7) Integer boxedIntValue;
+        @Property Coordinates coordinates;
+
+        static Settings create() {
+            final Settings settings = new Settings();
+            settings.booleanValue = false;
+            settings.intValue = Integer.MAX_VALUE;
+            settings.longValue = Long.MIN_VALUE;
+            settings.floatValue = -2.5f;
+            settings.stringValue = "value";
+            settings.boxedIntValue = -1;
+            settings.coordinates = new Coordinates();
+            settings.coordinates.fromString("1:2");
+
+            return settings;
+        }
+
+    }
+
+
+
+
+    public static class Coordinates implements StringifiableProperty {
+
+        private String mValue = "";
+
+        @Override
+        public void fromString(String stringifiedProperty) {
+            mValue = stringifiedProperty;
+        }
+
+        @Override
+        public String stringify() {
+            return mValue;
+        }
+
+    }
+
+
+
+
+}
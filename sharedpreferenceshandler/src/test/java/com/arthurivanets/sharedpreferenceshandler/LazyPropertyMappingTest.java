@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.annotations.Property;
+import com.arthurivanets.sharedpreferenceshandler.util.LazyProperty;
+import com.arthurivanets.sharedpreferenceshandler.util.Mapper;
+import com.arthurivanets.sharedpreferenceshandler.util.Mappers;
+import com.arthurivanets.sharedpreferenceshandler.util.ObjectMappingUtil;
+import com.arthurivanets.sharedpreferenceshandler.util.StringifiableProperty;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Verifies that the {@link LazyProperty} fields (recovered either via the reflection or via the generated mapper)
+ *  read their stringified form only upon the first access. The reads of the store are counted via the metrics of the manager.
+ *
+ * @author arthur3486
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class LazyPropertyMappingTest {
+
+
+    private SharedPreferencesManager mManager;
+
+
+
+
+    @Before
+    public void setUp() {
+        final SharedPreferencesManagerConfig config = new SharedPreferencesManagerConfig.Builder()
+            .setMetricsEnabled(true)
+            .build();
+
+        mManager = SharedPreferencesManagerImpl.init(RuntimeEnvironment.application, "lazy_property_mapping_test", config);
+
+        final Settings settings = new Settings();
+        settings.blob = LazyProperty.of(new Blob("value"));
+
+        mManager.putAndCommit(settings);
+
+        // the first read (the loading) is recorded separately
+        mManager.getInt("absent", 0);
+    }
+
+
+
+
+    @After
+    public void tearDown() {
+        mManager.recycle();
+    }
+
+
+
+
+    @Test
+    public void reflectiveRecoveryReadsTheValueUponTheFirstAccess() {
+        assertReadUponTheFirstAccess(ObjectMappingUtil.recover(mManager, Settings.class));
+    }
+
+
+
+
+    @Test
+    public void generatedRecoveryReadsTheValueUponTheFirstAccess() {
+        final Mapper<Settings> mapper = Mappers.get(Settings.class);
+
+        assertNotNull(mapper);
+        assertReadUponTheFirstAccess(mapper.recover(mManager));
+    }
+
+
+
+
+    @Test
+    public void mapsTheUnaccessedValueBackAsIs() {
+        final Settings settings = ObjectMappingUtil.recover(mManager, Settings.class);
+
+        mManager.putAndCommit(settings);
+
+        assertFalse(settings.blob.isRecovered());
+        assertEquals("value", mManager.getString((Settings.class.getName() + ".blob"), null));
+    }
+
+
+
+
+    private void assertReadUponTheFirstAccess(Settings settings) {
+        final long readCount = getReadCount();
+
+        assertFalse(settings.blob.isRecovered());
+        assertEquals(readCount, getReadCount());
+
+        assertEquals("value", settings.blob.get().mValue);
+        assertEquals((readCount + 1), getReadCount());
+
+        // the value is read only once
+        settings.blob.get();
+        settings.blob.stringify();
+
+        assertEquals((readCount + 1), getReadCount());
+    }
+
+
+
+
+    private long getReadCount() {
+        return mManager.getMetrics().getHistogram(PreferenceMetrics.Operation.READ).getCount();
+    }
+
+
+
+
+    /**
+     *  The package-private field lets the generated mapper access it directly.
+     */
+    public static class Settings {
+
+        @Property LazyProperty<Blob> blob;
+
+    }
+
+
+
+
+    public static class Blob implements StringifiableProperty {
+
+        private String mValue = "";
+
+        public Blob() {
+            // the default constructor
+        }
+
+        Blob(String value) {
+            mValue = value;
+        }
+
+        @Override
+        public void fromString(String stringifiedProperty) {
+            mValue = stringifiedProperty;
+        }
+
+        @Override
+        public String stringify() {
+            return mValue;
+        }
+
+    }
+
+
+
+
+}
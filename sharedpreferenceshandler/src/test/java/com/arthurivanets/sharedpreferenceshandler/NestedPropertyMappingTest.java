@@ -0,0 +1,217 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.annotations.Property;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Verifies the mapping of the nested objects, as well as of the array and collection Property fields.
+ *
+ * @author arthur3486
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class NestedPropertyMappingTest {
+
+
+    private SharedPreferencesManager mManager;
+
+
+
+
+    @Before
+    public void setUp() {
+        mManager = SharedPreferencesManagerImpl.init(RuntimeEnvironment.application, "nested_property_mapping_test");
+    }
+
+
+
+
+    @After
+    public void tearDown() {
+        mManager.recycle();
+    }
+
+
+
+
+    @Test
+    public void flattensTheNestedObjectsIntoPrefixedKeys() {
+        mManager.putAndCommit(Profile.create());
+
+        final String keyPrefix = (Profile.class.getName() + ".");
+
+        assertEquals("Kyiv", mManager.getString((keyPrefix + "address.city"), null));
+        assertEquals(1.5f, mManager.getFloat((keyPrefix + "address.location.latitude"), 0f), 0f);
+        assertTrue(mManager.getBoolean((keyPrefix + "address"), false));
+    }
+
+
+
+
+    @Test
+    public void roundTripsTheNestedObjects() {
+        mManager.putAndCommit(Profile.create());
+
+        final Profile profile = mManager.get(Profile.class);
+
+        assertEquals("name", profile.name);
+        assertEquals("Kyiv", profile.address.city);
+        assertEquals(1000, profile.address.zipCode);
+        assertEquals(1.5f, profile.address.location.latitude, 0f);
+    }
+
+
+
+
+    @Test
+    public void roundTripsTheArraysAndCollections() {
+        mManager.putAndCommit(Profile.create());
+
+        final Profile profile = mManager.get(Profile.class);
+
+        assertArrayEquals(new int[] {1, -2, Integer.MAX_VALUE}, profile.scores);
+        assertArrayEquals(new boolean[] {true, false, true}, profile.flags);
+        assertEquals(Arrays.asList(1L, Long.MIN_VALUE), profile.ids);
+        assertEquals(new LinkedHashSet<>(Arrays.asList("b", "a")), profile.tags);
+    }
+
+
+
+
+    @Test
+    public void recoversTheNullNestedObjectAsNull() {
+        mManager.putAndCommit(Profile.create());
+
+        final Profile profile = Profile.create();
+        profile.address = null;
+
+        mManager.putAndCommit(profile);
+
+        final String keyPrefix = (Profile.class.getName() + ".");
+
+        // the stale keys of the nested object are removed
+        assertNull(mManager.getString((keyPrefix + "address.city"), null));
+        assertEquals(-1f, mManager.getFloat((keyPrefix + "address.location.latitude"), -1f), 0f);
+        assertNull(mManager.get(Profile.class).address);
+    }
+
+
+
+
+    @Test
+    public void keepsTheInitialValuesOfTheNeverMappedFields() {
+        final Profile profile = mManager.get(Profile.class);
+
+        assertNull(profile.address);
+        assertArrayEquals(new int[] {0}, profile.scores);
+    }
+
+
+
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsTheCyclicNesting() {
+        mManager.get(CyclicModel.class);
+    }
+
+
+
+
+    public static class Profile {
+
+        @Property String name;
+        @Property Address address;
+        @Property int[] scores = {0};
+        @Property boolean[] flags;
+        @Property List<Long> ids;
+        @Property Set<String> tags;
+
+        static Profile create() {
+            final Profile profile = new Profile();
+            profile.name = "name";
+            profile.address = new Address();
+            profile.address.city = "Kyiv";
+            profile.address.zipCode = 1000;
+            profile.address.location = new Location();
+            profile.address.location.latitude = 1.5f;
+            profile.scores = new int[] {1, -2, Integer.MAX_VALUE};
+            profile.flags = new boolean[] {true, false, true};
+            profile.ids = Arrays.asList(1L, Long.MIN_VALUE);
+            profile.tags = new LinkedHashSet<>(Arrays.asList("b", "a"));
+
+            return profile;
+        }
+
+    }
+
+
+
+
+    public static class Address {
+
+        @Property String city;
+        @Property int zipCode;
+        @Property Location location;
+
+    }
+
+
+
+
+    public static class Location {
+
+        @Property float latitude;
+
+    }
+
+
+
+
+    public static class CyclicModel {
+
+        @Property Node node;
+
+    }
+
+
+
+
+    public static class Node {
+
+        @Property Node next;
+
+    }
+
+
+
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.store.PreferenceStore;
+import com.arthurivanets.sharedpreferenceshandler.store.SharedPreferencesStore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author arthur3486
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceCacheTest {
+
+
+    private PreferenceStore mStore;
+    private PreferenceCache mCache;
+
+
+
+
+    @Before
+    public void setUp() {
+        mStore = SharedPreferencesStore.FACTORY.create(RuntimeEnvironment.application, "preference_cache_test");
+        mStore.edit().putInt("int", 1).putString("string", "value").commit();
+        mCache = new PreferenceCache(mStore);
+    }
+
+
+
+
+    @Test
+    public void loadsTheContentsOfTheFileUponTheFirstRead() {
+        assertEquals(1, mCache.get("int"));
+        assertEquals("value", mCache.get("string"));
+        assertNull(mCache.get("absent"));
+    }
+
+
+
+
+    @Test
+    public void prefersTheWrittenValuesOverTheLoadedOnes() {
+        mCache.put("int", 2);
+        mCache.remove("string");
+
+        assertEquals(2, mCache.get("int"));
+        assertNull(mCache.get("string"));
+        assertEquals(2, mCache.getAll().get("int"));
+        assertFalse(mCache.getAll().containsKey("string"));
+    }
+
+
+
+
+    @Test
+    public void treatsTheNullValuesAsRemovals() {
+        final Map<String, Object> changes = new HashMap<>();
+        changes.put("int", null);
+        changes.put("long", 3L);
+
+        mCache.put("string", (String) null);
+        mCache.putAll(changes);
+
+        assertNull(mCache.get("string"));
+        assertNull(mCache.get("int"));
+        assertEquals(3L, mCache.get("long"));
+        assertEquals(1, mCache.getAll().size());
+    }
+
+
+
+
+    @Test
+    public void copiesTheStringSets() {
+        final Set<String> values = new HashSet<>(Arrays.asList("a", "b"));
+
+        mCache.put("string_set", values);
+        values.add("c");
+
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), mCache.get("string_set"));
+    }
+
+
+
+
+    @Test
+    public void handsOutTheUnmodifiableStringSets() {
+        mStore.edit().putStringSet("loaded_string_set", new HashSet<>(Arrays.asList("a", "b"))).commit();
+        mCache.put("string_set", new HashSet<>(Arrays.asList("a", "b")));
+
+        assertUnmodifiable(mCache.get("string_set"));
+        assertUnmodifiable(mCache.get("loaded_string_set"));
+        assertUnmodifiable(mCache.getAll().get("loaded_string_set"));
+    }
+
+
+
+
+    @Test
+    public void managerWritesTheStringSetChangedByTheCaller() {
+        final SharedPreferencesManagerConfig config = new SharedPreferencesManagerConfig.Builder()
+            .setDirtyTrackingEnabled(true)
+            .build();
+        final SharedPreferencesManager manager = SharedPreferencesManagerImpl.init(RuntimeEnvironment.application, "preference_cache_test", config);
+
+        try {
+            manager.put("string_set", new HashSet<>(Arrays.asList("a", "b"))).commit();
+
+            final Set<String> values = new HashSet<>(manager.getStringSet("string_set", null));
+            values.add("c");
+
+            // the changed copy differs from the cached set, so it is not skipped by the dirty tracking
+            manager.put("string_set", values).commit();
+
+            assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")), mStore.getStringSet("string_set", null));
+            assertUnmodifiable(manager.getStringSet("string_set", null));
+        } finally {
+            manager.recycle();
+        }
+    }
+
+
+
+
+    @SuppressWarnings("unchecked")
+    private static void assertUnmodifiable(Object values) {
+        try {
+            ((Set<String>) values).add("c");
+            fail("The cached String Set is modifiable.");
+        } catch(UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+
+
+
+    @Test
+    public void reloadsTheFileAfterBeingCleared() {
+        mCache.put("int", 2);
+        mStore.edit().putInt("int", 3).commit();
+        mCache.clear();
+
+        assertEquals(3, mCache.get("int"));
+    }
+
+
+
+
+    @Test
+    public void managerServesTheWrittenValuesBeforeTheCommit() {
+        final SharedPreferencesManagerConfig config = new SharedPreferencesManagerConfig.Builder()
+            .setCachingEnabled(true)
+            .build();
+        final SharedPreferencesManager manager = SharedPreferencesManagerImpl.init(RuntimeEnvironment.application, "preference_cache_test", config);
+
+        try {
+            assertEquals(1, manager.getInt("int", 0));
+
+            manager.put("int", 2).remove("string");
+
+            assertEquals(2, manager.getInt("int", 0));
+            assertNull(manager.getString("string", null));
+
+            // the store is not updated until the commit
+            assertEquals(1, mStore.getInt("int", 0));
+
+            manager.commit();
+
+            assertEquals(2, mStore.getInt("int", 0));
+            assertFalse(mStore.contains("string"));
+        } finally {
+            manager.recycle();
+        }
+    }
+
+
+
+
+}
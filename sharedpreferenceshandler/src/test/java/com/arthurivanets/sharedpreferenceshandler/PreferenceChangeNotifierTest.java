@@ -0,0 +1,211 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Verifies the filtering, the coalescing and the delivery of the preference change notifications.
+ *  The deliveries are queued on a {@link QueueingExecutor}, so that they happen only once the queued tasks are run.
+ *
+ * @author arthur3486
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceChangeNotifierTest {
+
+
+    private final PreferenceChangeNotifier mNotifier = new PreferenceChangeNotifier();
+
+
+
+
+    @Test
+    public void deliversTheChangesOfTheMatchingKeysOnly() {
+        final QueueingExecutor executor = new QueueingExecutor();
+        final RecordingListener keysListener = new RecordingListener();
+        final RecordingListener prefixListener = new RecordingListener();
+
+        mNotifier.subscribe(PreferenceKeyFilter.forKeys("a", "b"), executor, 0L, keysListener);
+        mNotifier.subscribe(PreferenceKeyFilter.forPrefix("prefix."), executor, 0L, prefixListener);
+        mNotifier.notifyChanged(Arrays.asList("a", "c", "prefix.a", "prefix", "other.prefix.b"));
+        mNotifier.notifyChanged(Collections.singletonList("d"));
+
+        executor.runAll();
+
+        assertEquals(Collections.singletonList(setOf("a")), keysListener.mDeliveries);
+        assertEquals(Collections.singletonList(setOf("prefix.a")), prefixListener.mDeliveries);
+    }
+
+
+
+
+    @Test
+    public void deliversOnTheExecutorOfTheSubscription() {
+        final QueueingExecutor executor = new QueueingExecutor();
+        final RecordingListener listener = new RecordingListener();
+
+        mNotifier.subscribe(PreferenceKeyFilter.ALL, executor, 0L, listener);
+        mNotifier.notifyChanged(Collections.singletonList("a"));
+
+        // the writer does not deliver the notification itself
+        assertTrue(listener.mDeliveries.isEmpty());
+        assertEquals(1, executor.mTasks.size());
+
+        executor.runAll();
+
+        assertEquals(Collections.singletonList(setOf("a")), listener.mDeliveries);
+    }
+
+
+
+
+    @Test
+    public void coalescesTheChangesMadeWhileTheDeliveryIsPending() {
+        final QueueingExecutor executor = new QueueingExecutor();
+        final RecordingListener listener = new RecordingListener();
+
+        mNotifier.subscribe(PreferenceKeyFilter.ALL, executor, 0L, listener);
+        mNotifier.notifyChanged(Collections.singletonList("a"));
+        mNotifier.notifyChanged(Arrays.asList("a", "b"));
+
+        assertEquals(1, executor.mTasks.size());
+
+        executor.runAll();
+        mNotifier.notifyChanged(Collections.singletonList("c"));
+        executor.runAll();
+
+        assertEquals(Arrays.asList(setOf("a", "b"), setOf("c")), listener.mDeliveries);
+    }
+
+
+
+
+    @Test
+    public void coalescesTheChangesWithinTheBatchWindow() throws InterruptedException {
+        final CountDownLatch deliveryLatch = new CountDownLatch(1);
+        final List<Set<String>> deliveries = Collections.synchronizedList(new ArrayList<Set<String>>());
+        final Executor directExecutor = new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+
+        };
+
+        mNotifier.subscribe(PreferenceKeyFilter.ALL, directExecutor, 500L, new OnPreferencesChangeListener() {
+
+            @Override
+            public void onPreferencesChanged(Set<String> keys) {
+                deliveries.add(keys);
+                deliveryLatch.countDown();
+            }
+
+        });
+        mNotifier.notifyChanged(Collections.singletonList("a"));
+        mNotifier.notifyChanged(Collections.singletonList("b"));
+        mNotifier.notifyChanged(Collections.singletonList("c"));
+
+        assertTrue(deliveryLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(setOf("a", "b", "c")), deliveries);
+    }
+
+
+
+
+    @Test
+    public void unsubscribingDropsThePendingKeys() {
+        final QueueingExecutor executor = new QueueingExecutor();
+        final RecordingListener listener = new RecordingListener();
+        final PreferenceSubscription subscription = mNotifier.subscribe(PreferenceKeyFilter.ALL, executor, 0L, listener);
+
+        mNotifier.notifyChanged(Collections.singletonList("a"));
+        subscription.unsubscribe();
+        mNotifier.notifyChanged(Collections.singletonList("b"));
+        executor.runAll();
+
+        assertTrue(subscription.isUnsubscribed());
+        assertFalse(mNotifier.hasSubscriptions());
+        assertTrue(listener.mDeliveries.isEmpty());
+    }
+
+
+
+
+    private static Set<String> setOf(String... keys) {
+        return new HashSet<>(Arrays.asList(keys));
+    }
+
+
+
+
+    /**
+     *  An {@link Executor} that queues the tasks until they are explicitly run.
+     */
+    private static final class QueueingExecutor implements Executor {
+
+        private final List<Runnable> mTasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mTasks.add(command);
+        }
+
+        void runAll() {
+            final List<Runnable> tasks = new ArrayList<>(mTasks);
+            mTasks.clear();
+
+            for(Runnable task : tasks) {
+                task.run();
+            }
+        }
+
+    }
+
+
+
+
+    private static final class RecordingListener implements OnPreferencesChangeListener {
+
+        private final List<Set<String>> mDeliveries = new ArrayList<>();
+
+        @Override
+        public void onPreferencesChanged(Set<String> keys) {
+            mDeliveries.add(keys);
+        }
+
+    }
+
+
+
+
+}
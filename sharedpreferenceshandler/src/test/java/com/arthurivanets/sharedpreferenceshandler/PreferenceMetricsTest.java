@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Verifies the recording of the reads served by the cache and of the number of the preferences.
+ *
+ * @author arthur3486
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceMetricsTest {
+
+
+    private SharedPreferencesManager mManager;
+
+
+
+
+    @Before
+    public void setUp() {
+        final SharedPreferencesManagerConfig config = new SharedPreferencesManagerConfig.Builder()
+            .setCachingEnabled(true)
+            .setMetricsEnabled(true)
+            .build();
+
+        mManager = SharedPreferencesManagerImpl.init(RuntimeEnvironment.application, "preference_metrics_test", config);
+    }
+
+
+
+
+    @After
+    public void tearDown() {
+        mManager.recycle();
+    }
+
+
+
+
+    @Test
+    public void recordsTheReadsServedByTheCache() {
+        mManager.getInt("int", 0);
+
+        // the read that loads the cache is recorded as the load only
+        assertEquals(1, getCount(PreferenceMetrics.Operation.LOAD));
+        assertEquals(0, getCount(PreferenceMetrics.Operation.READ));
+
+        mManager.getInt("int", 0);
+        mManager.getString("string", null);
+        mManager.snapshot();
+
+        assertEquals(1, getCount(PreferenceMetrics.Operation.LOAD));
+        assertEquals(3, getCount(PreferenceMetrics.Operation.READ));
+    }
+
+
+
+
+    @Test
+    public void recordsTheKeyCountUponTheLoadingAndTheWrites() {
+        final PreferenceMetrics metrics = mManager.getMetrics();
+
+        assertEquals(-1, metrics.getKeyCount());
+
+        mManager.getInt("int", 0);
+
+        final int keyCount = metrics.getKeyCount();
+
+        assertTrue(keyCount >= 0);
+
+        mManager.put("recorded_key_1", 1).put("recorded_key_2", 2).commit();
+
+        assertEquals((keyCount + 2), metrics.getKeyCount());
+
+        mManager.put("recorded_key_1", 3).remove("recorded_key_2").remove("absent_key").commit();
+
+        assertEquals((keyCount + 1), metrics.getKeyCount());
+
+        mManager.put("recorded_key_3", 4).apply();
+
+        assertEquals((keyCount + 2), metrics.getKeyCount());
+    }
+
+
+
+
+    private long getCount(PreferenceMetrics.Operation operation) {
+        return mManager.getMetrics().getHistogram(operation).getCount();
+    }
+
+
+
+
+}
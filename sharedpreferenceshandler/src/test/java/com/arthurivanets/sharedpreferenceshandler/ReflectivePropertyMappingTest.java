@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler;
+
+import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultBoolean;
+import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultFloat;
+import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultInt;
+import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultLong;
+import com.arthurivanets.sharedpreferenceshandler.annotations.DefaultString;
+import com.arthurivanets.sharedpreferenceshandler.annotations.Property;
+import com.arthurivanets.sharedpreferenceshandler.util.Mappers;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Verifies the reflection-based mapping of the Property objects (the one driven by the cached mapping plans).
+ *
+ * @author arthur3486
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class ReflectivePropertyMappingTest {
+
+
+    private SharedPreferencesManager mManager;
+
+
+
+
+    @Before
+    public void setUp() {
+        mManager = SharedPreferencesManagerImpl.init(RuntimeEnvironment.application, "reflective_property_mapping_test");
+    }
+
+
+
+
+    @After
+    public void tearDown() {
+        mManager.recycle();
+    }
+
+
+
+
+    @Test
+    public void roundTripsAllValueTypes() {
+        assertNull(Mappers.get(Settings.class));
+
+        final Settings settings = new Settings();
+        settings.set(true, Integer.MIN_VALUE, Long.MAX_VALUE, -1.5f, "value");
+
+        mManager.putAndCommit(settings);
+
+        final Settings recoveredSettings = mManager.get(Settings.class);
+
+        assertTrue(recoveredSettings.booleanValue);
+        assertEquals(Integer.MIN_VALUE, recoveredSettings.intValue);
+        assertEquals(Long.MAX_VALUE, recoveredSettings.longValue);
+        assertEquals(-1.5f, recoveredSettings.floatValue, 0f);
+        assertEquals("value", recoveredSettings.stringValue);
+        assertEquals(0, recoveredSettings.ignoredValue);
+    }
+
+
+
+
+    @Test
+    public void mapsTheFieldsToTheirPropertyNames() {
+        final Settings settings = new Settings();
+        settings.set(false, 1, 2L, 3f, "value");
+
+        mManager.putAndCommit(settings);
+
+        final String keyPrefix = (Settings.class.getName() + ".");
+
+        assertEquals(2L, mManager.getLong((keyPrefix + "long_value"), 0L));
+        assertEquals(-1L, mManager.getLong((keyPrefix + "longValue"), -1L));
+        assertEquals(-1, mManager.getInt((keyPrefix + "ignoredValue"), -1));
+    }
+
+
+
+
+    @Test
+    public void recoversTheDefaultValuesOfTheAbsentPreferences() {
+        final Settings recoveredSettings = mManager.get(Settings.class);
+
+        assertTrue(recoveredSettings.booleanValue);
+        assertEquals(5, recoveredSettings.intValue);
+        assertEquals(6L, recoveredSettings.longValue);
+        assertEquals(0.5f, recoveredSettings.floatValue, 0f);
+        assertEquals("default", recoveredSettings.stringValue);
+    }
+
+
+
+
+    /**
+     *  The private fields are mapped via the reflection.
+     */
+    public static class Settings {
+
+        @Property @DefaultBoolean(true) private boolean booleanValue;
+        @Property @DefaultInt(5) private int intValue;
+        @Property("long_value") @DefaultLong(6L) private long longValue;
+        @Property @DefaultFloat(0.5f) private float floatValue;
+        @Property @DefaultString("default") private String stringValue;
+        private int ignoredValue;
+
+        void set(boolean booleanValue, int intValue, long longValue, float floatValue, String stringValue) {
+            this.booleanValue = booleanValue;
+            this.intValue = intValue;
+            this.longValue = longValue;
+            this.floatValue = floatValue;
+            this.stringValue = stringValue;
+            this.ignoredValue = 1;
+        }
+
+    }
+
+
+
+
+}
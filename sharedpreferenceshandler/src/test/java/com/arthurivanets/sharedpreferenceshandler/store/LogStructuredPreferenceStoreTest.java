@@ -0,0 +1,275 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.store;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author arthur3486
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class LogStructuredPreferenceStoreTest {
+
+
+
+
+    @Test
+    public void replaysTheLogUponLoading() {
+        final PreferenceStore store = openStore("replay");
+
+        store.edit()
+            .putBoolean("boolean", true)
+            .putInt("int", 1)
+            .putLong("long", Long.MIN_VALUE)
+            .putFloat("float", 1.5f)
+            .putString("string", "value")
+            .putStringSet("string_set", new HashSet<>(Arrays.asList("a", "b")))
+            .putString("removed", "value")
+            .commit();
+        store.edit()
+            .putInt("int", 2)
+            .remove("removed")
+            .commit();
+
+        final PreferenceStore reopenedStore = openStore("replay");
+
+        assertTrue(reopenedStore.getBoolean("boolean", false));
+        assertEquals(2, reopenedStore.getInt("int", 0));
+        assertEquals(Long.MIN_VALUE, reopenedStore.getLong("long", 0L));
+        assertEquals(1.5f, reopenedStore.getFloat("float", 0f), 0f);
+        assertEquals("value", reopenedStore.getString("string", null));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), reopenedStore.getStringSet("string_set", null));
+        assertFalse(reopenedStore.contains("removed"));
+        assertEquals(6, reopenedStore.getAll().size());
+    }
+
+
+
+
+    @Test
+    public void discardsTheTornTailRecord() throws IOException {
+        final PreferenceStore store = openStore("torn_tail");
+
+        store.edit().putString("first", "value").commit();
+        store.edit().putInt("second", 2).commit();
+
+        final File file = ((PreferenceStore.FileBacked) store).getFile();
+        final long validLength = file.length();
+
+        // a record header promising a payload, followed by a part of the payload only
+        appendBytes(file, new byte[] {0, 0, 0, 100, 1, 2, 3, 4, 5, 6});
+
+        final PreferenceStore reopenedStore = openStore("torn_tail");
+
+        assertEquals("value", reopenedStore.getString("first", null));
+        assertEquals(2, reopenedStore.getInt("second", 0));
+        assertEquals(validLength, file.length());
+
+        // the subsequent records are appended right after the last valid one
+        reopenedStore.edit().putInt("third", 3).commit();
+
+        final PreferenceStore storeAfterAppending = openStore("torn_tail");
+
+        assertEquals(2, storeAfterAppending.getInt("second", 0));
+        assertEquals(3, storeAfterAppending.getInt("third", 0));
+    }
+
+
+
+
+    @Test
+    public void discardsTheRecordWithMismatchingChecksum() throws IOException {
+        final PreferenceStore store = openStore("checksum");
+
+        store.edit().putString("first", "value").commit();
+
+        final File file = ((PreferenceStore.FileBacked) store).getFile();
+        final long validLength = file.length();
+
+        store.edit().putString("second", "value").commit();
+
+        // corrupting the last byte of the payload of the second record
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+
+        try {
+            randomAccessFile.seek(randomAccessFile.length() - 1);
+            final int lastByte = randomAccessFile.read();
+            randomAccessFile.seek(randomAccessFile.length() - 1);
+            randomAccessFile.write(lastByte ^ 0xff);
+        } finally {
+            randomAccessFile.close();
+        }
+
+        final PreferenceStore reopenedStore = openStore("checksum");
+
+        assertEquals("value", reopenedStore.getString("first", null));
+        assertFalse(reopenedStore.contains("second"));
+        assertEquals(validLength, file.length());
+    }
+
+
+
+
+    @Test
+    public void neverAppendsToTheLogThatFailedToReplay() throws IOException {
+        final PreferenceStore store = openStore("failed_replay");
+
+        store.edit().putString("first", "value").commit();
+
+        final File file = ((PreferenceStore.FileBacked) store).getFile();
+
+        // a record with a valid checksum, but with an unknown value type
+        final byte[] payload = new byte[] {0, 0, 0, 1, 'k', 99};
+        final CRC32 checksum = new CRC32();
+        checksum.update(payload);
+
+        final int payloadChecksum = (int) checksum.getValue();
+
+        appendBytes(file, new byte[] {
+            0, 0, 0, (byte) payload.length,
+            (byte) (payloadChecksum >>> 24), (byte) (payloadChecksum >>> 16), (byte) (payloadChecksum >>> 8), (byte) payloadChecksum
+        });
+        appendBytes(file, payload);
+
+        final long length = file.length();
+        final PreferenceStore reopenedStore = openStore("failed_replay");
+
+        // the partially replayed log is not exposed
+        assertFalse(reopenedStore.contains("first"));
+        assertTrue(reopenedStore.getAll().isEmpty());
+
+        assertFalse(reopenedStore.edit().putInt("second", 2).commit());
+
+        ((LogStructuredPreferenceStore) reopenedStore).compact();
+
+        assertEquals(length, file.length());
+    }
+
+
+
+
+    @Test
+    public void compactionRetainsOnlyTheCurrentValues() {
+        final LogStructuredPreferenceStore store = (LogStructuredPreferenceStore) openStore("compaction");
+
+        for(int i = 0; i < 100; i++) {
+            store.edit().putInt("counter", i).putString("name", ("name_" + i)).commit();
+        }
+
+        final File file = store.getFile();
+        final long uncompactedLength = file.length();
+
+        store.compact();
+
+        assertTrue(file.length() < uncompactedLength);
+        assertEquals(99, store.getInt("counter", 0));
+
+        final PreferenceStore reopenedStore = openStore("compaction");
+
+        assertEquals(99, reopenedStore.getInt("counter", 0));
+        assertEquals("name_99", reopenedStore.getString("name", null));
+        assertEquals(2, reopenedStore.getAll().size());
+    }
+
+
+
+
+    @Test
+    public void compactionKeepsTheConcurrentlyProducedRecords() throws InterruptedException {
+        final LogStructuredPreferenceStore store = (LogStructuredPreferenceStore) openStore("concurrent_compaction");
+        final int writeCount = 500;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final Thread writer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    startLatch.await();
+                } catch(InterruptedException e) {
+                    return;
+                }
+
+                // the applied records stay pending until they are written on the background thread
+                for(int i = 0; i < writeCount; i++) {
+                    store.edit().putInt("counter", i).putInt(("key_" + (i % 10)), i).apply();
+                }
+            }
+
+        });
+
+        writer.start();
+        startLatch.countDown();
+
+        while(writer.isAlive()) {
+            store.compact();
+        }
+
+        writer.join();
+
+        // writing whatever is still pending and compacting once again
+        store.edit().putString("last", "value").commit();
+        store.compact();
+
+        final PreferenceStore reopenedStore = openStore("concurrent_compaction");
+
+        assertEquals((writeCount - 1), reopenedStore.getInt("counter", -1));
+        assertEquals("value", reopenedStore.getString("last", null));
+
+        for(int i = 0; i < 10; i++) {
+            assertEquals((writeCount - 10 + i), reopenedStore.getInt(("key_" + i), -1));
+        }
+    }
+
+
+
+
+    private static PreferenceStore openStore(String fileName) {
+        return LogStructuredPreferenceStore.FACTORY.create(RuntimeEnvironment.application, fileName);
+    }
+
+
+
+
+    private static void appendBytes(File file, byte[] bytes) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+
+        try {
+            randomAccessFile.seek(randomAccessFile.length());
+            randomAccessFile.write(bytes);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+
+
+
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.store;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author arthur3486
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class MappedPreferenceStoreTest {
+
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final List<String> KEYS = Arrays.asList("b", "a", "ab", "\u00e9", "\u4e2d\u6587", "key_with_a_longer_name");
+
+
+
+
+    @Test
+    public void writesTheHeaderAndTheSortedKeyTable() throws IOException {
+        final PreferenceStore store = openStore("header");
+        final PreferenceStore.Editor editor = store.edit();
+
+        for(String key : KEYS) {
+            editor.putString(key, key);
+        }
+
+        editor.commit();
+
+        final File file = ((PreferenceStore.FileBacked) store).getFile();
+        final DataInputStream input = new DataInputStream(new FileInputStream(file));
+
+        try {
+            final int magic = input.readInt();
+            final int version = input.readInt();
+            final int entryCount = input.readInt();
+            final int keyRegionOffset = input.readInt();
+            final int valueRegionOffset = input.readInt();
+
+            assertEquals(0x5350484D, magic);
+            assertEquals(1, version);
+            assertEquals(KEYS.size(), entryCount);
+            assertEquals((20 + (entryCount * 12)), keyRegionOffset);
+
+            final int[] keyOffsets = new int[entryCount];
+            final int[] keyLengths = new int[entryCount];
+            int previousValueOffset = -1;
+
+            for(int i = 0; i < entryCount; i++) {
+                keyOffsets[i] = input.readInt();
+                keyLengths[i] = input.readInt();
+
+                final int valueOffset = input.readInt();
+
+                assertTrue(valueOffset >= valueRegionOffset);
+                assertTrue(valueOffset > previousValueOffset);
+
+                previousValueOffset = valueOffset;
+            }
+
+            final byte[] keyRegion = new byte[valueRegionOffset - keyRegionOffset];
+            input.readFully(keyRegion);
+
+            final List<String> tableKeys = new ArrayList<>();
+
+            for(int i = 0; i < entryCount; i++) {
+                tableKeys.add(new String(keyRegion, (keyOffsets[i] - keyRegionOffset), keyLengths[i], UTF_8));
+            }
+
+            // the keys are sorted by their UTF-8 bytes (which matches the code point order)
+            final List<String> expectedKeys = new ArrayList<>(KEYS);
+            Collections.sort(expectedKeys);
+
+            assertEquals(expectedKeys, tableKeys);
+        } finally {
+            input.close();
+        }
+    }
+
+
+
+
+    @Test
+    public void roundTripsAllValueTypes() {
+        final PreferenceStore store = openStore("round_trip");
+
+        store.edit()
+            .putBoolean("boolean", true)
+            .putInt("int", Integer.MIN_VALUE)
+            .putLong("long", Long.MAX_VALUE)
+            .putFloat("float", -0.5f)
+            .putString("string", "\u4e2d\u6587 value")
+            .putString("empty_string", "")
+            .putStringSet("string_set", new HashSet<>(Arrays.asList("a", "\u00e9", "")))
+            .putStringSet("empty_string_set", new HashSet<String>())
+            .commit();
+
+        final PreferenceStore reopenedStore = openStore("round_trip");
+
+        assertTrue(reopenedStore.getBoolean("boolean", false));
+        assertEquals(Integer.MIN_VALUE, reopenedStore.getInt("int", 0));
+        assertEquals(Long.MAX_VALUE, reopenedStore.getLong("long", 0L));
+        assertEquals(-0.5f, reopenedStore.getFloat("float", 0f), 0f);
+        assertEquals("\u4e2d\u6587 value", reopenedStore.getString("string", null));
+        assertEquals("", reopenedStore.getString("empty_string", null));
+        assertEquals(new HashSet<>(Arrays.asList("a", "\u00e9", "")), reopenedStore.getStringSet("string_set", null));
+        assertEquals(new HashSet<String>(), reopenedStore.getStringSet("empty_string_set", null));
+        assertEquals(8, reopenedStore.getAll().size());
+    }
+
+
+
+
+    @Test
+    public void looksUpEveryKeyOfTheTable() {
+        final PreferenceStore store = openStore("lookup");
+        final PreferenceStore.Editor editor = store.edit();
+
+        for(int i = 0; i < 1000; i++) {
+            editor.putInt(("key_" + i), i);
+        }
+
+        for(String key : KEYS) {
+            editor.putString(key, key);
+        }
+
+        editor.commit();
+
+        final PreferenceStore reopenedStore = openStore("lookup");
+
+        for(int i = 0; i < 1000; i++) {
+            assertEquals(i, reopenedStore.getInt(("key_" + i), -1));
+        }
+
+        for(String key : KEYS) {
+            assertEquals(key, reopenedStore.getString(key, null));
+        }
+
+        assertFalse(reopenedStore.contains("aa"));
+        assertFalse(reopenedStore.contains("key_1000"));
+        assertFalse(reopenedStore.contains("zzz"));
+    }
+
+
+
+
+    @Test
+    public void rewritesTheFileUponSubsequentCommits() {
+        final PreferenceStore store = openStore("rewrite");
+
+        store.edit().putInt("first", 1).putInt("second", 2).commit();
+        store.edit().putInt("second", 3).remove("first").putInt("third", 4).commit();
+
+        final PreferenceStore reopenedStore = openStore("rewrite");
+
+        assertFalse(reopenedStore.contains("first"));
+        assertEquals(3, reopenedStore.getInt("second", 0));
+        assertEquals(4, reopenedStore.getInt("third", 0));
+        assertEquals(2, reopenedStore.getAll().size());
+    }
+
+
+
+
+    @Test
+    public void neverOverwritesTheMalformedFile() throws IOException {
+        final PreferenceStore store = openStore("malformed");
+
+        store.edit().putInt("value", 1).commit();
+
+        final File file = ((PreferenceStore.FileBacked) store).getFile();
+        final byte[] malformedContents = new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21};
+        final FileOutputStream output = new FileOutputStream(file);
+
+        try {
+            output.write(malformedContents);
+        } finally {
+            output.close();
+        }
+
+        final PreferenceStore reopenedStore = openStore("malformed");
+
+        assertFalse(reopenedStore.contains("value"));
+        assertTrue(reopenedStore.getAll().isEmpty());
+
+        // the commits fail, as the contents of the file are unknown
+        assertFalse(reopenedStore.edit().putInt("value", 2).commit());
+        assertArrayEquals(malformedContents, readContents(file));
+    }
+
+
+
+
+    @Test
+    public void rejectsTheEntriesOutOfBounds() throws IOException {
+        // the value offset of the first entry of the key table
+        final File valueOffsetFile = createFile("value_offset_out_of_bounds");
+        corruptInt(valueOffsetFile, 28, Integer.MAX_VALUE);
+        assertRejected("value_offset_out_of_bounds");
+
+        // the key length of the first entry of the key table
+        final File keyLengthFile = createFile("key_length_out_of_bounds");
+        corruptInt(keyLengthFile, 24, 1000);
+        assertRejected("key_length_out_of_bounds");
+
+        // the length of the string (the first value, following the type byte)
+        final File stringLengthFile = createFile("string_length_out_of_bounds");
+        corruptInt(stringLengthFile, (readInt(stringLengthFile, 16) + 1), 1000);
+        assertRejected("string_length_out_of_bounds");
+    }
+
+
+
+
+    private static File createFile(String fileName) {
+        final PreferenceStore store = openStore(fileName);
+
+        store.edit().putString("string", "value").putInt("value", 1).commit();
+
+        return ((PreferenceStore.FileBacked) store).getFile();
+    }
+
+
+
+
+    private static void assertRejected(String fileName) throws IOException {
+        final PreferenceStore store = openStore(fileName);
+        final File file = ((PreferenceStore.FileBacked) store).getFile();
+        final byte[] contents = readContents(file);
+
+        assertEquals(0, store.getInt("value", 0));
+        assertNull(store.getString("string", null));
+        assertFalse(store.edit().putInt("value", 2).commit());
+        assertArrayEquals(contents, readContents(file));
+    }
+
+
+
+
+    private static int readInt(File file, long offset) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+
+        try {
+            randomAccessFile.seek(offset);
+
+            return randomAccessFile.readInt();
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+
+
+
+    private static void corruptInt(File file, long offset, int value) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+
+        try {
+            randomAccessFile.seek(offset);
+            randomAccessFile.writeInt(value);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+
+
+
+    private static byte[] readContents(File file) throws IOException {
+        final byte[] contents = new byte[(int) file.length()];
+        final DataInputStream input = new DataInputStream(new FileInputStream(file));
+
+        try {
+            input.readFully(contents);
+        } finally {
+            input.close();
+        }
+
+        return contents;
+    }
+
+
+
+
+    private static PreferenceStore openStore(String fileName) {
+        return MappedPreferenceStore.FACTORY.create(RuntimeEnvironment.application, fileName);
+    }
+
+
+
+
+}
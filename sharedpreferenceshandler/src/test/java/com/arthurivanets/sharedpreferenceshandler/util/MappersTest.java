@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.util;
+
+import com.arthurivanets.sharedpreferenceshandler.annotations.Property;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Verifies the lookup (and the caching) of the generated mappers.
+ *
+ * @author arthur3486
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class MappersTest {
+
+
+
+
+    @Test
+    public void cachesTheGeneratedMapper() {
+        final Mapper<Settings> mapper = Mappers.get(Settings.class);
+
+        assertNotNull(mapper);
+        assertSame(mapper, Mappers.get(Settings.class));
+    }
+
+
+
+
+    @Test
+    public void findsNoMapperForTheClassWithoutOne() {
+        assertNull(Mappers.get(String.class));
+        assertNull(Mappers.get(String.class));
+    }
+
+
+
+
+    @Test
+    public void ignoresTheClassOfTheGeneratedNameThatIsNotAMapper() {
+        assertEquals(MappersTest_Impostor_PropertyMapper.class.getName(), Mappers.getGeneratedClassName(Impostor.class));
+        assertNull(Mappers.get(Impostor.class));
+    }
+
+
+
+
+    /**
+     *  The package-private field lets the generated mapper access it directly.
+     */
+    public static class Settings {
+
+        @Property int value;
+
+    }
+
+
+
+
+    /**
+     *  A class with no generated mapper, which shares the name with a class that is not a {@link Mapper}.
+     */
+    public static class Impostor {
+
+    }
+
+
+
+
+}
+
+
+
+
+/**
+ *  Named after the generated mapper of the {@link MappersTest.Impostor}, but is not a {@link Mapper}.
+ */
+class MappersTest_Impostor_PropertyMapper {
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.util;
+
+import com.arthurivanets.sharedpreferenceshandler.annotations.Property;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Verifies the resolution and the caching of the per-class mapping plans.
+ *
+ * @author arthur3486
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class ObjectMappingPlanTest {
+
+
+
+
+    @Test
+    public void cachesThePlanPerClass() {
+        final ObjectMappingPlan plan = ObjectMappingPlan.of(Settings.class);
+
+        assertSame(plan, ObjectMappingPlan.of(Settings.class));
+        assertNotSame(plan, ObjectMappingPlan.of(StringifiableSettings.class));
+    }
+
+
+
+
+    @Test
+    public void resolvesTheKeysOfThePropertyFieldsOnly() {
+        final List<String> keys = new ArrayList<>();
+
+        for(PropertyMapping propertyMapping : ObjectMappingPlan.of(Settings.class).getPropertyMappings()) {
+            keys.add(propertyMapping.getKey());
+        }
+
+        final String keyPrefix = (Settings.class.getName() + ".");
+
+        assertFalse(ObjectMappingPlan.of(Settings.class).isStringifiable());
+        assertEquals(8, keys.size());
+        assertTrue(keys.containsAll(Arrays.asList(
+            (keyPrefix + "booleanValue"),
+            (keyPrefix + "intValue"),
+            (keyPrefix + "long_value"),
+            (keyPrefix + "floatValue"),
+            (keyPrefix + "stringValue"),
+            (keyPrefix + "boxedBooleanValue"),
+            (keyPrefix + "boxedIntValue"),
+            (keyPrefix + "boxedFloatValue")
+        )));
+    }
+
+
+
+
+    @Test
+    public void mapsTheStringifiablePropertyObjectToASingleKey() {
+        final ObjectMappingPlan plan = ObjectMappingPlan.of(StringifiableSettings.class);
+        final String className = StringifiableSettings.class.getName();
+
+        assertTrue(plan.isStringifiable());
+        assertEquals((className + ".settings"), plan.getObjectKey());
+        assertEquals(0, plan.getPropertyMappings().length);
+    }
+
+
+
+
+    /**
+     *  The private fields are mapped via the reflection.
+     */
+    public static class Settings {
+
+        @Property private boolean booleanValue;
+        @Property private int intValue;
+        @Property("long_value") private long longValue;
+        @Property private float floatValue;
+        @Property private String stringValue;
+        @Property private Boolean boxedBooleanValue;
+        @Property private Integer boxedIntValue;
+        @Property private Float boxedFloatValue;
+        private int ignoredValue;
+
+    }
+
+
+
+
+    @Property("settings")
+    public static class StringifiableSettings implements StringifiableProperty {
+
+        private String mValue = "";
+
+        @Override
+        public void fromString(String stringifiedProperty) {
+            mValue = stringifiedProperty;
+        }
+
+        @Override
+        public String stringify() {
+            return mValue;
+        }
+
+    }
+
+
+
+
+}
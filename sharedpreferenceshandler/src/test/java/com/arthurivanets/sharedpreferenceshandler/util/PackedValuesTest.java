@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 Arthur Ivanets, arthur.ivanets.l@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arthurivanets.sharedpreferenceshandler.util;
+
+import android.util.Base64;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author arthur3486
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class PackedValuesTest {
+
+
+
+
+    @Test
+    public void packsTheIntegersAsZigzagVarInts() {
+        final int[] values = {0, -1, 1, -64, 64};
+
+        // the type, the count and the zigzag-encoded values (0, 1, 2, 127, 128)
+        assertArrayEquals(
+            new byte[] {3, 5, 0, 1, 2, 127, (byte) 0x80, 0x01},
+            decode(PackedValues.pack(values, int.class))
+        );
+    }
+
+
+
+
+    @Test
+    public void packsTheBooleansAsBits() {
+        final boolean[] values = {true, false, true, true, false, false, false, false, true};
+
+        // the type, the count and the bits (the first element being the least significant bit of the first byte)
+        assertArrayEquals(
+            new byte[] {1, 9, 0x0D, 0x01},
+            decode(PackedValues.pack(values, boolean.class))
+        );
+    }
+
+
+
+
+    @Test
+    public void roundTripsTheIntegerExtremes() {
+        final int[] ints = {Integer.MIN_VALUE, (Integer.MIN_VALUE + 1), -1, 0, 1, (Integer.MAX_VALUE - 1), Integer.MAX_VALUE};
+        final long[] longs = {Long.MIN_VALUE, (Long.MIN_VALUE + 1), -1L, 0L, 1L, (Long.MAX_VALUE - 1L), Long.MAX_VALUE};
+
+        assertArrayEquals(ints, (int[]) roundTrip(ints, int[].class, int.class));
+        assertArrayEquals(longs, (long[]) roundTrip(longs, long[].class, long.class));
+    }
+
+
+
+
+    @Test
+    public void roundTripsTheBooleansOfAnyLength() {
+        for(int length : new int[] {0, 1, 7, 8, 9, 16, 17, 100}) {
+            final boolean[] values = new boolean[length];
+
+            for(int i = 0; i < length; i++) {
+                values[i] = ((i % 3) == 0);
+            }
+
+            assertArrayEquals(values, (boolean[]) roundTrip(values, boolean[].class, boolean.class));
+        }
+    }
+
+
+
+
+    @Test
+    public void roundTripsTheFloatingPointValues() {
+        final float[] floats = {0f, -0f, 1.5f, Float.MIN_VALUE, Float.MAX_VALUE, Float.NEGATIVE_INFINITY, Float.NaN};
+        final double[] doubles = {0d, -0d, 1.5d, Double.MIN_VALUE, Double.MAX_VALUE, Double.POSITIVE_INFINITY, Double.NaN};
+
+        assertArrayEquals(floats, (float[]) roundTrip(floats, float[].class, float.class), 0f);
+        assertArrayEquals(doubles, (double[]) roundTrip(doubles, double[].class, double.class), 0d);
+    }
+
+
+
+
+    @Test
+    public void roundTripsTheBytes() {
+        final byte[] values = {Byte.MIN_VALUE, -1, 0, 1, Byte.MAX_VALUE};
+
+        assertArrayEquals(values, (byte[]) roundTrip(values, byte[].class, byte.class));
+    }
+
+
+
+
+    @Test
+    public void roundTripsTheCollections() {
+        final List<Long> longs = new ArrayList<>(Arrays.asList(Long.MIN_VALUE, 0L, 300L));
+        final LinkedList<Integer> ints = new LinkedList<>(Arrays.asList(-5, 5));
+        final Set<String> strings = new LinkedHashSet<>(Arrays.asList("b", "", null, "\u4e2d\u6587", "a"));
+        final SortedSet<String> sortedStrings = new TreeSet<>(Arrays.asList("b", "a", "c"));
+        final Collection<Boolean> booleans = new ArrayList<>(Arrays.asList(true, false, true));
+
+        assertEquals(longs, roundTrip(longs, List.class, Long.class));
+        assertEquals(ints, roundTrip(ints, LinkedList.class, Integer.class));
+        assertEquals(booleans, roundTrip(booleans, Collection.class, Boolean.class));
+
+        // the order of the elements is preserved
+        assertEquals(new ArrayList<>(strings), new ArrayList<>((Set<?>) roundTrip(strings, Set.class, String.class)));
+        assertTrue(roundTrip(sortedStrings, SortedSet.class, String.class) instanceof TreeSet);
+        assertEquals(sortedStrings, roundTrip(sortedStrings, SortedSet.class, String.class));
+    }
+
+
+
+
+    @Test
+    public void packsTheNullValueAsNull() {
+        assertNull(PackedValues.pack(null, int.class));
+    }
+
+
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTheNullPrimitiveElements() {
+        PackedValues.pack(Arrays.asList(1, null, 3), Integer.class);
+    }
+
+
+
+
+    @Test
+    public void rejectsTheMismatchingOrMalformedValues() {
+        final String packedInts = PackedValues.pack(new int[] {1, 2, 3}, int.class);
+
+        assertNull(PackedValues.unpack(packedInts, long[].class, long.class));
+        assertNull(PackedValues.unpack("not base64!", int[].class, int.class));
+
+        // the count promising more elements than there are
+        assertNull(PackedValues.unpack(Base64.encodeToString(new byte[] {3, 5, 0, 1}, Base64.NO_WRAP), int[].class, int.class));
+    }
+
+
+
+
+    @Test
+    public void supportsOnlyTheKnownElementAndCollectionTypes() {
+        assertTrue(PackedValues.isSupported(int[].class, int.class));
+        assertTrue(PackedValues.isSupported(List.class, String.class));
+        assertFalse(PackedValues.isSupported(char[].class, char.class));
+        assertFalse(PackedValues.isSupported(List.class, Object.class));
+        assertFalse(PackedValues.isSupported(List.class, null));
+        assertFalse(PackedValues.isSupported(Iterable.class, Integer.class));
+    }
+
+
+
+
+    private static byte[] decode(String packedValue) {
+        return Base64.decode(packedValue, Base64.NO_WRAP);
+    }
+
+
+
+
+    private static Object roundTrip(Object value, Class<?> type, Class<?> elementClass) {
+        return PackedValues.unpack(PackedValues.pack(value, elementClass), type, elementClass);
+    }
+
+
+
+
+}